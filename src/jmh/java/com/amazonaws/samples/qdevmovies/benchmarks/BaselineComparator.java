@@ -0,0 +1,127 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against the checked-in baseline and fails the build on regressions.
+ * Benchmarks are keyed by name plus parameters; a score more than {@code tolerance} below the baseline
+ * (throughput) or above it (time per operation) counts as a regression. Benchmarks missing from the
+ * baseline are reported but never fail the build.
+ *
+ * <p>Usage: {@code BaselineComparator <result.json> <baseline.json> <tolerance>}.
+ * Run with {@code -Djmh.baseline.update=true} to overwrite the baseline with the current results.</p>
+ */
+public final class BaselineComparator {
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: BaselineComparator <result.json> <baseline.json> <tolerance>");
+            System.exit(2);
+        }
+        Path resultFile = Paths.get(args[0]);
+        Path baselineFile = Paths.get(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+
+        Map<String, JSONObject> results = readResults(resultFile);
+        if (Boolean.getBoolean("jmh.baseline.update")) {
+            writeBaseline(baselineFile, results);
+            System.out.println("Baseline updated with " + results.size() + " benchmarks: " + baselineFile);
+            return;
+        }
+
+        JSONObject baseline = Files.exists(baselineFile)
+            ? new JSONObject(new String(Files.readAllBytes(baselineFile), StandardCharsets.UTF_8)).getJSONObject("benchmarks")
+            : new JSONObject();
+        int regressions = 0;
+        for (Map.Entry<String, JSONObject> entry : results.entrySet()) {
+            String key = entry.getKey();
+            JSONObject current = entry.getValue();
+            if (!baseline.has(key)) {
+                System.out.printf("NEW        %-90s %12.3f %s%n", key, current.getDouble("score"), current.getString("unit"));
+                continue;
+            }
+            JSONObject expected = baseline.getJSONObject(key);
+            double change = relativeChange(expected.getDouble("score"), current.getDouble("score"), current.getString("unit"));
+            boolean regressed = change < -tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %-90s %12.3f -> %12.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK", key,
+                expected.getDouble("score"), current.getDouble("score"), current.getString("unit"), change * 100);
+        }
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) regressed by more than " + (tolerance * 100) + "% against " + baselineFile);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return Positive when the current score is better than the baseline, negative when worse
+     */
+    static double relativeChange(double baseline, double current, String unit) {
+        boolean timePerOp = unit.endsWith("/op");
+        double change = (current - baseline) / baseline;
+        return timePerOp ? -change : change;
+    }
+
+    private static Map<String, JSONObject> readResults(Path resultFile) throws IOException {
+        JSONArray runs = new JSONArray(new String(Files.readAllBytes(resultFile), StandardCharsets.UTF_8));
+        Map<String, JSONObject> results = new TreeMap<>();
+        for (int i = 0; i < runs.length(); i++) {
+            JSONObject run = runs.getJSONObject(i);
+            JSONObject metric = run.getJSONObject("primaryMetric");
+            JSONObject entry = new JSONObject();
+            entry.put("score", metric.getDouble("score"));
+            entry.put("unit", metric.getString("scoreUnit"));
+            results.put(key(run), entry);
+        }
+        return results;
+    }
+
+    private static String key(JSONObject run) {
+        StringBuilder key = new StringBuilder(run.getString("benchmark"));
+        JSONObject params = run.optJSONObject("params");
+        if (params != null) {
+            Map<String, Object> sorted = new TreeMap<>(params.toMap());
+            Iterator<Map.Entry<String, Object>> it = sorted.entrySet().iterator();
+            key.append('[');
+            while (it.hasNext()) {
+                Map.Entry<String, Object> param = it.next();
+                key.append(param.getKey()).append('=').append(param.getValue());
+                if (it.hasNext()) {
+                    key.append(',');
+                }
+            }
+            key.append(']');
+        }
+        return key.toString();
+    }
+
+    private static void writeBaseline(Path baselineFile, Map<String, JSONObject> results) throws IOException {
+        // Written by hand rather than via JSONObject so keys stay sorted and diffs stay readable
+        StringBuilder json = new StringBuilder("{\n  \"benchmarks\": {\n");
+        Iterator<Map.Entry<String, JSONObject>> it = results.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, JSONObject> entry = it.next();
+            json.append("    ").append(JSONObject.quote(entry.getKey())).append(": {\"score\": ")
+                .append(entry.getValue().getDouble("score")).append(", \"unit\": ")
+                .append(JSONObject.quote(entry.getValue().getString("unit"))).append('}')
+                .append(it.hasNext() ? ",\n" : "\n");
+        }
+        json.append("  }\n}\n");
+        Files.write(baselineFile, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
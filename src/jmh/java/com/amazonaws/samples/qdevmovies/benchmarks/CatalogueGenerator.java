@@ -0,0 +1,150 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.Review;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic catalogues for benchmarks.
+ * Genres, title words and directors follow a Zipf distribution so a few values dominate,
+ * like real traffic, and review fan-out per movie is skewed the same way.
+ */
+public final class CatalogueGenerator {
+
+    static final String[] GENRES = {
+        "Drama", "Comedy", "Action", "Thriller", "Romance", "Horror", "Sci-Fi", "Crime", "Adventure",
+        "Fantasy", "Animation", "Documentary", "Mystery", "Family", "History", "War", "Western", "Musical"
+    };
+
+    static final String[] WORDS = {
+        "the", "of", "night", "last", "love", "city", "dark", "star", "dream", "king", "war", "return",
+        "secret", "lost", "world", "man", "day", "blood", "house", "river", "shadow", "heist", "space",
+        "prison", "escape", "family", "boss", "hero", "quest", "ring", "club", "journey", "virtual", "wise",
+        "guys", "urban", "stories", "factory", "owner", "masked", "golden", "silent", "storm", "empire",
+        "garden", "winter", "summer", "ghost", "machine", "island", "mountain", "ocean", "fire", "glass"
+    };
+
+    private static final String[] AVATARS = {"👨", "👩", "🧔", "👴", "🦸", "🤓", "💪", "👩‍🦳"};
+    private static final String CONSONANTS = "bcdfghjklmnprstvwyz";
+    private static final String VOWELS = "aeiou";
+
+    private final Random random;
+    private final String[] words;
+    private final double[] genreWeights;
+    private final double[] wordWeights;
+
+    public CatalogueGenerator(long seed) {
+        this(seed, 0);
+    }
+
+    /**
+     * @param extraWords Pseudo-words of 2 to 5 syllables added after the common ones, for a title vocabulary
+     *                   as large as a real catalogue's; they are rarer than the common words but still Zipf-distributed
+     */
+    public CatalogueGenerator(long seed, int extraWords) {
+        this.random = new Random(seed);
+        this.words = Arrays.copyOf(WORDS, WORDS.length + extraWords);
+        for (int i = WORDS.length; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(4); syllables > 0; syllables--) {
+                word.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())))
+                    .append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+            }
+            words[i] = word.toString();
+        }
+        this.genreWeights = zipfWeights(GENRES.length, 1.1);
+        this.wordWeights = zipfWeights(words.length, 1.0);
+    }
+
+    /**
+     * @param count Number of movies; ids run from 1 to count
+     */
+    public List<Movie> movies(int count) {
+        List<Movie> movies = new ArrayList<>(count);
+        double[] directorWeights = zipfWeights(Math.max(10, count / 20), 1.0);
+        for (int i = 1; i <= count; i++) {
+            movies.add(new Movie(
+                i,
+                title(),
+                "Director " + (1 + pick(directorWeights)),
+                1920 + random.nextInt(105),
+                genre(),
+                "A story about " + word() + " and " + word() + " in the " + word() + " of " + word() + ".",
+                80 + random.nextInt(120),
+                1 + random.nextInt(9) * 0.5
+            ));
+        }
+        return movies;
+    }
+
+    /**
+     * @param movies The catalogue to review
+     * @param maxPerMovie Upper bound of the skewed number of reviews per movie
+     */
+    public Map<Long, List<Review>> reviews(List<Movie> movies, int maxPerMovie) {
+        double[] fanOut = zipfWeights(maxPerMovie + 1, 1.2);
+        Map<Long, List<Review>> reviews = new HashMap<>();
+        for (Movie movie : movies) {
+            int count = pick(fanOut);
+            List<Review> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                list.add(new Review("user" + random.nextInt(100000), AVATARS[random.nextInt(AVATARS.length)],
+                    1 + random.nextInt(9) * 0.5, "Loved the " + word() + " and the " + word() + "."));
+            }
+            if (!list.isEmpty()) {
+                reviews.put(movie.getId(), list);
+            }
+        }
+        return reviews;
+    }
+
+    private String title() {
+        int words = 1 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = word();
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return title.toString();
+    }
+
+    private String genre() {
+        String primary = GENRES[pick(genreWeights)];
+        if (random.nextInt(3) == 0) {
+            return primary;
+        }
+        String secondary = GENRES[pick(genreWeights)];
+        return secondary.equals(primary) ? primary : primary + "/" + secondary;
+    }
+
+    private String word() {
+        return words[pick(wordWeights)];
+    }
+
+    private int pick(double[] cumulativeWeights) {
+        int i = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        return Math.min(i >= 0 ? i : -i - 1, cumulativeWeights.length - 1);
+    }
+
+    private static double[] zipfWeights(int n, double exponent) {
+        double[] weights = new double[n];
+        double total = 0.0;
+        for (int i = 0; i < n; i++) {
+            total += 1.0 / Math.pow(i + 1, exponent);
+            weights[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            weights[i] /= total;
+        }
+        return weights;
+    }
+}
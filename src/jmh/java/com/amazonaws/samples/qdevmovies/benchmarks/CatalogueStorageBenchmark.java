@@ -0,0 +1,75 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.CatalogueProperties;
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.MoviePage;
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import com.amazonaws.samples.qdevmovies.movies.MovieSort;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap objects versus columnar storage for the same catalogue.
+ * Add {@code -Djmh.args="-prof gc"} to compare allocation and GC counts as well as throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogueStorageBenchmark {
+
+    @Param({"HEAP", "COLUMNAR"})
+    public CatalogueProperties.Storage storage;
+
+    @Param({"1000000"})
+    public int catalogueSize;
+
+    private MovieService movieService;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurator.setLevel("com.amazonaws.samples.qdevmovies", org.apache.logging.log4j.Level.WARN);
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setStorage(storage);
+        movieService = new MovieService(new CatalogueGenerator(42L).movies(catalogueSize), properties);
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + (i * 7919L) % catalogueSize;
+        }
+    }
+
+    @Benchmark
+    public double scanYearAndRating() {
+        double total = 0.0;
+        List<Movie> movies = movieService.getAllMovies();
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            if (movie.getYear() >= 2000) {
+                total += movie.getImdbRating();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public String lookupName() {
+        return movieService.getMovieById(ids[next++ & (ids.length - 1)]).get().getMovieName();
+    }
+
+    @Benchmark
+    public MoviePage searchFirstPageByRating() {
+        return movieService.getMoviesPage("dream", null, null, MovieSort.RATING, null, MovieService.DEFAULT_PAGE_SIZE);
+    }
+}
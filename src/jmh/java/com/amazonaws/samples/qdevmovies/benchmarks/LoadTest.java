@@ -0,0 +1,179 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.MoviesApplication;
+import com.amazonaws.samples.qdevmovies.movies.Review;
+import com.amazonaws.samples.qdevmovies.movies.ReviewService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closed-loop load test for the web tier's concurrency ceiling. Starts the application in-process with
+ * review lookups that block for {@code -Dload.latency.ms} (default 100), as a remote review store would,
+ * and a Tomcat pool of {@code -Dload.threads.max} (default 50) threads, then drives
+ * {@code /movies/{id}/details} from an increasing number of clients, first on platform threads and then,
+ * on JDK 21 or later, on virtual threads.
+ * <p>
+ * With platform threads throughput flattens at about threads / latency however many clients wait, and
+ * the extra clients only add queueing delay; with virtual threads it keeps rising until the CPU is busy.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *   -Dexec.args="-cp %classpath com.amazonaws.samples.qdevmovies.benchmarks.LoadTest 25 50 100 200 400"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final long LATENCY_MS = Long.getLong("load.latency.ms", 100);
+    private static final int THREADS_MAX = Integer.getInteger("load.threads.max", 50);
+    private static final long DURATION_MS = Long.getLong("load.duration.ms", 5000);
+    private static final int MOVIE_COUNT = 12;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] clients = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[] {25, 50, 100, 200, 400};
+        // HttpURLConnection only keeps five idle connections per host unless told otherwise
+        System.setProperty("http.maxConnections", Integer.toString(Arrays.stream(clients).max().getAsInt()));
+
+        for (boolean virtual : new boolean[] {false, true}) {
+            try (ConfigurableApplicationContext context = start(virtual)) {
+                String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                System.out.printf("%n%s threads, %d ms review lookups, server.tomcat.threads.max=%d%n",
+                    virtual ? "Virtual" : "Platform", LATENCY_MS, THREADS_MAX);
+                System.out.printf("%8s %10s %10s %10s%n", "clients", "req/s", "p50 ms", "p99 ms");
+                run(base, 50, 1000);
+                for (int c : clients) {
+                    Result result = run(base, c, DURATION_MS);
+                    System.out.printf("%8d %10.0f %10.1f %10.1f%n", c, result.throughput, result.p50, result.p99);
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual) {
+        // Command line arguments, so they win over application.yml
+        return new SpringApplicationBuilder(MoviesApplication.class, SlowReviews.class).run(
+            "--server.port=0",
+            "--management.server.port=-1",
+            "--server.tomcat.threads.max=" + THREADS_MAX,
+            "--server.tomcat.accept-count=1000",
+            "--movies.web.virtual-threads=" + virtual,
+            "--logging.level.com.amazonaws.samples.qdevmovies=WARN",
+            "--logging.level.com.amazonaws.samples.qdevmovies.movies.VirtualThreadConfiguration=INFO");
+    }
+
+    private static Result run(String base, int clients, long durationMs) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(clients);
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            long[] samples = new long[1 << 16];
+            latencies.add(samples);
+            int first = i;
+            Thread thread = new Thread(() -> {
+                int n = 1;
+                try {
+                    for (int request = first; !stop.get() && n < samples.length; request++) {
+                        long started = System.nanoTime();
+                        get(base + "/movies/" + (1 + request % MOVIE_COUNT) + "/details");
+                        samples[n++] = System.nanoTime() - started;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Request failed: " + e);
+                } finally {
+                    samples[0] = n - 1;
+                    done.countDown();
+                }
+            });
+            threads.add(thread);
+        }
+        long started = System.nanoTime();
+        threads.forEach(Thread::start);
+        Thread.sleep(durationMs);
+        stop.set(true);
+        done.await(30, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        int total = 0;
+        for (long[] samples : latencies) {
+            total += (int) samples[0];
+        }
+        long[] all = new long[total];
+        int k = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 1, all, k, (int) samples[0]);
+            k += (int) samples[0];
+        }
+        Arrays.sort(all);
+        return new Result(total / seconds, percentile(all, 0.50), percentile(all, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? Double.NaN : sorted[(int) Math.min(sorted.length - 1, sorted.length * p)] / 1e6;
+    }
+
+    private static void get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(60000);
+        if (connection.getResponseCode() != 200) {
+            throw new IOException(url + " returned " + connection.getResponseCode());
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            while (in.read(buffer) >= 0) {
+                // Drain so the connection goes back to the keep-alive pool
+            }
+        }
+    }
+
+    private static final class Result {
+        final double throughput;
+        final double p50;
+        final double p99;
+
+        Result(double throughput, double p50, double p99) {
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+        }
+    }
+
+    /**
+     * Review lookups that block like a call to a remote review store would.
+     */
+    @Configuration
+    static class SlowReviews {
+
+        @Bean
+        @Primary
+        ReviewService slowReviewService() {
+            return new ReviewService() {
+                @Override
+                public List<Review> getReviewsForMovie(long movieId) {
+                    try {
+                        Thread.sleep(LATENCY_MS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.getReviewsForMovie(movieId);
+                }
+            };
+        }
+    }
+}
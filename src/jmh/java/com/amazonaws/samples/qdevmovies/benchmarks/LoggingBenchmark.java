@@ -0,0 +1,61 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search throughput with its per-request log lines on, from four threads at once, under each logging mode:
+ * every search logged synchronously (the default), every search logged through the opt-in async search
+ * logger, and that async logger with search lines sampled to 20 per second.
+ * The loggers are fixed when Log4j2 starts, so every mode runs in its own fork.
+ * Logs go to /dev/null by default; pass {@code -jvmArgsAppend -Dbenchmark.log.file=...} to keep them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class LoggingBenchmark {
+
+    private static final String CONFIG = "-Dlog4j.configurationFile=log4j2-benchmark.xml";
+    private static final String EVERY_SEARCH = "-Dmovies.log.search.rate=0";
+    private static final String ASYNC = "-Dmovies.log.async=true";
+
+    private MovieService movieService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Movie> movies = new CatalogueGenerator(42L).movies(1000);
+        movieService = new MovieService(movies);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, EVERY_SEARCH})
+    public List<Movie> synchronousLogging() {
+        return movieService.searchMovies("Glass Machine", null, null);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, EVERY_SEARCH, ASYNC})
+    public List<Movie> asyncLogging() {
+        return movieService.searchMovies("Glass Machine", null, null);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, ASYNC})
+    public List<Movie> asyncSampledLogging() {
+        return movieService.searchMovies("Glass Machine", null, null);
+    }
+}
@@ -0,0 +1,62 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import com.amazonaws.samples.qdevmovies.utils.IconRules;
+import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an icon: matching the rules, which the catalogue loader pays once per movie,
+ * against reading the resolved icon, which is all a rendered card pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MovieIconUtilsBenchmark {
+
+    public String knownTitle = "Space Wars: The Beginning";
+    public String unknownTitle = "The Silent Glass Machine";
+    public String keywordTitle = "The Silent Dragon of the North";
+
+    private Movie catalogueMovie;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurator.setLevel("com.amazonaws.samples.qdevmovies", org.apache.logging.log4j.Level.WARN);
+        MovieService service = new MovieService(Arrays.asList(
+            new Movie(1, unknownTitle, "Director 1", 2001, "Crime/Drama", "A story.", 100, 4.0)));
+        catalogueMovie = service.getMovieById(1L).get();
+    }
+
+    @Benchmark
+    public String knownTitle() {
+        return MovieIconUtils.getMovieIcon(knownTitle);
+    }
+
+    @Benchmark
+    public String unknownTitle() {
+        return MovieIconUtils.getMovieIcon(unknownTitle);
+    }
+
+    @Benchmark
+    public String keywordTitleWithGenre() {
+        return IconRules.bundled().iconFor(keywordTitle, "Action/Fantasy");
+    }
+
+    @Benchmark
+    public String catalogueMovieIcon() {
+        return catalogueMovie.getIcon();
+    }
+}
@@ -0,0 +1,47 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movie to JSON serialization, as done for every result of the REST search endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MovieSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Movie movie;
+    private List<Movie> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        List<Movie> movies = new CatalogueGenerator(42L).movies(1000);
+        movie = movies.get(0);
+        page = movies.subList(0, 20);
+    }
+
+    @Benchmark
+    public byte[] serializeMovie() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
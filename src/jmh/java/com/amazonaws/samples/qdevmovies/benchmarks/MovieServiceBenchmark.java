@@ -0,0 +1,145 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.CatalogueProperties;
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.MovieFilter;
+import com.amazonaws.samples.qdevmovies.movies.MoviePage;
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import com.amazonaws.samples.qdevmovies.movies.MovieSort;
+import com.amazonaws.samples.qdevmovies.movies.ScoredMovie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the MovieService hot paths over synthetic catalogues.
+ * Run a single size with: {@code mvn -Pbenchmark verify -DskipTests -Djmh.includes=MovieServiceBenchmark -Djmh.args="-p catalogueSize=1000"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MovieServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogueSize;
+
+    private MovieService movieService;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        // Search logging would dominate the measurement; it gets its own benchmark
+        Configurator.setLevel("com.amazonaws.samples.qdevmovies", org.apache.logging.log4j.Level.WARN);
+        List<Movie> movies = new CatalogueGenerator(42L).movies(catalogueSize);
+        // Every benchmark repeats one query, so with the result cache on they would only measure the cache
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setSearchCacheSize(DataSize.ofBytes(0));
+        movieService = new MovieService(movies, properties);
+        // Similar titles of large catalogues are built in the background; measure lookups, not empty answers
+        if (!movieService.awaitSimilarMovies(1, TimeUnit.HOURS)) {
+            throw new IllegalStateException("Similar titles were not built");
+        }
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + (i * 7919L) % catalogueSize;
+        }
+    }
+
+    @Benchmark
+    public List<Movie> searchByCommonName() {
+        return movieService.searchMovies("the", null, null);
+    }
+
+    @Benchmark
+    public List<Movie> searchByRareName() {
+        return movieService.searchMovies("Glass Machine", null, null);
+    }
+
+    @Benchmark
+    public List<Movie> searchByGenre() {
+        return movieService.searchMovies(null, null, "Thriller");
+    }
+
+    @Benchmark
+    public List<Movie> searchByNameAndGenre() {
+        return movieService.searchMovies("night", null, "Drama");
+    }
+
+    @Benchmark
+    public List<ScoredMovie> searchRankedCommonWord() {
+        return movieService.searchRanked("dream", MovieService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ScoredMovie> searchRankedPhrase() {
+        return movieService.searchRanked("escape from the prison isl", MovieService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MoviePage browseFirstPage() {
+        return movieService.getMoviesPage(null, null, null, MovieSort.ID, null, MovieService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MoviePage searchFirstPageByRating() {
+        return movieService.getMoviesPage("dream", null, null, MovieSort.RATING, null, MovieService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MoviePage filterByYearsAndRating() {
+        MovieFilter filter = MovieFilter.ALL.withYears(1990, 1999).withMinRating(4.5);
+        return movieService.getMoviesPage(filter, MovieSort.RATING, null, MovieService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MoviePage filterByGenreAndDurationSortedByDuration() {
+        MovieFilter filter = MovieFilter.of(null, null, "Drama").withDuration(90, 120);
+        return movieService.getMoviesPage(filter, MovieSort.DURATION, null, MovieService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public MoviePage filterByDirectorAndYears() {
+        MovieFilter filter = MovieFilter.ALL.withDirector("Director 7").withYears(2000, null);
+        return movieService.getMoviesPage(filter, MovieSort.YEAR, null, MovieService.DEFAULT_PAGE_SIZE);
+    }
+
+    /** What {@link #filterByYearsAndRating} costs without the column indexes, for comparison */
+    @Benchmark
+    public List<Movie> scanByYearsAndRating() {
+        return movieService.getAllMovies().stream()
+            .filter(movie -> movie.getYear() >= 1990 && movie.getYear() <= 1999 && movie.getImdbRating() >= 4.5)
+            .sorted((a, b) -> a.getImdbRating() != b.getImdbRating()
+                ? Double.compare(b.getImdbRating(), a.getImdbRating()) : Long.compare(a.getId(), b.getId()))
+            .limit(MovieService.DEFAULT_PAGE_SIZE)
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> getAllGenres() {
+        return movieService.getAllGenres();
+    }
+
+    @Benchmark
+    public Optional<Movie> getMovieById() {
+        return movieService.getMovieById(ids[next++ & (ids.length - 1)]);
+    }
+
+    @Benchmark
+    public List<ScoredMovie> getSimilarMovies() {
+        return movieService.getSimilarMovies(ids[next++ & (ids.length - 1)], MovieService.DEFAULT_SIMILAR_MOVIES);
+    }
+}
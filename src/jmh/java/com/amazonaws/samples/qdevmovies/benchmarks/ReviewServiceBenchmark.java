@@ -0,0 +1,58 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.Review;
+import com.amazonaws.samples.qdevmovies.movies.ReviewService;
+import com.amazonaws.samples.qdevmovies.movies.ReviewSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of review lookups with a skewed review fan-out per movie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReviewServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int catalogueSize;
+
+    @Param({"50"})
+    public int maxReviewsPerMovie;
+
+    private ReviewService reviewService;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CatalogueGenerator generator = new CatalogueGenerator(42L);
+        List<Movie> movies = generator.movies(catalogueSize);
+        reviewService = new ReviewService(generator.reviews(movies, maxReviewsPerMovie));
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + (i * 7919L) % catalogueSize;
+        }
+    }
+
+    @Benchmark
+    public List<Review> getReviewsForMovie() {
+        return reviewService.getReviewsForMovie(ids[next++ & (ids.length - 1)]);
+    }
+
+    @Benchmark
+    public ReviewSummary getReviewSummary() {
+        return reviewService.getReviewSummary(ids[next++ & (ids.length - 1)]);
+    }
+}
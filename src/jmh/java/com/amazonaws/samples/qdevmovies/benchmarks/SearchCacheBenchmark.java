@@ -0,0 +1,85 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.CatalogueProperties;
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.MoviePage;
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import com.amazonaws.samples.qdevmovies.movies.MovieSort;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First-page searches drawn from a skewed mix of name/genre queries, where a few combinations and the
+ * empty browse-all query make up most of the traffic, with the search result cache on and off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchCacheBenchmark {
+
+    @Param({"100000"})
+    public int catalogueSize;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private MovieService movieService;
+    private String[] names;
+    private String[] genres;
+    private int[] sequence;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurator.setLevel("com.amazonaws.samples.qdevmovies", org.apache.logging.log4j.Level.WARN);
+        List<Movie> movies = new CatalogueGenerator(42L).movies(catalogueSize);
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setSearchCacheSize(cached ? DataSize.ofMegabytes(16) : DataSize.ofBytes(0));
+        movieService = new MovieService(movies, properties);
+
+        // Query i is the i-th most popular: word x genre combinations, with browse-all in first place
+        int queries = CatalogueGenerator.WORDS.length * 4;
+        names = new String[queries];
+        genres = new String[queries];
+        for (int i = 1; i < queries; i++) {
+            names[i] = CatalogueGenerator.WORDS[i % CatalogueGenerator.WORDS.length];
+            genres[i] = i % 4 == 0 ? null : CatalogueGenerator.GENRES[i % 4];
+        }
+
+        double[] cumulative = new double[queries];
+        double total = 0;
+        for (int i = 0; i < queries; i++) {
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        Random random = new Random(7L);
+        sequence = new int[4096];
+        for (int i = 0; i < sequence.length; i++) {
+            double r = random.nextDouble() * total;
+            int q = 0;
+            while (cumulative[q] < r) {
+                q++;
+            }
+            sequence[i] = q;
+        }
+    }
+
+    @Benchmark
+    public MoviePage skewedSearchFirstPage() {
+        int q = sequence[next++ & (sequence.length - 1)];
+        return movieService.getMoviesPage(names[q], null, genres[q], MovieSort.ID, null, MovieService.DEFAULT_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,102 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import com.amazonaws.samples.qdevmovies.utils.HnswIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The similar-titles graph: how long one lookup takes, and how long the background build after each
+ * catalogue load takes, e.g.
+ * {@code mvn -Pbenchmark verify -DskipTests -Djmh.includes=SimilarIndexBenchmark -Djmh.args="-p catalogueSize=100000"}.
+ * <p>
+ * The vectors are 64-component units scattered around a few hundred centres, standing in for movies
+ * that share genres and directors; the link and beam settings are the ones MovieCatalog uses. One
+ * build at 1M takes minutes, hence a single fork and few iterations; add {@code -prof gc} for its allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class SimilarIndexBenchmark {
+
+    private static final int DIMENSIONS = 64;
+    private static final int CLUSTERS = 500;
+
+    @Param({"100000", "1000000"})
+    public int catalogueSize;
+
+    private byte[] vectors;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        float[][] centres = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centres[c] = unit(random, null, 0f);
+        }
+        vectors = new byte[catalogueSize * DIMENSIONS];
+        for (int i = 0; i < catalogueSize; i++) {
+            HnswIndex.quantize(unit(random, centres[random.nextInt(CLUSTERS)], 0.5f), vectors, i * DIMENSIONS);
+        }
+    }
+
+    private static float[] unit(Random random, float[] centre, float noise) {
+        float[] vector = new float[DIMENSIONS];
+        float norm = 0f;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            float component = (float) random.nextGaussian();
+            vector[i] = centre == null ? component : centre[i] * (float) Math.sqrt(DIMENSIONS) + component * noise;
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    /**
+     * The graph the lookups walk, built once per trial and only for {@link #nearest}.
+     */
+    @State(Scope.Benchmark)
+    public static class Built {
+        HnswIndex index;
+
+        @Setup(Level.Trial)
+        public void setUp(SimilarIndexBenchmark benchmark) {
+            index = benchmark.buildIndex();
+        }
+    }
+
+    @Benchmark
+    public HnswIndex buildIndex() {
+        return new HnswIndex(vectors, DIMENSIONS, 16, 64, 64);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<HnswIndex.Neighbour> nearest(Built built) {
+        // Stride through the catalogue so consecutive lookups start from unrelated vectors
+        next = (next + 7919) % catalogueSize;
+        return built.index.nearest(next, MovieService.DEFAULT_SIMILAR_MOVIES);
+    }
+}
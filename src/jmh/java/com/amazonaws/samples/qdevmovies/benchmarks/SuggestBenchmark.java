@@ -0,0 +1,92 @@
+package com.amazonaws.samples.qdevmovies.benchmarks;
+
+import com.amazonaws.samples.qdevmovies.movies.Movie;
+import com.amazonaws.samples.qdevmovies.movies.MovieService;
+import com.amazonaws.samples.qdevmovies.movies.MovieSuggestion;
+import com.amazonaws.samples.qdevmovies.utils.AutocompleteIndex;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of title autocomplete for keystroke-like queries: a random title cut after a few characters,
+ * half of them with two adjacent letters swapped. Sample time mode reports the percentiles, e.g.
+ * {@code mvn -Pbenchmark verify -DskipTests -Djmh.includes=SuggestBenchmark}.
+ * <p>
+ * The generator's common words alone make a vocabulary of a few dozen; {@code extraWords} adds a real
+ * catalogue's worth, which is what the typo index's size and build time depend on.
+ * {@code buildIndex} times one build; add {@code -prof gc} for its allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SuggestBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int catalogueSize;
+
+    @Param({"0", "200000"})
+    public int extraWords;
+
+    private MovieService movieService;
+    private String[] titles;
+    private int[] rank;
+    private String[] typed;
+    private String[] misspelt;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurator.setLevel("com.amazonaws.samples.qdevmovies", org.apache.logging.log4j.Level.WARN);
+        List<Movie> movies = new CatalogueGenerator(42L, extraWords).movies(catalogueSize);
+        movieService = new MovieService(movies);
+        titles = new String[movies.size()];
+        rank = new int[movies.size()];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = movies.get(i).getMovieName();
+            rank[i] = i;
+        }
+
+        Random random = new Random(11L);
+        typed = new String[4096];
+        misspelt = new String[typed.length];
+        for (int i = 0; i < typed.length; i++) {
+            String title = movies.get(random.nextInt(movies.size())).getMovieName();
+            typed[i] = title.substring(0, Math.min(title.length(), 3 + random.nextInt(8)));
+            char[] chars = title.toCharArray();
+            int swap = random.nextInt(chars.length - 1);
+            char c = chars[swap];
+            chars[swap] = chars[swap + 1];
+            chars[swap + 1] = c;
+            misspelt[i] = new String(chars);
+        }
+    }
+
+    @Benchmark
+    public List<MovieSuggestion> suggestPrefix() {
+        return movieService.suggestTitles(typed[next++ & (typed.length - 1)], MovieService.DEFAULT_SUGGESTIONS);
+    }
+
+    @Benchmark
+    public List<MovieSuggestion> suggestWithTypo() {
+        return movieService.suggestTitles(misspelt[next++ & (misspelt.length - 1)], MovieService.DEFAULT_SUGGESTIONS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AutocompleteIndex buildIndex() {
+        return new AutocompleteIndex(titles, rank);
+    }
+}
@@ -0,0 +1,52 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one structured record per request to the {@link MovieLogs#ACCESS} logger.
+ * Costs a single level check per request while that logger is off, which is the default.
+ */
+class AccessLogInterceptor implements HandlerInterceptor {
+
+    private static final String STARTED = AccessLogInterceptor.class.getName() + ".started";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (MovieLogs.ACCESS.isInfoEnabled()) {
+            request.setAttribute(STARTED, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object started = request.getAttribute(STARTED);
+        if (!(started instanceof Long) || !MovieLogs.ACCESS.isInfoEnabled()) {
+            return;
+        }
+        // JsonLayout writes an ObjectMessage's map as a nested JSON object, keeping numbers as numbers
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("method", request.getMethod());
+        record.put("path", request.getRequestURI());
+        if (request.getQueryString() != null) {
+            record.put("query", request.getQueryString());
+        }
+        record.put("status", response.getStatus());
+        record.put("micros", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (Long) started));
+        if (handler instanceof HandlerMethod) {
+            record.put("handler", ((HandlerMethod) handler).getMethod().getName());
+        }
+        if (ex != null) {
+            record.put("error", ex.getClass().getSimpleName());
+        }
+        MovieLogs.ACCESS.info(new ObjectMessage(record));
+    }
+}
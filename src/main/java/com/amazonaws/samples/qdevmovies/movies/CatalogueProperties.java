@@ -0,0 +1,137 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings under {@code movies.catalogue} controlling where MovieService loads movies from.
+ */
+@Component
+@ConfigurationProperties(prefix = "movies.catalogue")
+public class CatalogueProperties {
+
+    /** External movies JSON file; when blank the bundled classpath movies.json is served */
+    private String path;
+
+    /** Whether to reload the external file when it changes on disk */
+    private boolean watch = true;
+
+    /** Quiet period after the last file event before reloading, so half-written files are not picked up */
+    private long reloadDelayMillis = 500;
+
+    /** External icon rules JSON; when blank the bundled movie-icons.json is used. Re-read on every reload */
+    private String iconRules;
+
+    /** How loaded movies are held in memory */
+    private Storage storage = Storage.HEAP;
+
+    /** Memory budget for cached search results; zero turns the cache off */
+    private DataSize searchCacheSize = DataSize.ofMegabytes(16);
+
+    /** Number of instances the catalogue is split across by movie id; 1 serves every movie */
+    private int shardCount = 1;
+
+    /** Which of the {@code shardCount} partitions this instance serves, counting from 0 */
+    private int shardIndex;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    public long getReloadDelayMillis() {
+        return reloadDelayMillis;
+    }
+
+    public void setReloadDelayMillis(long reloadDelayMillis) {
+        this.reloadDelayMillis = reloadDelayMillis;
+    }
+
+    public String getIconRules() {
+        return iconRules;
+    }
+
+    public void setIconRules(String iconRules) {
+        this.iconRules = iconRules;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public void setStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    public DataSize getSearchCacheSize() {
+        return searchCacheSize;
+    }
+
+    public void setSearchCacheSize(DataSize searchCacheSize) {
+        this.searchCacheSize = searchCacheSize;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public void setShardIndex(int shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    /**
+     * @return Whether the movie belongs to this instance's partition
+     */
+    boolean ownsMovie(long movieId) {
+        return shardOf(movieId, shardCount) == shardIndex;
+    }
+
+    /**
+     * Hash partitioning by id. The id is mixed first, so consecutive ids spread evenly over the shards.
+     * @return The partition holding the movie, from 0 to {@code shardCount - 1}
+     */
+    static int shardOf(long movieId, int shardCount) {
+        long hash = movieId * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) Math.floorMod(hash, (long) shardCount);
+    }
+
+    boolean hasExternalPath() {
+        return path != null && !path.trim().isEmpty();
+    }
+
+    boolean hasExternalIconRules() {
+        return iconRules != null && !iconRules.trim().isEmpty();
+    }
+
+    public enum Storage {
+        /** One Movie object per movie */
+        HEAP,
+        /** Primitive columns plus an off-heap string arena, with Movie views created on demand */
+        COLUMNAR
+    }
+}
@@ -0,0 +1,149 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional and compressed responses for the catalogue pages and the search API, which only change
+ * when the catalogue does:
+ * <ul>
+ *   <li>A strong ETag from the catalogue version, a digest of the request and the encoding, plus
+ *   Last-Modified from when the catalogue was loaded, so {@code If-None-Match} and
+ *   {@code If-Modified-Since} get a 304 before anything is searched or rendered</li>
+ *   <li>{@code Cache-Control: max-age} so repeat visits within that window never reach the server</li>
+ *   <li>Gzipped bodies kept in {@link PageFragmentCache} under the catalogue version and the full
+ *   request, so a popular response is compressed once and then served as stored bytes without running
+ *   the controller at all</li>
+ * </ul>
+ * Details pages also change when a review is submitted, so their ETag and Last-Modified take in the
+ * movie's review count and when it last got a review. Streamed NDJSON searches pass straight through;
+ * they are never buffered.
+ */
+class CatalogueResponseFilter extends OncePerRequestFilter {
+
+    private static final Pattern CATALOGUE_PATHS = Pattern.compile("/movies(/search(/ranked)?|/suggest|/\\d+/details)?");
+    private static final Pattern DETAILS_PATH = Pattern.compile("/movies/(\\d+)/details");
+    // Below about one packet gzip saves little and costs a deflater
+    private static final int MIN_COMPRESSED_BYTES = 1024;
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final PageFragmentCache pageFragments;
+    private final String cacheControl;
+
+    CatalogueResponseFilter(MovieService movieService, ReviewService reviewService, PageFragmentCache pageFragments,
+                            RenderProperties properties) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.pageFragments = pageFragments;
+        this.cacheControl = CacheControl.maxAge(properties.getMaxAge()).cachePublic().getHeaderValue();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return !("GET".equals(method) || "HEAD".equals(method))
+            || !CATALOGUE_PATHS.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches()
+            || accept != null && accept.contains(MoviesController.NDJSON_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean gzip = acceptsGzip(request) && "GET".equals(request.getMethod());
+        long version = movieService.getCatalogueVersion();
+        long lastModified = movieService.getCatalogueLoadedAt();
+        String resource = resource(request);
+        Matcher details = DETAILS_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length()));
+        if (details.matches()) {
+            try {
+                long movieId = Long.parseLong(details.group(1));
+                resource += "#" + reviewService.getReviewSummary(movieId).getCount();
+                lastModified = Math.max(lastModified, reviewService.getReviewsUpdatedAt(movieId));
+            } catch (NumberFormatException e) {
+                // Too long to be an id; the controller answers it as not found
+            }
+        }
+        String etag = pageFragments.etag(version, resource, gzip);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        if (!gzip) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        PageFragmentCache.CompressedBody compressed = pageFragments.compressedBody(version, resource);
+        if (compressed != null) {
+            write(response, compressed);
+            return;
+        }
+        ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, buffered);
+        byte[] body = buffered.getContentAsByteArray();
+        if (buffered.getStatus() != HttpServletResponse.SC_OK || body.length < MIN_COMPRESSED_BYTES) {
+            // Sent as is, so it must carry the identity encoding's tag
+            response.setHeader(HttpHeaders.ETAG, pageFragments.etag(version, resource, false));
+            buffered.copyBodyToResponse();
+            return;
+        }
+        compressed = new PageFragmentCache.CompressedBody(gzip(body), buffered.getContentType());
+        pageFragments.storeCompressedBody(version, resource, compressed);
+        write(response, compressed);
+    }
+
+    /**
+     * Path and query, which together with the catalogue version pick the response body of everything
+     * but the details pages.
+     */
+    private static String resource(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return request.getRequestURI() + (query != null ? "?" + query : "");
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> values = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (values.hasMoreElements()) {
+            for (String coding : values.nextElement().split(",")) {
+                String[] parts = coding.trim().split(";");
+                if ("gzip".equalsIgnoreCase(parts[0].trim())
+                        && !(parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(HttpServletResponse response, PageFragmentCache.CompressedBody compressed) throws IOException {
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setContentType(compressed.getContentType());
+        response.setContentLength(compressed.getBytes().length);
+        response.getOutputStream().write(compressed.getBytes());
+    }
+}
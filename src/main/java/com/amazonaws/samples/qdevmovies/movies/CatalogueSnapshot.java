@@ -0,0 +1,457 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary form of movies.json and mock-reviews.json that loads without any JSON parsing.
+ *
+ * <p>Layout, big-endian: a 40 byte header ({@code int} magic, {@code int} format version, {@code int} kind,
+ * {@code int} record count, {@code long} payload length, {@code long} CRC32 of the payload, {@code long} size
+ * of the JSON it was built from, or -1 when there was none) followed by the
+ * payload: a string table ({@code int} count, then {@code int} length + UTF-8 bytes per string, length -1 for
+ * null) and fixed-width records that refer to strings by table index. Repeated strings such as directors,
+ * genres and avatars are therefore stored and decoded once.</p>
+ *
+ * <p>Files are memory-mapped for reading. A wrong magic, version, kind, length or checksum raises
+ * {@link SnapshotException} so callers can fall back to JSON. So does a snapshot built from other JSON than
+ * the one it is read beside, which keeps a stale snapshot left in target/ from serving old data: the JSON
+ * must have the size stamped in the header and must not have been modified after the snapshot. Both come
+ * from file or jar entry metadata, so checking them reads none of the JSON.</p>
+ *
+ * <p>Also a command line tool, run by the build to place snapshots next to the bundled JSON:
+ * {@code CatalogueSnapshot movies|reviews <input.json> <output.snapshot> [...]}.</p>
+ */
+public final class CatalogueSnapshot {
+
+    static final int MAGIC = 0x514D5653; // "QMVS"
+    static final int FORMAT_VERSION = 3;
+    // Format 1 had no source stamp and format 2 a CRC32 of the source; review log snapshots written in
+    // either still read, as built from no source
+    static final int OLDEST_FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 40;
+    static final long NO_SOURCE = -1L;
+
+    static final String MOVIES_RESOURCE = "movies.snapshot";
+    static final String REVIEWS_RESOURCE = "mock-reviews.snapshot";
+
+    enum Kind {
+        // Smallest record: a movie is fixed-width, a movie's reviews at least its id and review count
+        MOVIES(1, 40), REVIEWS(2, 12);
+
+        private final int code;
+        private final int minRecordBytes;
+
+        Kind(int code, int minRecordBytes) {
+            this.code = code;
+            this.minRecordBytes = minRecordBytes;
+        }
+    }
+
+    private CatalogueSnapshot() {
+    }
+
+    /**
+     * Raised when a snapshot cannot be trusted: not a snapshot, another format version, or corrupt.
+     */
+    static final class SnapshotException extends IOException {
+        SnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @return true if the file starts with the snapshot magic number, so it can be told apart from JSON
+     */
+    static boolean isSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) {
+                    return false;
+                }
+            }
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    static List<Movie> readMovies(Path path) throws IOException {
+        return decodeMovies(map(path), NO_SOURCE);
+    }
+
+    static List<Movie> readMovies(URL resource) throws IOException {
+        return readMovies(resource, null);
+    }
+
+    /**
+     * @param source The JSON the snapshot must have been built from, or null to accept any
+     */
+    static List<Movie> readMovies(URL resource, URL source) throws IOException {
+        return decodeMovies(load(resource), sourceSize(resource, source));
+    }
+
+    static Map<Long, List<Review>> readReviews(Path path) throws IOException {
+        return decodeReviews(map(path), NO_SOURCE);
+    }
+
+    static Map<Long, List<Review>> readReviews(URL resource) throws IOException {
+        return readReviews(resource, null);
+    }
+
+    /**
+     * @param source The JSON the snapshot must have been built from, or null to accept any
+     */
+    static Map<Long, List<Review>> readReviews(URL resource, URL source) throws IOException {
+        return decodeReviews(load(resource), sourceSize(resource, source));
+    }
+
+    /**
+     * Checks that the source JSON was not modified after the snapshot was written.
+     * @return Size of the source, which the snapshot header must match, or {@link #NO_SOURCE} without one
+     */
+    private static long sourceSize(URL resource, URL source) throws IOException {
+        if (source == null) {
+            return NO_SOURCE;
+        }
+        long[] snapshot = sizeAndModified(resource);
+        long[] json = sizeAndModified(source);
+        if (json[1] > snapshot[1]) {
+            throw new SnapshotException("Snapshot predates the JSON beside it, which was modified since");
+        }
+        return json[0];
+    }
+
+    /**
+     * @return Size in bytes and last-modified millis, from metadata wherever the resource allows
+     */
+    private static long[] sizeAndModified(URL resource) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                Path path = Paths.get(resource.toURI());
+                return new long[] {Files.size(path), Files.getLastModifiedTime(path).toMillis()};
+            } catch (URISyntaxException e) {
+                throw new IOException("Bad resource location " + resource, e);
+            }
+        }
+        URLConnection connection = resource.openConnection();
+        if (connection instanceof JarURLConnection) {
+            JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            if (entry != null && entry.getSize() >= 0) {
+                return new long[] {entry.getSize(), entry.getTime()};
+            }
+        }
+        // Anywhere else the size is only known by reading it all, which is what the snapshot spares us
+        try (InputStream in = connection.getInputStream()) {
+            long size = 0;
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                size += read;
+            }
+            return new long[] {size, connection.getLastModified()};
+        }
+    }
+
+    static void writeMovies(List<Movie> movies, Path target) throws IOException {
+        writeMovies(movies, target, NO_SOURCE);
+    }
+
+    /**
+     * @param sourceSize Size of the JSON the movies were read from, or {@link #NO_SOURCE}
+     */
+    static void writeMovies(List<Movie> movies, Path target, long sourceSize) throws IOException {
+        StringTable strings = new StringTable();
+        for (Movie movie : movies) {
+            strings.add(movie.getMovieName());
+            strings.add(movie.getDirector());
+            strings.add(movie.getGenre());
+            strings.add(movie.getDescription());
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        strings.writeTo(out);
+        for (Movie movie : movies) {
+            out.writeLong(movie.getId());
+            out.writeInt(strings.indexOf(movie.getMovieName()));
+            out.writeInt(strings.indexOf(movie.getDirector()));
+            out.writeInt(movie.getYear());
+            out.writeInt(strings.indexOf(movie.getGenre()));
+            out.writeInt(strings.indexOf(movie.getDescription()));
+            out.writeInt(movie.getDuration());
+            out.writeDouble(movie.getImdbRating());
+        }
+        out.flush();
+        write(target, Kind.MOVIES, movies.size(), payload.toByteArray(), sourceSize);
+    }
+
+    static void writeReviews(Map<Long, List<Review>> reviews, Path target) throws IOException {
+        writeReviews(reviews, target, NO_SOURCE);
+    }
+
+    /**
+     * @param sourceSize Size of the JSON the reviews were read from, or {@link #NO_SOURCE}
+     */
+    static void writeReviews(Map<Long, List<Review>> reviews, Path target, long sourceSize) throws IOException {
+        StringTable strings = new StringTable();
+        for (List<Review> movieReviews : reviews.values()) {
+            for (Review review : movieReviews) {
+                strings.add(review.getUserName());
+                strings.add(review.getAvatarEmoji());
+                strings.add(review.getComment());
+            }
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+        strings.writeTo(out);
+        for (Map.Entry<Long, List<Review>> entry : reviews.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Review review : entry.getValue()) {
+                out.writeInt(strings.indexOf(review.getUserName()));
+                out.writeInt(strings.indexOf(review.getAvatarEmoji()));
+                out.writeDouble(review.getRating());
+                out.writeInt(strings.indexOf(review.getComment()));
+            }
+        }
+        out.flush();
+        write(target, Kind.REVIEWS, reviews.size(), payload.toByteArray(), sourceSize);
+    }
+
+    private static void write(Path target, Kind kind, int records, byte[] payload, long sourceSize) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(kind.code).putInt(records)
+            .putLong(payload.length).putLong(crc.getValue()).putLong(sourceSize);
+
+        // Written beside the target and moved into place, so a watcher never sees half a snapshot
+        Path absolute = target.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(header.array());
+                out.write(payload);
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Maps resources that are plain files; resources inside a jar cannot be mapped and are read into memory.
+     */
+    private static ByteBuffer load(URL resource) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                return map(Paths.get(resource.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Bad snapshot location " + resource, e);
+            }
+        }
+        try (InputStream in = resource.openStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                bytes.write(chunk, 0, read);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+
+    private static List<Movie> decodeMovies(ByteBuffer buffer, long sourceSize) throws IOException {
+        int count = verify(buffer, Kind.MOVIES, sourceSize);
+        String[] strings = readStrings(buffer);
+        Movie[] movies = new Movie[count];
+        for (int i = 0; i < count; i++) {
+            long id = buffer.getLong();
+            String name = string(strings, buffer.getInt());
+            String director = string(strings, buffer.getInt());
+            int year = buffer.getInt();
+            String genre = string(strings, buffer.getInt());
+            String description = string(strings, buffer.getInt());
+            int duration = buffer.getInt();
+            double rating = buffer.getDouble();
+            movies[i] = new Movie(id, name, director, year, genre, description, duration, rating);
+        }
+        return new ArrayList<>(Arrays.asList(movies));
+    }
+
+    private static Map<Long, List<Review>> decodeReviews(ByteBuffer buffer, long sourceSize) throws IOException {
+        int count = verify(buffer, Kind.REVIEWS, sourceSize);
+        String[] strings = readStrings(buffer);
+        Map<Long, List<Review>> reviews = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            long movieId = buffer.getLong();
+            Review[] movieReviews = new Review[buffer.getInt()];
+            for (int j = 0; j < movieReviews.length; j++) {
+                String userName = string(strings, buffer.getInt());
+                String avatar = string(strings, buffer.getInt());
+                double rating = buffer.getDouble();
+                String comment = string(strings, buffer.getInt());
+                movieReviews[j] = new Review(userName, avatar, rating, comment);
+            }
+            reviews.put(movieId, Collections.unmodifiableList(Arrays.asList(movieReviews)));
+        }
+        return reviews;
+    }
+
+    /**
+     * Checks the header and payload checksum, leaving the buffer positioned at the start of the payload.
+     * @param sourceSize Size of the JSON the snapshot must have been built from, or {@link #NO_SOURCE}
+     * @return The record count from the header
+     */
+    private static int verify(ByteBuffer buffer, Kind kind, long sourceSize) throws SnapshotException {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new SnapshotException("Not a catalogue snapshot");
+        }
+        int version = buffer.getInt();
+        if (version < OLDEST_FORMAT_VERSION || version > FORMAT_VERSION) {
+            throw new SnapshotException("Snapshot format " + version + " is not supported, expected " + FORMAT_VERSION);
+        }
+        int headerBytes = version >= 2 ? HEADER_BYTES : HEADER_BYTES - 8;
+        if (buffer.remaining() < headerBytes - 8) {
+            throw new SnapshotException("Snapshot is truncated inside its " + headerBytes + " byte header");
+        }
+        int kindCode = buffer.getInt();
+        if (kindCode != kind.code) {
+            throw new SnapshotException("Snapshot holds kind " + kindCode + ", expected " + kind);
+        }
+        int count = buffer.getInt();
+        long length = buffer.getLong();
+        long checksum = buffer.getLong();
+        // Format 2 stamped a checksum rather than a size, which cannot be compared without reading the JSON
+        long builtFrom = version >= 2 ? buffer.getLong() : NO_SOURCE;
+        if (sourceSize != NO_SOURCE && (version < 3 || builtFrom != sourceSize)) {
+            throw new SnapshotException("Snapshot was built from other JSON than the one beside it");
+        }
+        if (length != buffer.remaining()) {
+            throw new SnapshotException("Snapshot is truncated: header promises " + length + " bytes, found " + buffer.remaining());
+        }
+        // The count is outside the checksum, so bound it before anything is sized by it
+        if (count < 0 || count > length / kind.minRecordBytes) {
+            throw new SnapshotException("Snapshot header promises " + count + " records, more than its " + length
+                + " bytes can hold");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if (crc.getValue() != checksum) {
+            throw new SnapshotException("Snapshot checksum mismatch");
+        }
+        return count;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                continue;
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static String string(String[] strings, int index) throws SnapshotException {
+        if (index < 0 || index >= strings.length) {
+            throw new SnapshotException("String reference " + index + " is outside the string table");
+        }
+        return strings[index];
+    }
+
+    /**
+     * Assigns each distinct string, null included, one slot in insertion order.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new LinkedHashMap<>();
+
+        void add(String value) {
+            if (!indexes.containsKey(value)) {
+                indexes.put(value, indexes.size());
+            }
+        }
+
+        int indexOf(String value) {
+            return indexes.get(value);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(indexes.size());
+            for (String value : indexes.keySet()) {
+                if (value == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 3 != 0) {
+            System.err.println("Usage: CatalogueSnapshot movies|reviews <input.json> <output.snapshot> [...]");
+            System.exit(2);
+        }
+        for (int i = 0; i < args.length; i += 3) {
+            Kind kind = Kind.valueOf(args[i].toUpperCase());
+            Path input = Paths.get(args[i + 1]);
+            Path output = Paths.get(args[i + 2]);
+            long started = System.nanoTime();
+            int records;
+            long source = Files.size(input);
+            try (InputStream in = Files.newInputStream(input)) {
+                if (kind == Kind.MOVIES) {
+                    List<Movie> movies = MovieService.readMoviesJson(in);
+                    writeMovies(movies, output, source);
+                    records = movies.size();
+                } else {
+                    Map<Long, List<Review>> reviews = ReviewService.readReviewsJson(in);
+                    writeReviews(reviews, output, source);
+                    records = reviews.size();
+                }
+            }
+            System.out.printf("Wrote %d %s from %s to %s (%d bytes) in %d ms%n", records, kind.name().toLowerCase(),
+                input, output, Files.size(output), (System.nanoTime() - started) / 1000000);
+        }
+    }
+}
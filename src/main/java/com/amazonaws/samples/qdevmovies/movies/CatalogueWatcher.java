@@ -0,0 +1,88 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one file and runs a callback on a background thread once changes to it have settled.
+ */
+final class CatalogueWatcher implements Closeable {
+    private static final Logger logger = LogManager.getLogger(CatalogueWatcher.class);
+
+    private final Path file;
+    private final long quietMillis;
+    private final Runnable onChange;
+    private WatchService watchService;
+    private Thread thread;
+
+    CatalogueWatcher(Path file, long quietMillis, Runnable onChange) {
+        this.file = file.toAbsolutePath();
+        this.quietMillis = quietMillis;
+        this.onChange = onChange;
+    }
+
+    void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::run, "catalogue-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching catalogue file {}", file);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (!isOurFile(watchService.take())) {
+                    continue;
+                }
+                // Editors and copy tools fire several events per save; wait until the file goes quiet
+                WatchKey next;
+                while ((next = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                    isOurFile(next);
+                }
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    logger.error("Catalogue reload failed: {}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Stopped watching {}", file);
+        }
+    }
+
+    private boolean isOurFile(WatchKey key) {
+        boolean ours = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (file.getFileName().equals(event.context())) {
+                ours = true;
+            }
+        }
+        key.reset();
+        return ours;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
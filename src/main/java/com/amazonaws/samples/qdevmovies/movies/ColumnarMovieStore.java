@@ -0,0 +1,237 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.Utf8Column;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Read-only movie list that keeps every attribute in columns instead of one object per movie.
+ * Numbers live in primitive arrays; strings are deduplicated into a dictionary whose UTF-8 bytes
+ * sit in a single off-heap arena, so the heap holds a handful of arrays however large the catalogue.
+ * {@link #get(int)} hands out a throwaway {@link Movie} view over one row, which is what templates
+ * and JSON serialization see; each view decodes a string the first time it is asked for it.
+ * Sorting and indexing read the primitive columns and the arena's bytes instead, so they decode nothing:
+ * the name index searches {@link #lowerCaseNames()} in place.
+ */
+final class ColumnarMovieStore extends AbstractList<Movie> implements RandomAccess {
+
+    private final long[] ids;
+    private final int[] years;
+    private final int[] durations;
+    private final double[] ratings;
+    private final Utf8Column names;
+    private final Utf8Column lowerCaseNames;
+    private final Utf8Column directors;
+    private final Utf8Column descriptions;
+    // Genres and icons are few and read on every card, so they stay on the heap and are handed out without decoding
+    private final String[] genreTable;
+    private final int[] genreCodes;
+    private final String[] iconTable;
+    private final int[] iconCodes;
+    private final int[] stringOffsets;
+    private final ByteBuffer arena;
+
+    private ColumnarMovieStore(List<Movie> movies) {
+        int n = movies.size();
+        this.ids = new long[n];
+        this.years = new int[n];
+        this.durations = new int[n];
+        this.ratings = new double[n];
+        int[] nameCodes = new int[n];
+        int[] lowerCaseNameCodes = new int[n];
+        int[] directorCodes = new int[n];
+        int[] descriptionCodes = new int[n];
+        this.genreCodes = new int[n];
+        this.iconCodes = new int[n];
+
+        Dictionary dictionary = new Dictionary();
+        Map<String, Integer> genres = new HashMap<>();
+        Map<String, Integer> icons = new HashMap<>();
+        for (int row = 0; row < n; row++) {
+            Movie movie = movies.get(row);
+            ids[row] = movie.getId();
+            years[row] = movie.getYear();
+            durations[row] = movie.getDuration();
+            ratings[row] = movie.getImdbRating();
+            String name = movie.getMovieName();
+            nameCodes[row] = dictionary.encode(name);
+            // Lowercased like the name index's own keys; most titles share no bytes with their capitalised form
+            lowerCaseNameCodes[row] = dictionary.encode(name == null ? "" : name.toLowerCase());
+            directorCodes[row] = dictionary.encode(movie.getDirector());
+            descriptionCodes[row] = dictionary.encode(movie.getDescription());
+            genreCodes[row] = genres.computeIfAbsent(movie.getGenre(), genre -> genres.size());
+            iconCodes[row] = icons.computeIfAbsent(movie.getIcon(), icon -> icons.size());
+        }
+        this.genreTable = table(genres);
+        this.iconTable = table(icons);
+        this.stringOffsets = Arrays.copyOf(dictionary.offsets, dictionary.size + 1);
+        this.arena = ByteBuffer.allocateDirect(dictionary.length);
+        arena.put(dictionary.bytes, 0, dictionary.length);
+        this.names = new Utf8Column(arena, stringOffsets, nameCodes);
+        this.lowerCaseNames = new Utf8Column(arena, stringOffsets, lowerCaseNameCodes);
+        this.directors = new Utf8Column(arena, stringOffsets, directorCodes);
+        this.descriptions = new Utf8Column(arena, stringOffsets, descriptionCodes);
+    }
+
+    private static String[] table(Map<String, Integer> codes) {
+        String[] table = new String[codes.size()];
+        for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+            table[entry.getValue()] = entry.getKey();
+        }
+        return table;
+    }
+
+    /**
+     * @param movies The movies to copy into columns, in catalogue order
+     */
+    static ColumnarMovieStore of(List<Movie> movies) {
+        return movies instanceof ColumnarMovieStore ? (ColumnarMovieStore) movies : new ColumnarMovieStore(movies);
+    }
+
+    @Override
+    public Movie get(int row) {
+        if (row < 0 || row >= ids.length) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + ids.length);
+        }
+        return new MovieView(this, row);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return Bytes held outside the heap by the string arena
+     */
+    int offHeapBytes() {
+        return arena.capacity();
+    }
+
+    /**
+     * @return Number of distinct strings in the dictionary
+     */
+    int distinctStrings() {
+        return stringOffsets.length - 1;
+    }
+
+    /**
+     * @return Every movie name lowercased, one row per movie, read straight from the arena
+     */
+    Utf8Column lowerCaseNames() {
+        return lowerCaseNames;
+    }
+
+    /**
+     * Flyweight over one row; carries the store, the row number and whichever strings were asked for.
+     */
+    private static final class MovieView extends Movie {
+        private final ColumnarMovieStore store;
+        private final int row;
+        // A card reads its name and director more than once, so each is decoded at most once per view
+        private String name;
+        private String director;
+        private String description;
+
+        MovieView(ColumnarMovieStore store, int row) {
+            super(0L, null, null, 0, null, null, 0, 0.0);
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override
+        public long getId() {
+            return store.ids[row];
+        }
+
+        @Override
+        public String getMovieName() {
+            if (name == null) {
+                name = store.names.get(row);
+            }
+            return name;
+        }
+
+        @Override
+        public String getDirector() {
+            if (director == null) {
+                director = store.directors.get(row);
+            }
+            return director;
+        }
+
+        @Override
+        public int getYear() {
+            return store.years[row];
+        }
+
+        @Override
+        public String getGenre() {
+            return store.genreTable[store.genreCodes[row]];
+        }
+
+        @Override
+        public String getDescription() {
+            if (description == null) {
+                description = store.descriptions.get(row);
+            }
+            return description;
+        }
+
+        @Override
+        public int getDuration() {
+            return store.durations[row];
+        }
+
+        @Override
+        public double getImdbRating() {
+            return store.ratings[row];
+        }
+
+        @Override
+        public String getIcon() {
+            return store.iconTable[store.iconCodes[row]];
+        }
+    }
+
+    /**
+     * Assigns each distinct string a code and appends its bytes once; null is encoded as -1.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private byte[] bytes = new byte[4096];
+        private int[] offsets = new int[256];
+        private int size;
+        private int length;
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (length + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + encoded.length));
+            }
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size] = length;
+            length += encoded.length;
+            offsets[size + 1] = length;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+}
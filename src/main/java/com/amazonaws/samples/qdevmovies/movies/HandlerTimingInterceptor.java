@@ -0,0 +1,56 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Splits each request's time between the controller method and view rendering.
+ * {@code postHandle} runs after the handler returns but before the view renders, and
+ * {@code afterCompletion} once rendering is done, so the two spans never overlap.
+ */
+class HandlerTimingInterceptor implements HandlerInterceptor {
+
+    private static final String STARTED = HandlerTimingInterceptor.class.getName() + ".started";
+    private static final String HANDLED = HandlerTimingInterceptor.class.getName() + ".handled";
+
+    private final MovieMetrics metrics;
+
+    HandlerTimingInterceptor(MovieMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        Object started = request.getAttribute(STARTED);
+        if (started instanceof Long && handler instanceof HandlerMethod) {
+            long now = System.nanoTime();
+            metrics.recordHandler(name(handler), now - (Long) started);
+            if (modelAndView != null && modelAndView.hasView()) {
+                request.setAttribute(HANDLED, now);
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object handled = request.getAttribute(HANDLED);
+        if (handled instanceof Long) {
+            metrics.recordRender(name(handler), System.nanoTime() - (Long) handled);
+        }
+    }
+
+    private static String name(Object handler) {
+        return ((HandlerMethod) handler).getMethod().getName();
+    }
+}
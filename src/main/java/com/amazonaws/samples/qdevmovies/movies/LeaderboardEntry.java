@@ -0,0 +1,47 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Comparator;
+
+/**
+ * One place on a leaderboard: the movie and the score it is ranked by.
+ */
+public class LeaderboardEntry {
+
+    /** Highest score first, then the score backed by more reviews, then ascending id */
+    static final Comparator<LeaderboardEntry> ORDER = (left, right) -> {
+        int byScore = Double.compare(right.score, left.score);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byCount = Integer.compare(right.reviewCount, left.reviewCount);
+        return byCount != 0 ? byCount : Long.compare(left.movie.getId(), right.movie.getId());
+    };
+
+    private final Movie movie;
+    private final double score;
+    private final int reviewCount;
+
+    public LeaderboardEntry(Movie movie, double score, int reviewCount) {
+        this.movie = movie;
+        this.score = score;
+        this.reviewCount = reviewCount;
+    }
+
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /**
+     * @return IMDb rating on the rating boards, average review rating on the review boards
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * @return Reviews behind the score; 0 on the rating boards
+     */
+    public int getReviewCount() {
+        return reviewCount;
+    }
+}
@@ -0,0 +1,94 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Naming of leaderboard groups, and the IMDb rating boards built with each catalogue.
+ * <p>
+ * Every movie is on the overall board, on one board per part of its genre ("Crime/Drama" counts for both
+ * crime and drama) and on the board of its decade. Boards are published as ready-made lists of the top
+ * {@value #SIZE}, so answering for any group costs a map lookup and a sublist.
+ */
+final class Leaderboards {
+
+    /** Entries kept per board, and the most a single request can ask for */
+    static final int SIZE = 100;
+    static final String ALL = "all";
+
+    private Leaderboards() {
+    }
+
+    /**
+     * @return Group of the genre's board; case and surrounding spaces do not matter
+     */
+    static String genreGroup(String genre) {
+        return "genre:" + genre.trim().toLowerCase();
+    }
+
+    /**
+     * @param decade First year of the decade, e.g. 1990
+     */
+    static String decadeGroup(int decade) {
+        return "decade:" + decade;
+    }
+
+    static int decadeOf(int year) {
+        return Math.floorDiv(year, 10) * 10;
+    }
+
+    /**
+     * @return Every group the movie is ranked in, without duplicates
+     */
+    static Set<String> groupsOf(Movie movie) {
+        Set<String> groups = new LinkedHashSet<>();
+        groups.add(ALL);
+        if (movie.getGenre() != null) {
+            for (String part : movie.getGenre().split("/")) {
+                if (!part.trim().isEmpty()) {
+                    groups.add(genreGroup(part));
+                }
+            }
+        }
+        groups.add(decadeGroup(decadeOf(movie.getYear())));
+        return groups;
+    }
+
+    /**
+     * Fills every board in one pass over the catalogue in rating order, so each board simply takes the
+     * first movies of its group that come along.
+     * @param ratingOrder Catalogue positions sorted by {@link MovieSort#RATING}
+     */
+    static Map<String, List<LeaderboardEntry>> byImdbRating(List<Movie> movies, int[] ratingOrder) {
+        Map<String, List<LeaderboardEntry>> boards = new HashMap<>();
+        for (int pos : ratingOrder) {
+            Movie movie = movies.get(pos);
+            for (String group : groupsOf(movie)) {
+                List<LeaderboardEntry> board = boards.computeIfAbsent(group, g -> new ArrayList<>());
+                if (board.size() < SIZE) {
+                    board.add(new LeaderboardEntry(movie, movie.getImdbRating(), 0));
+                }
+            }
+        }
+        for (Map.Entry<String, List<LeaderboardEntry>> board : boards.entrySet()) {
+            board.setValue(Collections.unmodifiableList(board.getValue()));
+        }
+        return boards;
+    }
+
+    /**
+     * @return The first {@code limit} entries of the board, or an empty list for an unknown group
+     */
+    static List<LeaderboardEntry> top(Map<String, List<LeaderboardEntry>> boards, String group, int limit) {
+        List<LeaderboardEntry> board = boards.get(group);
+        if (board == null) {
+            return Collections.emptyList();
+        }
+        return board.subList(0, Math.min(board.size(), Math.max(0, limit)));
+    }
+}
@@ -12,8 +12,17 @@ public class Movie {
     private final String description;
     private final int duration;
     private final double imdbRating;
+    private final String icon;
 
     public Movie(long id, String movieName, String director, int year, String genre, String description, int duration, double imdbRating) {
+        this(id, movieName, director, year, genre, description, duration, imdbRating, null);
+    }
+
+    /**
+     * @param icon The icon resolved when the catalogue was loaded; null to look it up on each {@link #getIcon()}
+     */
+    public Movie(long id, String movieName, String director, int year, String genre, String description, int duration,
+                 double imdbRating, String icon) {
         this.id = id;
         this.movieName = movieName;
         this.director = director;
@@ -22,6 +31,7 @@ public class Movie {
         this.description = description;
         this.duration = duration;
         this.imdbRating = imdbRating;
+        this.icon = icon;
     }
 
     public long getId() {
@@ -57,6 +67,14 @@ public class Movie {
     }
 
     public String getIcon() {
-        return MovieIconUtils.getMovieIcon(this.movieName);
+        return icon != null ? icon : MovieIconUtils.getMovieIcon(getMovieName(), getGenre());
+    }
+
+    /**
+     * @return A copy of this movie carrying the given icon
+     */
+    Movie withIcon(String icon) {
+        return new Movie(getId(), getMovieName(), getDirector(), getYear(), getGenre(), getDescription(), getDuration(),
+            getImdbRating(), icon);
     }
 }
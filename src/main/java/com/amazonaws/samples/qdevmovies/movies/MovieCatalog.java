@@ -0,0 +1,487 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.AutocompleteIndex;
+import com.amazonaws.samples.qdevmovies.utils.FullTextIndex;
+import com.amazonaws.samples.qdevmovies.utils.HnswIndex;
+import com.amazonaws.samples.qdevmovies.utils.PositionSort;
+import com.amazonaws.samples.qdevmovies.utils.RangeIndex;
+import com.amazonaws.samples.qdevmovies.utils.TrigramIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Immutable view of the loaded movies together with every index derived from them.
+ * Positions used by the indexes are offsets into {@link #getMovies()}, which keeps file order.
+ */
+final class MovieCatalog {
+    private static final Logger logger = LogManager.getLogger(MovieCatalog.class);
+
+    // Name, director, genre, description: a word in the title says far more about a movie than one in its blurb
+    private static final float[] TEXT_FIELD_WEIGHTS = {3.0f, 2.0f, 1.5f, 1.0f};
+    // Similar titles: links per node and beam widths while building and looking up, wider finds more true neighbours
+    private static final int SIMILAR_LINKS = 16;
+    private static final int SIMILAR_EF_CONSTRUCTION = 64;
+    private static final int SIMILAR_EF_SEARCH = 64;
+    // Larger catalogues get their similar-titles graph in the background: at 1M titles it takes minutes
+    static final int SIMILAR_INLINE_LIMIT = 5_000;
+    // One graph at a time, so a reload waits behind the build it replaces rather than racing it for the CPU
+    private static final ExecutorService SIMILAR_BUILDER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "similar-index-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long version;
+    private final long loadedAt;
+    private final List<Movie> movies;
+    private final MovieIdIndex idIndex;
+    private final TrigramIndex nameIndex;
+    private final FullTextIndex textIndex;
+    private final AutocompleteIndex titleIndex;
+    private final List<String> genres;
+    private final Map<String, Integer> genreCounts;
+    private final Map<String, int[]> genrePostings;
+    private final String[] lowerCaseGenres;
+    private final Map<String, BitSet> genreMatches;
+    private final String[] lowerCaseDirectors;
+    private final int[][] directorPostings;
+    private final TrigramIndex directorIndex;
+    private final RangeIndex yearIndex;
+    private final RangeIndex durationIndex;
+    private final RangeIndex ratingIndex;
+    private final Map<MovieSort, int[]> orders;
+    private final Map<MovieSort, int[]> ranks;
+    private final Map<String, List<LeaderboardEntry>> ratingBoards;
+    private final CompletableFuture<HnswIndex> similarIndex;
+    private volatile boolean retired;
+
+    MovieCatalog(List<Movie> movies, long version) {
+        this.version = version;
+        this.loadedAt = System.currentTimeMillis();
+        // Columnar stores are already immutable, and copying one would materialise a view per movie
+        this.movies = movies instanceof ColumnarMovieStore ? movies : Collections.unmodifiableList(new ArrayList<>(movies));
+        long[] ids = new long[movies.size()];
+        String[] names = new String[movies.size()];
+        String[][] text = new String[movies.size()][];
+        double[] years = new double[movies.size()];
+        double[] durations = new double[movies.size()];
+        double[] ratings = new double[movies.size()];
+        double[][] sortKeys = new double[MovieSort.values().length][movies.size()];
+        Map<String, List<Integer>> positionsByGenre = new TreeMap<>();
+        Map<String, List<Integer>> positionsByDirector = new HashMap<>();
+        for (int pos = 0; pos < movies.size(); pos++) {
+            Movie movie = movies.get(pos);
+            ids[pos] = movie.getId();
+            names[pos] = movie.getMovieName();
+            text[pos] = new String[] {movie.getMovieName(), movie.getDirector(), movie.getGenre(), movie.getDescription()};
+            years[pos] = movie.getYear();
+            durations[pos] = movie.getDuration();
+            ratings[pos] = movie.getImdbRating();
+            for (MovieSort sort : MovieSort.values()) {
+                sortKeys[sort.ordinal()][pos] = sort.key(movie);
+            }
+            positionsByGenre.computeIfAbsent(movie.getGenre(), g -> new ArrayList<>()).add(pos);
+            positionsByDirector.computeIfAbsent(String.valueOf(movie.getDirector()).toLowerCase(), d -> new ArrayList<>()).add(pos);
+        }
+        this.idIndex = MovieIdIndex.build(ids);
+        // A columnar store already holds the lowercased names in its arena, so the index points there
+        this.nameIndex = movies instanceof ColumnarMovieStore
+            ? new TrigramIndex(((ColumnarMovieStore) movies).lowerCaseNames())
+            : new TrigramIndex(names);
+        this.textIndex = new FullTextIndex(text, TEXT_FIELD_WEIGHTS);
+
+        // Genre vocabulary is tiny next to the catalogue, so filters resolve against it rather than against movies
+        this.genres = Collections.unmodifiableList(new ArrayList<>(positionsByGenre.keySet()));
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        this.genrePostings = new HashMap<>();
+        this.lowerCaseGenres = new String[genres.size()];
+        for (int i = 0; i < genres.size(); i++) {
+            String genre = genres.get(i);
+            int[] posting = toArray(positionsByGenre.get(genre));
+            genrePostings.put(genre, posting);
+            counts.put(genre, posting.length);
+            lowerCaseGenres[i] = genre.toLowerCase();
+        }
+        this.genreCounts = Collections.unmodifiableMap(counts);
+
+        // Precompute the partial-match result of every dropdown value so picking a genre is a single lookup
+        this.genreMatches = new HashMap<>();
+        for (String genre : genres) {
+            String query = genre.toLowerCase().trim();
+            if (!query.isEmpty() && !genreMatches.containsKey(query)) {
+                genreMatches.put(query, resolveGenre(query));
+            }
+        }
+
+        // Directors repeat across movies too, so partial matches are found among the distinct names first
+        this.lowerCaseDirectors = positionsByDirector.keySet().toArray(new String[0]);
+        this.directorPostings = new int[lowerCaseDirectors.length][];
+        for (int i = 0; i < lowerCaseDirectors.length; i++) {
+            directorPostings[i] = toArray(positionsByDirector.get(lowerCaseDirectors[i]));
+        }
+        this.directorIndex = new TrigramIndex(lowerCaseDirectors);
+
+        // Numeric columns sorted by value, so any range filter is two binary searches away
+        this.yearIndex = new RangeIndex(years);
+        this.durationIndex = new RangeIndex(durations);
+        this.ratingIndex = new RangeIndex(ratings);
+
+        // Each ordering is kept as positions in sort order plus the inverse (position -> rank) for sparse result sets.
+        // Positions are sorted on the key and id columns gathered above, never through a movie per comparison.
+        this.orders = new EnumMap<>(MovieSort.class);
+        this.ranks = new EnumMap<>(MovieSort.class);
+        for (MovieSort sort : MovieSort.values()) {
+            double[] keys = sortKeys[sort.ordinal()];
+            int[] order = PositionSort.sorted(ids.length, (a, b) -> sort.compare(keys[a], ids[a], keys[b], ids[b]));
+            int[] rank = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                rank[order[i]] = i;
+            }
+            orders.put(sort, order);
+            ranks.put(sort, rank);
+        }
+
+        // Suggestions favour the best rated titles, like a "top results" dropdown would
+        this.titleIndex = new AutocompleteIndex(names, ranks.get(MovieSort.RATING));
+
+        this.ratingBoards = Leaderboards.byImdbRating(this.movies, orders.get(MovieSort.RATING));
+
+        // Neighbours are found through a graph built once per catalogue, so no lookup ever compares against every movie
+        if (movies.size() <= SIMILAR_INLINE_LIMIT) {
+            this.similarIndex = CompletableFuture.completedFuture(buildSimilarIndex());
+        } else {
+            this.similarIndex = CompletableFuture.supplyAsync(this::buildSimilarIndex, SIMILAR_BUILDER);
+            similarIndex.whenComplete((index, failure) -> {
+                if (failure == null) {
+                    logger.info("Similar titles ready for catalogue version {} after {} ms", version,
+                        System.currentTimeMillis() - loadedAt);
+                } else if (!(failure.getCause() instanceof CancellationException)) {
+                    logger.error("Blimey! Similar titles for catalogue version {} could not be charted: {}", version,
+                        failure.getMessage());
+                }
+            });
+        }
+    }
+
+    private HnswIndex buildSimilarIndex() {
+        return new HnswIndex(MovieFeatures.of(movies), MovieFeatures.DIMENSIONS, SIMILAR_LINKS,
+            SIMILAR_EF_CONSTRUCTION, SIMILAR_EF_SEARCH, () -> retired);
+    }
+
+    /**
+     * Marks this snapshot as replaced, so a similar-titles graph still being built for it is abandoned.
+     */
+    void retire() {
+        retired = true;
+    }
+
+    /**
+     * Waits for the similar-titles graph, which large catalogues build in the background.
+     * @return true once it is ready, false if it is still building or could not be built
+     */
+    boolean awaitSimilarIndex(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            similarIndex.get(timeout, unit);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Epoch millis at which this snapshot was built
+     */
+    long getLoadedAt() {
+        return loadedAt;
+    }
+
+    List<Movie> getMovies() {
+        return movies;
+    }
+
+    int size() {
+        return movies.size();
+    }
+
+    /**
+     * @return The best rated movies of the group, at most {@link Leaderboards#SIZE}
+     */
+    List<LeaderboardEntry> topRated(String group, int limit) {
+        return Leaderboards.top(ratingBoards, group, limit);
+    }
+
+    Movie getMovie(long id) {
+        int pos = idIndex.positionOf(id);
+        return pos != MovieIdIndex.ABSENT ? movies.get(pos) : null;
+    }
+
+    /**
+     * @return Distinct genres in natural order
+     */
+    List<String> getGenres() {
+        return genres;
+    }
+
+    /**
+     * @return Number of movies per exact genre, iterating in the same order as {@link #getGenres()}
+     */
+    Map<String, Integer> getGenreCounts() {
+        return genreCounts;
+    }
+
+    /**
+     * @return Movies whose genre equals the given value exactly, in catalogue order
+     */
+    List<Movie> getMoviesWithGenre(String genre) {
+        int[] posting = genre != null ? genrePostings.get(genre) : null;
+        if (posting == null) {
+            return Collections.emptyList();
+        }
+        List<Movie> result = new ArrayList<>(posting.length);
+        for (int pos : posting) {
+            result.add(movies.get(pos));
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the search criteria to the set of matching positions.
+     * Blank name/genre and non-positive ids mean "no filter", like the original stream filters.
+     */
+    BitSet match(String name, Long id, String genre) {
+        return match(MovieFilter.of(name, id, genre));
+    }
+
+    /**
+     * Resolves every criterion of the filter to a set of positions and intersects them, the most selective
+     * lookups first so the later range checks only have a few candidates left to look at.
+     */
+    BitSet match(MovieFilter filter) {
+        BitSet result = new BitSet(movies.size());
+        if (filter.getId() != null) {
+            int pos = idIndex.positionOf(filter.getId());
+            if (pos == MovieIdIndex.ABSENT) {
+                return result;
+            }
+            result.set(pos);
+        } else {
+            result.set(0, movies.size());
+        }
+
+        if (filter.getName() != null && !result.isEmpty()) {
+            result.and(nameIndex.search(filter.getName()));
+        }
+        if (filter.getGenre() != null && !result.isEmpty()) {
+            BitSet genreMatch = genreMatches.get(filter.getGenre());
+            result.and(genreMatch != null ? genreMatch : resolveGenre(filter.getGenre()));
+        }
+        if (filter.getDirector() != null && !result.isEmpty()) {
+            result.and(resolveDirector(filter.getDirector()));
+        }
+        if ((filter.getMinYear() != null || filter.getMaxYear() != null) && !result.isEmpty()) {
+            yearIndex.retain(result, lowerBound(filter.getMinYear()), upperBound(filter.getMaxYear()));
+        }
+        if ((filter.getMinDuration() != null || filter.getMaxDuration() != null) && !result.isEmpty()) {
+            durationIndex.retain(result, lowerBound(filter.getMinDuration()), upperBound(filter.getMaxDuration()));
+        }
+        if (filter.getMinRating() != null && !result.isEmpty()) {
+            ratingIndex.retain(result, filter.getMinRating(), Double.POSITIVE_INFINITY);
+        }
+        return result;
+    }
+
+    /**
+     * Ranks movies by relevance of their name, director, genre and description to free text.
+     * @return Up to {@code limit} movies, most relevant first
+     */
+    List<ScoredMovie> rank(String query, int limit) {
+        List<FullTextIndex.Hit> hits = textIndex.search(query, limit);
+        List<ScoredMovie> ranked = new ArrayList<>(hits.size());
+        for (FullTextIndex.Hit hit : hits) {
+            ranked.add(new ScoredMovie(movies.get(hit.getPosition()), hit.getScore()));
+        }
+        return ranked;
+    }
+
+    /**
+     * Finds the movies most like the given one by genre, director, era, length, rating and description.
+     * @return Up to {@code limit} other movies with something in common, most similar first; empty for an unknown
+     *     id and while the graph is still being built
+     */
+    List<ScoredMovie> similar(long id, int limit) {
+        int pos = idIndex.positionOf(id);
+        HnswIndex index = similarIndex.isCompletedExceptionally() ? null : similarIndex.getNow(null);
+        if (pos == MovieIdIndex.ABSENT || index == null) {
+            return Collections.emptyList();
+        }
+        List<HnswIndex.Neighbour> neighbours = index.nearest(pos, limit);
+        List<ScoredMovie> similar = new ArrayList<>(neighbours.size());
+        for (HnswIndex.Neighbour neighbour : neighbours) {
+            if (neighbour.getSimilarity() <= 0f) {
+                // Sorted, so everything after this shares nothing either
+                break;
+            }
+            similar.add(new ScoredMovie(movies.get(neighbour.getPosition()), neighbour.getSimilarity()));
+        }
+        return similar;
+    }
+
+    /**
+     * Completes a partly typed title, allowing for typos.
+     * @return Up to {@code limit} suggestions, exact prefix matches first, best rated first within each kind
+     */
+    List<MovieSuggestion> suggest(String query, int limit) {
+        List<AutocompleteIndex.Suggestion> matches = titleIndex.suggest(query, limit);
+        List<MovieSuggestion> suggestions = new ArrayList<>(matches.size());
+        for (AutocompleteIndex.Suggestion match : matches) {
+            suggestions.add(new MovieSuggestion(movies.get(match.getPosition()), match.isPrefix()));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Walks one ordering from just after the cursor and collects up to {@code pageSize} matching movies.
+     * The total is the cardinality of the match set, so no result list beyond the page is ever built.
+     */
+    MoviePage page(BitSet matches, MovieSort sort, MovieCursor after, int pageSize) {
+        int[] order = orders.get(sort);
+        int start = after == null ? 0 : firstIndexAfter(order, after);
+        int totalCount = matches.cardinality();
+        List<Movie> page = new ArrayList<>(Math.min(pageSize, totalCount));
+        boolean more = false;
+
+        if ((long) totalCount * 16 < order.length) {
+            // Few matches: sort their ranks instead of scanning the whole ordering
+            int[] rank = ranks.get(sort);
+            int[] matchedRanks = new int[totalCount];
+            int n = 0;
+            for (int pos = matches.nextSetBit(0); pos >= 0; pos = matches.nextSetBit(pos + 1)) {
+                matchedRanks[n++] = rank[pos];
+            }
+            Arrays.sort(matchedRanks);
+            int i = Arrays.binarySearch(matchedRanks, start);
+            for (i = i >= 0 ? i : -i - 1; i < n; i++) {
+                if (page.size() == pageSize) {
+                    more = true;
+                    break;
+                }
+                page.add(movies.get(order[matchedRanks[i]]));
+            }
+        } else {
+            for (int i = start; i < order.length; i++) {
+                if (matches.get(order[i])) {
+                    if (page.size() == pageSize) {
+                        more = true;
+                        break;
+                    }
+                    page.add(movies.get(order[i]));
+                }
+            }
+        }
+
+        String nextCursor = more ? MovieCursor.after(sort, page.get(page.size() - 1)).encode() : null;
+        return new MoviePage(page, totalCount, pageSize, sort, nextCursor);
+    }
+
+    /**
+     * Hands every matching movie to the consumer in the given order, without collecting them first.
+     * @return Number of movies handed over
+     */
+    int forEach(BitSet matches, MovieSort sort, Consumer<? super Movie> consumer) {
+        int[] order = orders.get(sort);
+        int count = 0;
+        for (int pos : order) {
+            if (matches.get(pos)) {
+                consumer.accept(movies.get(pos));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int firstIndexAfter(int[] order, MovieCursor cursor) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cursor.compareTo(movies.get(order[mid])) >= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private BitSet resolveGenre(String query) {
+        BitSet matches = new BitSet(movies.size());
+        for (int i = 0; i < lowerCaseGenres.length; i++) {
+            if (lowerCaseGenres[i].contains(query)) {
+                for (int pos : genrePostings.get(genres.get(i))) {
+                    matches.set(pos);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private BitSet resolveDirector(String query) {
+        BitSet matches = new BitSet(movies.size());
+        BitSet directors = directorIndex.search(query);
+        for (int i = directors.nextSetBit(0); i >= 0; i = directors.nextSetBit(i + 1)) {
+            for (int pos : directorPostings[i]) {
+                matches.set(pos);
+            }
+        }
+        return matches;
+    }
+
+    private static double lowerBound(Integer min) {
+        return min != null ? min : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double upperBound(Integer max) {
+        return max != null ? max : Double.POSITIVE_INFINITY;
+    }
+
+    private static int[] toArray(List<Integer> positions) {
+        int[] array = new int[positions.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = positions.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * @return The trimmed, lower-cased filter value, or null when blank and so not a filter at all
+     */
+    static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.toLowerCase().trim();
+    }
+}
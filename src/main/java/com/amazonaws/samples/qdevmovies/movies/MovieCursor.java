@@ -0,0 +1,63 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position inside one {@link MovieSort} ordering: the sort key and id of the last movie on a page.
+ * Encoded as an opaque URL-safe token so clients just hand back what they were given.
+ */
+final class MovieCursor {
+
+    private final MovieSort sort;
+    private final double key;
+    private final long id;
+
+    MovieCursor(MovieSort sort, double key, long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    static MovieCursor after(MovieSort sort, Movie movie) {
+        return new MovieCursor(sort, sort.key(movie), movie.getId());
+    }
+
+    MovieSort getSort() {
+        return sort;
+    }
+
+    /**
+     * @return Negative if this cursor sorts before the movie, zero if it points at it, positive if after it
+     */
+    int compareTo(Movie movie) {
+        return sort.compare(key, id, sort.key(movie), movie.getId());
+    }
+
+    String encode() {
+        String raw = sort.getParameter() + ":" + key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token A token produced by {@link #encode()}
+     * @param sort The ordering of the request the token is used with
+     * @throws IllegalArgumentException if the token is malformed or belongs to another ordering
+     */
+    static MovieCursor decode(String token, MovieSort sort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        if (parts.length != 3 || !sort.getParameter().equals(parts[0])) {
+            throw new IllegalArgumentException("Cursor does not belong to sort order " + sort.getParameter());
+        }
+        try {
+            return new MovieCursor(sort, Double.parseDouble(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
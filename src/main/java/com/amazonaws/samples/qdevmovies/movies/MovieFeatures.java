@@ -0,0 +1,184 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.FullTextIndex;
+import com.amazonaws.samples.qdevmovies.utils.HnswIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Feature vectors behind "similar titles": one unit vector per catalogue position, quantized for {@link HnswIndex}.
+ * <p>
+ * Each attribute has its own block of components and a fixed share of the cosine, genres the largest.
+ * Genres, the director and description terms are hashed into their blocks with a random sign, so the
+ * width stays {@value #DIMENSIONS} however large the vocabulary; terms are weighted by idf, and terms
+ * found in a single description are dropped since they can only add collisions. Year, duration and
+ * rating are spread over a few buckets with linear interpolation, so nearby values still overlap.
+ */
+final class MovieFeatures {
+
+    static final int DIMENSIONS = 64;
+
+    private static final Block GENRE = new Block(0, 16, 0.35f);
+    private static final Block TERMS = new Block(16, 24, 0.25f);
+    private static final Block DIRECTOR = new Block(40, 12, 0.15f);
+    private static final Block YEAR = new Block(52, 6, 0.12f);
+    private static final Block DURATION = new Block(58, 3, 0.07f);
+    private static final Block RATING = new Block(61, 3, 0.06f);
+
+    private MovieFeatures() {
+    }
+
+    /**
+     * @return {@code movies.size() * DIMENSIONS} quantized components, in catalogue order
+     */
+    static byte[] of(List<Movie> movies) {
+        // First pass: value ranges for the buckets and in how many descriptions each term appears
+        double[] years = {Double.MAX_VALUE, -Double.MAX_VALUE};
+        double[] durations = {Double.MAX_VALUE, -Double.MAX_VALUE};
+        double[] ratings = {Double.MAX_VALUE, -Double.MAX_VALUE};
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        Set<String> terms = new HashSet<>();
+        for (Movie movie : movies) {
+            widen(years, movie.getYear());
+            widen(durations, movie.getDuration());
+            widen(ratings, movie.getImdbRating());
+            terms(movie.getDescription(), words, terms);
+            for (String term : terms) {
+                documentFrequencies.merge(term, 1, Integer::sum);
+            }
+        }
+
+        byte[] vectors = new byte[movies.size() * DIMENSIONS];
+        float[] vector = new float[DIMENSIONS];
+        for (int pos = 0; pos < movies.size(); pos++) {
+            Movie movie = movies.get(pos);
+            Arrays.fill(vector, 0f);
+            if (movie.getGenre() != null) {
+                for (String part : movie.getGenre().split("/")) {
+                    if (!part.trim().isEmpty()) {
+                        GENRE.hash(vector, "g:" + part.trim().toLowerCase(), 1f);
+                    }
+                }
+            }
+            GENRE.normalize(vector);
+
+            terms(movie.getDescription(), words, terms);
+            for (String term : terms) {
+                int frequency = documentFrequencies.get(term);
+                if (frequency > 1) {
+                    TERMS.hash(vector, "t:" + term, (float) Math.log((double) movies.size() / frequency));
+                }
+            }
+            TERMS.normalize(vector);
+
+            if (movie.getDirector() != null && !movie.getDirector().trim().isEmpty()) {
+                DIRECTOR.hash(vector, "d:" + movie.getDirector().trim().toLowerCase(), 1f);
+            }
+            DIRECTOR.normalize(vector);
+
+            YEAR.bucket(vector, movie.getYear(), years);
+            DURATION.bucket(vector, movie.getDuration(), durations);
+            RATING.bucket(vector, movie.getImdbRating(), ratings);
+
+            // Blocks without features (no director, no shared terms) leave the others a larger share
+            float norm = 0f;
+            for (float component : vector) {
+                norm += component * component;
+            }
+            if (norm > 0f) {
+                float scale = (float) (1 / Math.sqrt(norm));
+                for (int i = 0; i < DIMENSIONS; i++) {
+                    vector[i] *= scale;
+                }
+            }
+            HnswIndex.quantize(vector, vectors, pos * DIMENSIONS);
+        }
+        return vectors;
+    }
+
+    private static void widen(double[] range, double value) {
+        range[0] = Math.min(range[0], value);
+        range[1] = Math.max(range[1], value);
+    }
+
+    private static void terms(String description, List<String> words, Set<String> terms) {
+        words.clear();
+        terms.clear();
+        FullTextIndex.tokenize(description, words);
+        for (String word : words) {
+            terms.add(FullTextIndex.stem(word));
+        }
+    }
+
+    /**
+     * A run of components holding one attribute, scaled to its share of the cosine.
+     */
+    private static final class Block {
+        private final int start;
+        private final int width;
+        private final float scale;
+
+        Block(int start, int width, float share) {
+            this.start = start;
+            this.width = width;
+            this.scale = (float) Math.sqrt(share);
+        }
+
+        /**
+         * Adds the feature to two components picked by its hash, each with a sign from the hash too,
+         * so two features only cancel or reinforce each other by chance in both at once.
+         */
+        void hash(float[] vector, String feature, float weight) {
+            int h = mix(feature.hashCode());
+            vector[start + Math.floorMod(h, width)] += (h & 0x100000) != 0 ? weight : -weight;
+            h = mix(h);
+            vector[start + Math.floorMod(h, width)] += (h & 0x100000) != 0 ? weight : -weight;
+        }
+
+        /**
+         * Places the value between the two nearest of evenly spaced buckets over the catalogue's range.
+         */
+        void bucket(float[] vector, double value, double[] range) {
+            double span = range[1] - range[0];
+            double x = span > 0 ? (value - range[0]) / span * (width - 1) : 0;
+            int low = (int) Math.floor(x);
+            float high = (float) (x - low);
+            vector[start + low] = 1f - high;
+            if (low + 1 < width) {
+                vector[start + low + 1] = high;
+            }
+            normalize(vector);
+        }
+
+        /**
+         * Scales the block to unit length times its share, or leaves it empty.
+         */
+        void normalize(float[] vector) {
+            float norm = 0f;
+            for (int i = start; i < start + width; i++) {
+                norm += vector[i] * vector[i];
+            }
+            if (norm > 0f) {
+                float factor = (float) (scale / Math.sqrt(norm));
+                for (int i = start; i < start + width; i++) {
+                    vector[i] *= factor;
+                }
+            }
+        }
+
+        private static int mix(int h) {
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Objects;
+
+/**
+ * The criteria of a movie search. Every criterion is optional and they all have to match.
+ * Text criteria are stored trimmed and lower-cased and blank ones dropped, so two filters asking for
+ * the same movies are equal, which is what lets them key the search result cache.
+ * <p>
+ * Instances are immutable; start from {@link #of} and narrow down with the {@code with} methods.
+ */
+public final class MovieFilter {
+
+    /** Matches every movie */
+    public static final MovieFilter ALL = new MovieFilter(null, null, null, null, null, null, null, null, null);
+
+    private final String name;
+    private final Long id;
+    private final String genre;
+    private final String director;
+    private final Integer minYear;
+    private final Integer maxYear;
+    private final Integer minDuration;
+    private final Integer maxDuration;
+    private final Double minRating;
+
+    private MovieFilter(String name, Long id, String genre, String director, Integer minYear, Integer maxYear,
+                        Integer minDuration, Integer maxDuration, Double minRating) {
+        this.name = MovieCatalog.normalize(name);
+        this.id = id != null && id > 0 ? id : null;
+        this.genre = MovieCatalog.normalize(genre);
+        this.director = MovieCatalog.normalize(director);
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+        this.minRating = minRating;
+    }
+
+    /**
+     * @param name Case-insensitive part of the movie name (optional)
+     * @param id The exact movie id; null or non-positive means any (optional)
+     * @param genre Case-insensitive part of the genre (optional)
+     */
+    public static MovieFilter of(String name, Long id, String genre) {
+        return new MovieFilter(name, id, genre, null, null, null, null, null, null);
+    }
+
+    /**
+     * @param director Case-insensitive part of the director's name (optional)
+     */
+    public MovieFilter withDirector(String director) {
+        return new MovieFilter(name, id, genre, director, minYear, maxYear, minDuration, maxDuration, minRating);
+    }
+
+    /**
+     * @param min Earliest release year, inclusive (optional)
+     * @param max Latest release year, inclusive (optional)
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public MovieFilter withYears(Integer min, Integer max) {
+        checkRange("year", min, max);
+        return new MovieFilter(name, id, genre, director, min, max, minDuration, maxDuration, minRating);
+    }
+
+    /**
+     * @param min Shortest running time in minutes, inclusive (optional)
+     * @param max Longest running time in minutes, inclusive (optional)
+     * @throws IllegalArgumentException if the range is empty or negative
+     */
+    public MovieFilter withDuration(Integer min, Integer max) {
+        checkRange("duration", min, max);
+        if (min != null && min < 0) {
+            throw new IllegalArgumentException("Invalid duration range: minimum must not be negative");
+        }
+        return new MovieFilter(name, id, genre, director, minYear, maxYear, min, max, minRating);
+    }
+
+    /**
+     * @param min Lowest IMDb rating, inclusive (optional)
+     * @throws IllegalArgumentException if the rating is negative or not a number
+     */
+    public MovieFilter withMinRating(Double min) {
+        if (min != null && !(min >= 0)) {
+            throw new IllegalArgumentException("Invalid minimum rating: " + min);
+        }
+        return new MovieFilter(name, id, genre, director, minYear, maxYear, minDuration, maxDuration, min);
+    }
+
+    private static void checkRange(String attribute, Integer min, Integer max) {
+        if (min != null && max != null && min > max) {
+            throw new IllegalArgumentException("Invalid " + attribute + " range: " + min + " is after " + max);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    public Integer getMinDuration() {
+        return minDuration;
+    }
+
+    public Integer getMaxDuration() {
+        return maxDuration;
+    }
+
+    public Double getMinRating() {
+        return minRating;
+    }
+
+    /**
+     * @return true if any criterion is set
+     */
+    public boolean isRestrictive() {
+        return !equals(ALL);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MovieFilter)) {
+            return false;
+        }
+        MovieFilter other = (MovieFilter) o;
+        return Objects.equals(name, other.name) && Objects.equals(id, other.id)
+            && Objects.equals(genre, other.genre) && Objects.equals(director, other.director)
+            && Objects.equals(minYear, other.minYear) && Objects.equals(maxYear, other.maxYear)
+            && Objects.equals(minDuration, other.minDuration) && Objects.equals(maxDuration, other.maxDuration)
+            && Objects.equals(minRating, other.minRating);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, id, genre, director, minYear, maxYear, minDuration, maxDuration, minRating);
+    }
+
+    @Override
+    public String toString() {
+        return "name: '" + name + "', id: " + id + ", genre: '" + genre + "', director: '" + director
+            + "', years: " + minYear + ".." + maxYear + ", duration: " + minDuration + ".." + maxDuration
+            + ", minRating: " + minRating;
+    }
+}
@@ -0,0 +1,69 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Maps movie ids to catalogue positions without boxing.
+ * When ids are compact (no more than twice as many id slots as movies) a plain array indexed by id
+ * is used; otherwise an open-addressing {@link LongIntHashMap}.
+ */
+final class MovieIdIndex {
+
+    static final int ABSENT = -1;
+
+    private final int[] dense;
+    private final long denseBase;
+    private final LongIntHashMap sparse;
+
+    private MovieIdIndex(int[] dense, long denseBase, LongIntHashMap sparse) {
+        this.dense = dense;
+        this.denseBase = denseBase;
+        this.sparse = sparse;
+    }
+
+    /**
+     * @param ids Movie id per catalogue position; when an id repeats, the last position wins
+     */
+    static MovieIdIndex build(long[] ids) {
+        if (ids.length == 0) {
+            return new MovieIdIndex(new int[0], 0, null);
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long id : ids) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        long span = max - min + 1;
+        if (span > 0 && span <= 2L * ids.length + 16) {
+            int[] dense = new int[(int) span];
+            Arrays.fill(dense, ABSENT);
+            for (int pos = 0; pos < ids.length; pos++) {
+                dense[(int) (ids[pos] - min)] = pos;
+            }
+            return new MovieIdIndex(dense, min, null);
+        }
+        LongIntHashMap sparse = new LongIntHashMap(ids.length, ABSENT);
+        for (int pos = 0; pos < ids.length; pos++) {
+            sparse.put(ids[pos], pos);
+        }
+        return new MovieIdIndex(null, 0, sparse);
+    }
+
+    /**
+     * @return The position of the movie with this id, or {@link #ABSENT}
+     */
+    int positionOf(long id) {
+        if (sparse != null) {
+            return sparse.get(id);
+        }
+        long slot = id - denseBase;
+        return slot >= 0 && slot < dense.length ? dense[(int) slot] : ABSENT;
+    }
+
+    boolean isDense() {
+        return sparse == null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.RateLimiter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Loggers named by purpose rather than by class, so log4j2.xml can tune them apart from the rest.
+ */
+final class MovieLogs {
+
+    /** Per-request search lines; only written when {@link #sampleSearch()} allows */
+    static final Logger SEARCH = LogManager.getLogger("com.amazonaws.samples.qdevmovies.search");
+
+    /** One structured record per request; off unless its level is raised to INFO */
+    static final Logger ACCESS = LogManager.getLogger("com.amazonaws.samples.qdevmovies.access");
+
+    // Tuned with -Dmovies.log.search.rate (lines per second, 0 for no limit) and -Dmovies.log.search.burst
+    private static final RateLimiter SEARCH_RATE = new RateLimiter(
+        Integer.getInteger("movies.log.search.rate", 20), Integer.getInteger("movies.log.search.burst", 100));
+
+    private MovieLogs() {
+    }
+
+    /**
+     * Decides whether this request's search lines get logged. Checked before building the log call,
+     * so a skipped request captures no parameters and enqueues nothing, even with async loggers.
+     */
+    static boolean sampleSearch() {
+        return SEARCH.isInfoEnabled() && SEARCH_RATE.tryAcquire();
+    }
+}
@@ -0,0 +1,91 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for the movie endpoints. Timers publish percentile histograms (HdrHistogram backed), so p99
+ * can be read straight off the scrape or aggregated across instances with {@code histogram_quantile}.
+ *
+ * <ul>
+ *   <li>{@code movies.handler} - time in the controller method, tagged by handler</li>
+ *   <li>{@code movies.render} - time rendering the Thymeleaf view afterwards, tagged by handler</li>
+ *   <li>{@code movies.search} - searches tagged {@code outcome=hit|miss}</li>
+ *   <li>{@code movies.search.results} - distribution of total matches per search</li>
+ *   <li>{@code movies.reviews.lookup} - time fetching a movie's reviews and summary</li>
+ * </ul>
+ */
+@Component
+public class MovieMetrics {
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(50_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> handlerTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> renderTimers = new ConcurrentHashMap<>();
+    private final Counter searchHits;
+    private final Counter searchMisses;
+    private final DistributionSummary searchResults;
+    private final Timer reviewLookups;
+
+    public MovieMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.searchHits = Counter.builder("movies.search")
+            .description("Searches by outcome").tag("outcome", "hit").register(registry);
+        this.searchMisses = Counter.builder("movies.search")
+            .description("Searches by outcome").tag("outcome", "miss").register(registry);
+        this.searchResults = DistributionSummary.builder("movies.search.results")
+            .description("Total matches per search")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(1_000_000.0)
+            .register(registry);
+        this.reviewLookups = latencyTimer("movies.reviews.lookup", "Review and summary lookup per details page")
+            .register(registry);
+    }
+
+    /**
+     * @param totalCount Number of movies the search matched across all pages
+     */
+    void recordSearch(int totalCount) {
+        (totalCount > 0 ? searchHits : searchMisses).increment();
+        searchResults.record(totalCount);
+    }
+
+    void timeReviewLookup(Runnable lookup) {
+        long started = System.nanoTime();
+        try {
+            lookup.run();
+        } finally {
+            reviewLookups.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void recordHandler(String handler, long nanos) {
+        handlerTimers.computeIfAbsent(handler, h -> latencyTimer("movies.handler", "Controller method time")
+            .tag("handler", h).register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordRender(String handler, long nanos) {
+        renderTimers.computeIfAbsent(handler, h -> latencyTimer("movies.render", "View rendering time")
+            .tag("handler", h).register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+            .description(description)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(MIN_EXPECTED)
+            .maximumExpectedValue(MAX_EXPECTED);
+    }
+}
@@ -0,0 +1,50 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of search results plus what a client needs to fetch the next one.
+ */
+public class MoviePage {
+
+    private final List<Movie> movies;
+    private final int totalCount;
+    private final int pageSize;
+    private final MovieSort sort;
+    private final String nextCursor;
+
+    public MoviePage(List<Movie> movies, int totalCount, int pageSize, MovieSort sort, String nextCursor) {
+        this.movies = Collections.unmodifiableList(movies);
+        this.totalCount = totalCount;
+        this.pageSize = pageSize;
+        this.sort = sort;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * @return Number of movies matching the search across all pages
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public MovieSort getSort() {
+        return sort;
+    }
+
+    /**
+     * @return Token for the page after this one, or null when this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
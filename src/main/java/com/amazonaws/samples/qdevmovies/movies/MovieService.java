@@ -1,58 +1,234 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import org.json.JSONArray;
+import com.amazonaws.samples.qdevmovies.utils.IconRules;
+import com.amazonaws.samples.qdevmovies.utils.LongIntHashMap;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 @Service
 public class MovieService {
     private static final Logger logger = LogManager.getLogger(MovieService.class);
-    private final List<Movie> movies;
-    private final Map<Long, Movie> movieMap;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_SUGGESTIONS = 8;
+    public static final int MAX_SUGGESTIONS = 20;
+    public static final int DEFAULT_LEADERBOARD_SIZE = 10;
+    public static final int MAX_LEADERBOARD_SIZE = Leaderboards.SIZE;
+    public static final int DEFAULT_SIMILAR_MOVIES = 6;
+    public static final int MAX_SIMILAR_MOVIES = 50;
+    private final CatalogueProperties properties;
+    // Readers grab this reference once per call and never lock; reloads swap in a fully built snapshot
+    private volatile MovieCatalog catalog;
+    private final SearchResultCache searchCache;
+    private IconRules iconRules;
+    private CatalogueWatcher watcher;
+    private ReviewService reviewService;
+    // Swapped with every catalogue and updated by review submissions, one at a time under this lock
+    private final Object reviewBoardsLock = new Object();
+    private volatile ReviewLeaderboards reviewBoards = ReviewLeaderboards.EMPTY;
 
     public MovieService() {
-        this.movies = loadMoviesFromJson();
-        this.movieMap = new HashMap<>();
+        this(new CatalogueProperties());
+    }
+
+    @Autowired
+    public MovieService(CatalogueProperties properties) {
+        this.properties = properties;
+        this.searchCache = newSearchCache(properties);
+        this.iconRules = loadIconRules(IconRules.bundled());
+        this.catalog = newCatalog(loadInitialMovies(), 1);
+    }
+
+    /**
+     * Builds the service over an in-memory catalogue instead of movies.json, e.g. for benchmarks.
+     * @param movies The movies to serve, in browse order
+     */
+    public MovieService(List<Movie> movies) {
+        this(movies, new CatalogueProperties());
+    }
+
+    /**
+     * Builds the service over an in-memory catalogue, stored the way the given properties ask.
+     * @param movies The movies to serve, in browse order
+     * @param properties Catalogue settings; only the storage mode applies to in-memory movies
+     */
+    public MovieService(List<Movie> movies, CatalogueProperties properties) {
+        this.properties = properties;
+        this.searchCache = newSearchCache(properties);
+        this.iconRules = loadIconRules(IconRules.bundled());
+        this.catalog = newCatalog(movies, 1);
+    }
+
+    private static SearchResultCache newSearchCache(CatalogueProperties properties) {
+        return new SearchResultCache(properties.getSearchCacheSize() != null ? properties.getSearchCacheSize().toBytes() : 0);
+    }
+
+    /**
+     * Publishes search cache hit, miss and eviction counts when metrics are available.
+     */
+    @Autowired(required = false)
+    void setMeterRegistry(MeterRegistry registry) {
+        searchCache.bindTo(registry);
+    }
+
+    /**
+     * Ranks movies by their reviews too, keeping those boards current as reviews are submitted.
+     */
+    @Autowired(required = false)
+    public void setReviewService(ReviewService reviewService) {
+        this.reviewService = reviewService;
+        // Listen first, so no review falls between the ranking below and the first update
+        reviewService.addListener(this::reviewAdded);
+        rankReviews(catalog);
+    }
+
+    private void rankReviews(MovieCatalog current) {
+        synchronized (reviewBoardsLock) {
+            reviewBoards = ReviewLeaderboards.of(current, reviewService);
+        }
+    }
+
+    private void reviewAdded(long movieId, ReviewSummary summary) {
+        synchronized (reviewBoardsLock) {
+            reviewBoards.update(movieId, summary);
+        }
+    }
+
+    /**
+     * Reads the external icon rules when configured.
+     * @param fallback Rules to keep when there is no external file or it cannot be read
+     */
+    private IconRules loadIconRules(IconRules fallback) {
+        if (!properties.hasExternalIconRules()) {
+            return fallback;
+        }
+        Path path = Paths.get(properties.getIconRules());
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            IconRules rules = IconRules.read(inputStream);
+            logger.info("Loaded {} icon rules from {}", rules.size(), path);
+            return rules;
+        } catch (Exception e) {
+            logger.error("Failed to load icon rules from {}, keeping the current ones: {}", path, e.getMessage());
+            return fallback;
+        }
+    }
+
+    /**
+     * Gives every movie its icon up front, so rendering a card reads a field instead of matching rules.
+     */
+    private List<Movie> withIcons(List<Movie> movies) {
+        List<Movie> resolved = new ArrayList<>(movies.size());
         for (Movie movie : movies) {
-            movieMap.put(movie.getId(), movie);
+            resolved.add(movie.withIcon(iconRules.iconFor(movie.getMovieName(), movie.getGenre())));
+        }
+        return resolved;
+    }
+
+    /**
+     * Keeps the movies of this instance's shard; all of them when the catalogue is not sharded.
+     */
+    private List<Movie> ownShard(List<Movie> movies) {
+        if (!properties.isSharded()) {
+            return movies;
+        }
+        if (properties.getShardIndex() < 0 || properties.getShardIndex() >= properties.getShardCount()) {
+            throw new IllegalStateException("movies.catalogue.shard-index must be between 0 and "
+                + (properties.getShardCount() - 1) + ", not " + properties.getShardIndex());
+        }
+        List<Movie> owned = new ArrayList<>(movies.size() / properties.getShardCount() + 16);
+        for (Movie movie : movies) {
+            if (properties.ownsMovie(movie.getId())) {
+                owned.add(movie);
+            }
         }
+        logger.info("Servin' shard {} of {}: {} of {} movies", properties.getShardIndex(), properties.getShardCount(),
+            owned.size(), movies.size());
+        return owned;
+    }
+
+    private MovieCatalog newCatalog(List<Movie> loaded, long version) {
+        List<Movie> movies = withIcons(ownShard(loaded));
+        if (properties.getStorage() != CatalogueProperties.Storage.COLUMNAR) {
+            return new MovieCatalog(movies, version);
+        }
+        ColumnarMovieStore store = ColumnarMovieStore.of(movies);
+        logger.info("Stowed {} movies in columns: {} distinct strings in {} KiB off-heap",
+            store.size(), store.distinctStrings(), store.offHeapBytes() / 1024);
+        return new MovieCatalog(store, version);
+    }
+
+    private List<Movie> loadInitialMovies() {
+        if (properties.hasExternalPath()) {
+            Path path = Paths.get(properties.getPath());
+            if (Files.isRegularFile(path)) {
+                try {
+                    List<Movie> movies = readMovies(path);
+                    logger.info("Loaded {} movies from {}", movies.size(), path);
+                    return movies;
+                } catch (Exception e) {
+                    logger.error("Failed to load movies from {}, falling back to bundled catalogue: {}", path, e.getMessage());
+                }
+            } else {
+                logger.warn("Catalogue file {} not found, serving bundled catalogue until it appears", path);
+            }
+        }
+        return loadBundledMovies();
+    }
+
+    /**
+     * Prefers the binary snapshot the build writes next to movies.json and only parses the JSON
+     * when the snapshot is missing, fails its checks or was built from a different movies.json.
+     */
+    private List<Movie> loadBundledMovies() {
+        URL snapshot = getClass().getClassLoader().getResource(CatalogueSnapshot.MOVIES_RESOURCE);
+        if (snapshot != null) {
+            long started = System.nanoTime();
+            try {
+                List<Movie> movies = CatalogueSnapshot.readMovies(snapshot,
+                    getClass().getClassLoader().getResource("movies.json"));
+                logger.info("Loaded {} movies from snapshot in {} ms", movies.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                return movies;
+            } catch (IOException e) {
+                logger.warn("Ignoring movie snapshot, reading movies.json instead: {}", e.getMessage());
+            }
+        }
+        return loadMoviesFromJson();
     }
 
     private List<Movie> loadMoviesFromJson() {
         List<Movie> movieList = new ArrayList<>();
-        try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("movies.json");
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("movies.json")) {
             if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONArray moviesArray = new JSONArray(jsonContent);
-                for (int i = 0; i < moviesArray.length(); i++) {
-                    JSONObject movieObj = moviesArray.getJSONObject(i);
-                    movieList.add(new Movie(
-                        movieObj.getLong("id"),
-                        movieObj.getString("movieName"),
-                        movieObj.getString("director"),
-                        movieObj.getInt("year"),
-                        movieObj.getString("genre"),
-                        movieObj.getString("description"),
-                        movieObj.getInt("duration"),
-                        movieObj.getDouble("imdbRating")
-                    ));
-                }
+                movieList = readMoviesJson(inputStream);
             }
         } catch (Exception e) {
             logger.error("Failed to load movies from JSON: {}", e.getMessage());
@@ -60,20 +236,178 @@ public class MovieService {
         return movieList;
     }
 
+    /**
+     * Reads an external catalogue file, which may be either a snapshot or movies JSON.
+     */
+    private static List<Movie> readMovies(Path path) throws IOException {
+        if (CatalogueSnapshot.isSnapshot(path)) {
+            return CatalogueSnapshot.readMovies(path);
+        }
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return readMoviesJson(inputStream);
+        }
+    }
+
+    /**
+     * Parses a movies JSON array one movie object at a time, so the document is never held as a whole
+     * String or DOM.
+     */
+    static List<Movie> readMoviesJson(InputStream inputStream) {
+        List<Movie> movieList = new ArrayList<>();
+        JSONTokener tokener = new JSONTokener(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("Movies must be a JSON array");
+        }
+        if (tokener.nextClean() == ']') {
+            return movieList;
+        }
+        tokener.back();
+        while (true) {
+            JSONObject movieObj = new JSONObject(tokener);
+            movieList.add(new Movie(
+                movieObj.getLong("id"),
+                movieObj.getString("movieName"),
+                movieObj.getString("director"),
+                movieObj.getInt("year"),
+                movieObj.getString("genre"),
+                movieObj.getString("description"),
+                movieObj.getInt("duration"),
+                movieObj.getDouble("imdbRating")
+            ));
+
+            char next = tokener.nextClean();
+            if (next == ']') {
+                return movieList;
+            }
+            if (next != ',') {
+                throw tokener.syntaxError("Expected ',' or ']' after movie " + movieObj.opt("id"));
+            }
+        }
+    }
+
+    /**
+     * Starts watching the external catalogue file, if one is configured, so edits go live without a restart.
+     */
+    @PostConstruct
+    public void startWatching() {
+        if (!properties.hasExternalPath() || !properties.isWatch()) {
+            return;
+        }
+        try {
+            watcher = new CatalogueWatcher(Paths.get(properties.getPath()), properties.getReloadDelayMillis(),
+                this::reloadCatalogue);
+            watcher.start();
+        } catch (IOException e) {
+            logger.error("Cannot watch catalogue file {}: {}", properties.getPath(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stopWatching() throws IOException {
+        catalog.retire();
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Re-reads the external catalogue file and rebuilds every index off to the side, then publishes
+     * the new snapshot in one step. In-flight requests finish on the snapshot they started with.
+     * A file that fails to parse leaves the current catalogue in place.
+     *
+     * @return true if a new catalogue was published
+     */
+    public synchronized boolean reloadCatalogue() {
+        if (!properties.hasExternalPath()) {
+            return false;
+        }
+        Path path = Paths.get(properties.getPath());
+        long started = System.nanoTime();
+        try {
+            iconRules = loadIconRules(iconRules);
+            MovieCatalog next = newCatalog(readMovies(path), catalog.getVersion() + 1);
+            MovieCatalog previous = catalog;
+            catalog = next;
+            previous.retire();
+            if (reviewService != null) {
+                rankReviews(next);
+            }
+            // Entries are keyed by version and could never hit again, so free them now
+            searchCache.invalidateAll();
+            logger.info("Ahoy! Catalogue version {} hoisted with {} movies in {} ms", next.getVersion(), next.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to reload movies from {}, keeping catalogue version {}: {}", path,
+                catalog.getVersion(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return Version of the catalogue currently served; increases by one on every successful reload
+     */
+    public long getCatalogueVersion() {
+        return catalog.getVersion();
+    }
+
+    /**
+     * @return Hit, miss and eviction counts of the search result cache since startup
+     */
+    public CacheStats getSearchCacheStats() {
+        return searchCache.stats();
+    }
+
+    /**
+     * @return Epoch millis at which the catalogue currently served was loaded
+     */
+    public long getCatalogueLoadedAt() {
+        return catalog.getLoadedAt();
+    }
+
     public List<Movie> getAllMovies() {
-        return movies;
+        return catalog.getMovies();
     }
 
+    /**
+     * Looks up a movie through the catalogue's primitive id index; nothing is boxed or hashed into objects.
+     * @param id The movie id; null or non-positive ids find nothing
+     * @return The movie, if it be in the treasure chest
+     */
     public Optional<Movie> getMovieById(Long id) {
         if (id == null || id <= 0) {
             return Optional.empty();
         }
-        return Optional.ofNullable(movieMap.get(id));
+        return Optional.ofNullable(catalog.getMovie(id));
+    }
+
+    /**
+     * Looks up many movies at once against a single catalogue version, so a reload halfway through
+     * can never mix movies from two versions.
+     * @param ids The movie ids; unknown, non-positive and repeated ids are skipped
+     * @return The movies found, in the order their ids were given
+     */
+    public List<Movie> getMoviesByIds(long[] ids) {
+        MovieCatalog current = catalog;
+        List<Movie> movies = new ArrayList<>(ids.length);
+        LongIntHashMap seen = new LongIntHashMap(ids.length, 0);
+        for (long id : ids) {
+            if (id > 0 && seen.get(id) == 0) {
+                seen.put(id, 1);
+                Movie movie = current.getMovie(id);
+                if (movie != null) {
+                    movies.add(movie);
+                }
+            }
+        }
+        return movies;
     }
 
     /**
      * Searches for movies based on the provided criteria with pirate flair!
      * Arrr! This method be searchin' through our treasure chest of movies.
+     * Name and genre filters be answered from the catalogue's trigram indexes, so only
+     * real candidates get checked, and repeated searches from the search result cache.
      * 
      * @param name The movie name to search for (case-insensitive partial match)
      * @param id The specific movie ID to find
@@ -81,54 +415,214 @@ public class MovieService {
      * @return List of movies matching the search criteria, empty if no treasure be found
      */
     public List<Movie> searchMovies(String name, Long id, String genre) {
-        logger.info("Ahoy! Searchin' the seven seas for movies with name: '{}', id: {}, genre: '{}'", 
-                   name, id, genre);
+        boolean logSearch = MovieLogs.sampleSearch();
+        if (logSearch) {
+            MovieLogs.SEARCH.info("Ahoy! Searchin' the seven seas for movies with name: '{}', id: {}, genre: '{}'",
+                       name, id, genre);
+        }
         
-        List<Movie> results = movies.stream()
-            .filter(movie -> matchesName(movie, name))
-            .filter(movie -> matchesId(movie, id))
-            .filter(movie -> matchesGenre(movie, genre))
-            .collect(Collectors.toList());
+        MovieCatalog current = catalog;
+        List<Movie> movies = current.getMovies();
+        BitSet matches = searchCache.match(current, name, id, genre);
+        List<Movie> results = new ArrayList<>(matches.cardinality());
+        for (int pos = matches.nextSetBit(0); pos >= 0; pos = matches.nextSetBit(pos + 1)) {
+            results.add(movies.get(pos));
+        }
         
+        if (!logSearch) {
+            return results;
+        }
         if (results.isEmpty()) {
-            logger.info("Arrr! No treasure found with those search criteria, matey!");
+            MovieLogs.SEARCH.info("Arrr! No treasure found with those search criteria, matey!");
         } else {
-            logger.info("Shiver me timbers! Found {} movies in our treasure chest!", results.size());
+            MovieLogs.SEARCH.info("Shiver me timbers! Found {} movies in our treasure chest!", box(results.size()));
         }
         
         return results;
     }
 
     /**
-     * Gets all unique genres from our movie treasure chest
-     * @return List of unique genres for the search form dropdown
+     * Ranked full-text search over name, director, genre and description.
+     * Arrr! Unlike {@link #searchMovies}, every word counts, the best treasure comes up first, and
+     * "escaping prisoners" finds "The Prison Escape".
+     *
+     * @param query Free text; any word may match, and the last one also matches as a prefix
+     * @param limit Maximum number of results, clamped to 1..{@value #MAX_PAGE_SIZE}
+     * @return The best matches with their scores, most relevant first; empty for a blank query
      */
-    public List<String> getAllGenres() {
-        return movies.stream()
-            .map(Movie::getGenre)
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
+    public List<ScoredMovie> searchRanked(String query, int limit) {
+        if (MovieCatalog.normalize(query) == null) {
+            return Collections.emptyList();
+        }
+        return catalog.rank(query, Math.max(1, Math.min(MAX_PAGE_SIZE, limit)));
     }
 
-    private boolean matchesName(Movie movie, String name) {
-        if (name == null || name.trim().isEmpty()) {
-            return true; // No name filter applied
-        }
-        return movie.getMovieName().toLowerCase().contains(name.toLowerCase().trim());
+    /**
+     * Movies like the given one by genre, director, era, length, rating and description, for "you might
+     * also like". Arrr! Found by sailing a chart of neighbours drawn when the catalogue was loaded, never by
+     * holding the movie up against every other one in the hold. Large catalogues draw that chart in the
+     * background after loading, and until it be done there be no similar movies to show.
+     *
+     * @param id The movie to find company for
+     * @param limit Maximum number of movies, clamped to 1..{@value #MAX_SIMILAR_MOVIES}
+     * @return Other movies with a positive cosine similarity, most similar first; empty for an unknown id or
+     *     while the chart is still being drawn
+     */
+    public List<ScoredMovie> getSimilarMovies(long id, int limit) {
+        return catalog.similar(id, Math.max(1, Math.min(MAX_SIMILAR_MOVIES, limit)));
     }
 
-    private boolean matchesId(Movie movie, Long id) {
-        if (id == null || id <= 0) {
-            return true; // No ID filter applied
+    /**
+     * Waits until similar movies of the current catalogue can be found, e.g. before measuring lookups.
+     * @return true once they can, false on timeout or when the chart could not be drawn
+     */
+    public boolean awaitSimilarMovies(long timeout, TimeUnit unit) throws InterruptedException {
+        return catalog.awaitSimilarIndex(timeout, unit);
+    }
+
+    /**
+     * Autocomplete for movie names. Titles starting with what was typed come first; when there be too few,
+     * titles matching every word follow, even with a typo or two, so "drem hei" still finds "Dream Heist".
+     *
+     * @param query The text typed so far
+     * @param limit Maximum number of suggestions, clamped to 1..{@value #MAX_SUGGESTIONS}
+     * @return Suggestions, best rated first within exact and corrected matches; empty for a blank query
+     */
+    public List<MovieSuggestion> suggestTitles(String query, int limit) {
+        if (MovieCatalog.normalize(query) == null) {
+            return Collections.emptyList();
         }
-        return movie.getId() == id;
+        return catalog.suggest(query, Math.max(1, Math.min(MAX_SUGGESTIONS, limit)));
+    }
+
+    /**
+     * Fetches one page of search results, like {@link #searchMovies} but bounded in size.
+     * Arrr! Only the movies on this page be loaded into the longboat; the rest stay in the hold.
+     *
+     * @param name The movie name to search for (case-insensitive partial match)
+     * @param id The specific movie ID to find
+     * @param genre The genre to filter by (case-insensitive partial match)
+     * @param sort The ordering to page through; null means {@link MovieSort#ID}
+     * @param cursor The {@link MoviePage#getNextCursor()} of the previous page, or null for the first page
+     * @param pageSize Maximum movies on the page, clamped to 1..{@value #MAX_PAGE_SIZE}
+     * @return The requested page with the total match count and the cursor for the following page
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort order
+     */
+    public MoviePage getMoviesPage(String name, Long id, String genre, MovieSort sort, String cursor, int pageSize) {
+        return getMoviesPage(MovieFilter.of(name, id, genre), sort, cursor, pageSize);
+    }
+
+    /**
+     * Fetches one page of the movies matching every criterion of the filter, ranges included.
+     * Arrr! Each range be answered from a sorted index of its column, and the criteria be intersected as bit sets.
+     *
+     * @param filter The search criteria
+     * @param sort The ordering to page through; null means {@link MovieSort#ID}
+     * @param cursor The {@link MoviePage#getNextCursor()} of the previous page, or null for the first page
+     * @param pageSize Maximum movies on the page, clamped to 1..{@value #MAX_PAGE_SIZE}
+     * @return The requested page with the total match count and the cursor for the following page
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort order
+     */
+    public MoviePage getMoviesPage(MovieFilter filter, MovieSort sort, String cursor, int pageSize) {
+        MovieSort order = sort != null ? sort : MovieSort.ID;
+        MovieCursor after = cursor == null || cursor.isEmpty() ? null : MovieCursor.decode(cursor, order);
+        int size = Math.max(1, Math.min(MAX_PAGE_SIZE, pageSize));
+        MovieCatalog current = catalog;
+        return current.page(searchCache.match(current, filter), order, after, size);
+    }
+
+    /**
+     * Streams every movie matching the criteria to the consumer as it be found, never holding the whole haul.
+     *
+     * @param name The movie name to search for (case-insensitive partial match)
+     * @param id The specific movie ID to find
+     * @param genre The genre to filter by (case-insensitive partial match)
+     * @param sort The order to deliver movies in; null means {@link MovieSort#ID}
+     * @param consumer Receives each matching movie
+     * @return Number of movies delivered
+     */
+    public int forEachMatch(String name, Long id, String genre, MovieSort sort, Consumer<? super Movie> consumer) {
+        return forEachMatch(MovieFilter.of(name, id, genre), sort, consumer);
+    }
+
+    /**
+     * Streams every movie matching the filter to the consumer as it be found.
+     *
+     * @param filter The search criteria
+     * @param sort The order to deliver movies in; null means {@link MovieSort#ID}
+     * @param consumer Receives each matching movie
+     * @return Number of movies delivered
+     */
+    public int forEachMatch(MovieFilter filter, MovieSort sort, Consumer<? super Movie> consumer) {
+        MovieCatalog current = catalog;
+        return current.forEach(searchCache.match(current, filter), sort != null ? sort : MovieSort.ID, consumer);
+    }
+
+    /**
+     * The best movies by IMDb rating, overall or within a genre or decade. Boards are built with each
+     * catalogue, so this costs no more than the entries returned.
+     *
+     * @param genre One genre, e.g. "Drama", matching movies with that genre or a combined one like "Crime/Drama"; null for any
+     * @param decade First year of a decade, e.g. 1990; null for any
+     * @param limit Maximum entries, clamped to 1..{@value #MAX_LEADERBOARD_SIZE}
+     * @return Entries best first, empty for a genre or decade without movies
+     * @throws IllegalArgumentException if both a genre and a decade are given
+     */
+    public List<LeaderboardEntry> getTopRated(String genre, Integer decade, int limit) {
+        return catalog.topRated(leaderboardGroup(genre, decade), clampLeaderboard(limit));
+    }
+
+    /**
+     * The best movies by average review rating, overall or within a genre or decade. The boards follow
+     * each submitted review as it lands, so this costs no more than the entries returned.
+     *
+     * @param genre One genre, as for {@link #getTopRated}; null for any
+     * @param decade First year of a decade, e.g. 1990; null for any
+     * @param limit Maximum entries, clamped to 1..{@value #MAX_LEADERBOARD_SIZE}
+     * @return Entries best first, ties going to the movie with more reviews; only reviewed movies are ranked
+     * @throws IllegalArgumentException if both a genre and a decade are given
+     */
+    public List<LeaderboardEntry> getTopReviewed(String genre, Integer decade, int limit) {
+        return reviewBoards.top(leaderboardGroup(genre, decade), clampLeaderboard(limit));
     }
 
-    private boolean matchesGenre(Movie movie, String genre) {
-        if (genre == null || genre.trim().isEmpty()) {
-            return true; // No genre filter applied
+    private static String leaderboardGroup(String genre, Integer decade) {
+        boolean byGenre = genre != null && !genre.trim().isEmpty();
+        if (byGenre && decade != null) {
+            throw new IllegalArgumentException("Pick a genre or a decade, not both");
         }
-        return movie.getGenre().toLowerCase().contains(genre.toLowerCase().trim());
+        if (byGenre) {
+            return Leaderboards.genreGroup(genre);
+        }
+        return decade != null ? Leaderboards.decadeGroup(Leaderboards.decadeOf(decade)) : Leaderboards.ALL;
+    }
+
+    private static int clampLeaderboard(int limit) {
+        return Math.max(1, Math.min(MAX_LEADERBOARD_SIZE, limit));
+    }
+
+    /**
+     * Gets all unique genres from our movie treasure chest
+     * @return Sorted, immutable list of unique genres for the search form dropdown, computed once per catalogue
+     */
+    public List<String> getAllGenres() {
+        return catalog.getGenres();
+    }
+
+    /**
+     * Counts the movies stowed under each genre
+     * @return Immutable map of exact genre to movie count, in the same order as {@link #getAllGenres()}
+     */
+    public Map<String, Integer> getGenreCounts() {
+        return catalog.getGenreCounts();
+    }
+
+    /**
+     * Finds movies whose genre is exactly the given value
+     * @param genre The exact genre, as listed by {@link #getAllGenres()}
+     * @return Matching movies in catalogue order, empty if the genre be unknown
+     */
+    public List<Movie> getMoviesByGenre(String genre) {
+        return catalog.getMoviesWithGenre(genre);
     }
 }
@@ -0,0 +1,81 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Orderings supported by paged searches. Every ordering breaks ties by ascending id,
+ * which makes (sort key, id) unique and lets a cursor resume exactly where a page ended.
+ */
+public enum MovieSort {
+    /** Ascending movie id */
+    ID("id") {
+        @Override
+        double key(Movie movie) {
+            return 0.0;
+        }
+    },
+    /** Newest movies first */
+    YEAR("year") {
+        @Override
+        double key(Movie movie) {
+            return movie.getYear();
+        }
+    },
+    /** Highest rated movies first */
+    RATING("rating") {
+        @Override
+        double key(Movie movie) {
+            return movie.getImdbRating();
+        }
+    },
+    /** Longest movies first */
+    DURATION("duration") {
+        @Override
+        double key(Movie movie) {
+            return movie.getDuration();
+        }
+    };
+
+    private final String parameter;
+
+    MovieSort(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * @return The value used for this ordering in the {@code sort} request parameter
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    abstract double key(Movie movie);
+
+    /**
+     * Compares two (sort key, id) pairs; larger keys sort first, ties fall back to ascending id.
+     */
+    int compare(double leftKey, long leftId, double rightKey, long rightId) {
+        int byKey = Double.compare(rightKey, leftKey);
+        return byKey != 0 ? byKey : Long.compare(leftId, rightId);
+    }
+
+    int compare(Movie left, Movie right) {
+        return compare(key(left), left.getId(), key(right), right.getId());
+    }
+
+    /**
+     * Parses the {@code sort} request parameter.
+     * @param value The parameter value; blank means {@link #ID}
+     * @return The matching ordering
+     * @throws IllegalArgumentException if the value names no known ordering
+     */
+    public static MovieSort fromParameter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ID;
+        }
+        for (MovieSort sort : values()) {
+            if (sort.parameter.equalsIgnoreCase(value.trim())) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort order: " + value);
+    }
+}
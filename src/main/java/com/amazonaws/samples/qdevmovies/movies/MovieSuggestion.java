@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * One entry of an autocomplete list: just enough of a movie to show and link to it.
+ */
+public class MovieSuggestion {
+
+    private final long id;
+    private final String movieName;
+    private final int year;
+    private final boolean exact;
+
+    public MovieSuggestion(Movie movie, boolean exact) {
+        this.id = movie.getId();
+        this.movieName = movie.getMovieName();
+        this.year = movie.getYear();
+        this.exact = exact;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMovieName() {
+        return movieName;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * @return true if the title starts with what was typed, or has a run of words that does; false if it
+     *         matched word by word or only after correcting a typo
+     */
+    public boolean isExact() {
+        return exact;
+    }
+}
@@ -1,24 +1,47 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 @Controller
 public class MoviesController {
     private static final Logger logger = LogManager.getLogger(MoviesController.class);
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+    private static final int STREAM_FLUSH_INTERVAL = 64;
+    static final int MAX_BATCH_IDS = 100;
+    static final String DEFAULT_AVATAR = "🏴‍☠️";
 
     @Autowired
     private MovieService movieService;
@@ -26,33 +49,68 @@ public class MoviesController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MovieMetrics movieMetrics;
+
+    @Autowired
+    private PageFragmentCache pageFragments;
+
+    @Autowired
+    private ShardedSearch shardedSearch;
+
     @GetMapping("/movies")
     public String getMovies(org.springframework.ui.Model model,
                            @RequestParam(value = "name", required = false) String name,
                            @RequestParam(value = "id", required = false) Long id,
-                           @RequestParam(value = "genre", required = false) String genre) {
-        logger.info("Ahoy! Fetchin' movies with search criteria - name: '{}', id: {}, genre: '{}'", name, id, genre);
+                           @RequestParam(value = "genre", required = false) String genre,
+                           @RequestParam(value = "sort", required = false) String sort,
+                           @RequestParam(value = "cursor", required = false) String cursor,
+                           @RequestParam(value = "size", required = false) Integer size) {
+        if (MovieLogs.sampleSearch()) {
+            MovieLogs.SEARCH.info("Ahoy! Fetchin' movies with search criteria - name: '{}', id: {}, genre: '{}'", name, id, genre);
+        }
         
-        List<Movie> movies;
         boolean isSearch = (name != null && !name.trim().isEmpty()) || 
                           (id != null && id > 0) || 
                           (genre != null && !genre.trim().isEmpty());
         
+        // Read first, so cached cards can only ever be older than the version they are filed under, never newer
+        long version = movieService.getCatalogueVersion();
+        // A bad sort or cursor restarts paging, but at the page size asked for when that one is fine
+        int pageSize = size != null && size >= 1 && size <= MovieService.MAX_PAGE_SIZE ? size : MovieService.DEFAULT_PAGE_SIZE;
+        MoviePage page;
+        try {
+            page = movieService.getMoviesPage(name, id, genre, MovieSort.fromParameter(sort), cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring bad paging parameters sort: '{}', cursor: '{}': {}", sort, cursor, e.getMessage());
+            page = movieService.getMoviesPage(name, id, genre, MovieSort.ID, null, pageSize);
+        }
+        
         if (isSearch) {
-            movies = movieService.searchMovies(name, id, genre);
+            movieMetrics.recordSearch(page.getTotalCount());
             model.addAttribute("searchPerformed", true);
             model.addAttribute("searchName", name);
             model.addAttribute("searchId", id);
             model.addAttribute("searchGenre", genre);
         } else {
-            movies = movieService.getAllMovies();
             model.addAttribute("searchPerformed", false);
         }
         
-        model.addAttribute("movies", movies);
+        model.addAttribute("movies", page.getMovies());
+        if (pageFragments.isEnabled()) {
+            model.addAttribute("movieCards", pageFragments.movieCards(page.getMovies(), version));
+        }
+        model.addAttribute("page", page);
+        model.addAttribute("sort", page.getSort().getParameter());
+        model.addAttribute("sorts", MovieSort.values());
+        model.addAttribute("firstPage", cursor == null || cursor.isEmpty());
         model.addAttribute("genres", movieService.getAllGenres());
+        model.addAttribute("genreCounts", movieService.getGenreCounts());
         
-        if (isSearch && movies.isEmpty()) {
+        if (isSearch && page.getTotalCount() == 0) {
             model.addAttribute("noTreasureFound", true);
         }
         
@@ -63,7 +121,9 @@ public class MoviesController {
     public String getMovieDetails(@PathVariable("id") Long movieId, org.springframework.ui.Model model) {
         logger.info("Fetching details for movie ID: {}", movieId);
         
-        Optional<Movie> movieOpt = movieService.getMovieById(movieId);
+        long version = movieService.getCatalogueVersion();
+        // With sharding the movie may be stored on another shard, so the shard its id belongs to is asked
+        Optional<Movie> movieOpt = shardedSearch.findMovie(movieId);
         if (!movieOpt.isPresent()) {
             logger.warn("Movie with ID {} not found", movieId);
             model.addAttribute("title", "Movie Not Found");
@@ -73,19 +133,110 @@ public class MoviesController {
         
         Movie movie = movieOpt.get();
         model.addAttribute("movie", movie);
-        model.addAttribute("movieIcon", MovieIconUtils.getMovieIcon(movie.getMovieName()));
-        model.addAttribute("allReviews", reviewService.getReviewsForMovie(movie.getId()));
+        // Fragments are filed under this instance's catalogue version, which says nothing about another shard's
+        if (pageFragments.isEnabled() && movieService.getMovieById(movieId).isPresent()) {
+            // Reviews are only looked up when the body has to be rendered
+            model.addAttribute("detailsHtml", pageFragments.movieDetails(movie, version,
+                reviewService.getReviewSummary(movie.getId()).getCount(),
+                details -> addMovieDetails(movie, details)));
+        } else {
+            addMovieDetails(movie, model.asMap());
+        }
         
         return "movie-details";
     }
 
+    private void addMovieDetails(Movie movie, Map<String, Object> details) {
+        details.put("movieIcon", movie.getIcon());
+        details.put("similarMovies", movieService.getSimilarMovies(movie.getId(), MovieService.DEFAULT_SIMILAR_MOVIES));
+        movieMetrics.timeReviewLookup(() -> {
+            details.put("allReviews", reviewService.getReviewsForMovie(movie.getId()));
+            details.put("reviewSummary", reviewService.getReviewSummary(movie.getId()));
+        });
+    }
+
+    /**
+     * Submits a review for a movie. The response is sent once the review is durable and already
+     * visible on the details page and in the review summaries.
+     *
+     * @param movieId The movie being reviewed
+     * @param body JSON with userName, rating (1 to 5), comment and optionally avatarEmoji
+     * @return 201 with the stored review and the movie's updated summary, or an error message
+     */
+    @PostMapping("/movies/{id}/reviews")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> submitReview(@PathVariable("id") Long movieId,
+                                                            @RequestBody Map<String, Object> body) {
+        Map<String, Object> response = new HashMap<>();
+        if (!movieService.getMovieById(movieId).isPresent()) {
+            response.put("success", false);
+            response.put("message", "Arrr! There be no such movie in our treasure chest to review, matey!");
+            response.put("error", "Movie " + movieId + " not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+
+        ReviewSummary summary;
+        Review review;
+        try {
+            Object rating = body.get("rating");
+            Object avatar = body.get("avatarEmoji");
+            review = new Review(stringField(body, "userName"), avatar != null ? avatar.toString() : DEFAULT_AVATAR,
+                rating instanceof Number ? ((Number) rating).doubleValue() : Double.NaN, stringField(body, "comment"));
+            summary = reviewService.submitReview(movieId, review)
+                .get(reviewService.getCommitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Arrr! That review be missing a name, a comment, a rating from 1 to 5 or a proper emoji, matey!");
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (TimeoutException e) {
+            logger.warn("Review for movie {} not committed within {}", movieId, reviewService.getCommitTimeout());
+            response.put("success", false);
+            response.put("message", "Arrr! The log book be slow to take yer words; try again shortly, matey!");
+            response.put("error", "Review not committed in time");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (ExecutionException e) {
+            logger.error("Blimey! Failed to store review for movie {}: {}", movieId, e.getCause().getMessage());
+            response.put("success", false);
+            response.put("message", "Arrr! Yer review went overboard. Try again, matey!");
+            response.put("error", e.getCause().getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.put("success", false);
+            response.put("error", "Interrupted");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+
+        response.put("success", true);
+        response.put("review", review);
+        response.put("reviewSummary", summary);
+        response.put("message", "Shiver me timbers! Yer review be written in the ship's log!");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        return value instanceof String ? (String) value : null;
+    }
+
     /**
      * REST API endpoint for searching movies - returns JSON response
      * Arrr! This be the treasure map for other ships (applications) to find our movies!
+     * Results come back one page at a time; follow {@code nextCursor} to fetch the next page.
      * 
      * @param name Movie name to search for (optional)
      * @param id Movie ID to search for (optional)
      * @param genre Genre to filter by (optional)
+     * @param director Director to filter by, case-insensitive partial match (optional)
+     * @param minYear Earliest release year, inclusive (optional)
+     * @param maxYear Latest release year, inclusive (optional)
+     * @param minDuration Shortest running time in minutes, inclusive (optional)
+     * @param maxDuration Longest running time in minutes, inclusive (optional)
+     * @param minRating Lowest IMDb rating, inclusive (optional)
+     * @param sort Ordering: id, year, rating or duration (optional, defaults to id)
+     * @param cursor The nextCursor of the previous page (optional)
+     * @param size Page size (optional, defaults to {@value MovieService#DEFAULT_PAGE_SIZE})
      * @return JSON response with search results or error message
      */
     @GetMapping("/movies/search")
@@ -93,9 +244,22 @@ public class MoviesController {
     public ResponseEntity<Map<String, Object>> searchMovies(
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "id", required = false) Long id,
-            @RequestParam(value = "genre", required = false) String genre) {
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "minYear", required = false) Integer minYear,
+            @RequestParam(value = "maxYear", required = false) Integer maxYear,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
         
-        logger.info("Ahoy! REST API search request - name: '{}', id: {}, genre: '{}'", name, id, genre);
+        if (MovieLogs.sampleSearch()) {
+            MovieLogs.SEARCH.info("Ahoy! REST API search request - name: '{}', id: {}, genre: '{}', director: '{}', "
+                + "years: {}..{}, duration: {}..{}, minRating: {}",
+                name, id, genre, director, minYear, maxYear, minDuration, maxDuration, minRating);
+        }
         
         Map<String, Object> response = new HashMap<>();
         
@@ -108,16 +272,42 @@ public class MoviesController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            List<Movie> movies = movieService.searchMovies(name, id, genre);
+            MovieFilter filter;
+            try {
+                filter = MovieFilter.of(name, id, genre).withDirector(director).withYears(minYear, maxYear)
+                    .withDuration(minDuration, maxDuration).withMinRating(minRating);
+            } catch (IllegalArgumentException e) {
+                response.put("success", false);
+                response.put("message", "Arrr! Those bounds be all at sea, matey! Keep yer minimums below yer maximums and never below zero.");
+                response.put("error", e.getMessage());
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            MoviePage page;
+            try {
+                page = movieService.getMoviesPage(filter, MovieSort.fromParameter(sort), cursor,
+                        size != null ? size : MovieService.DEFAULT_PAGE_SIZE);
+            } catch (IllegalArgumentException e) {
+                response.put("success", false);
+                response.put("message", "Arrr! That chart be smudged, matey! Check yer sort and cursor.");
+                response.put("error", e.getMessage());
+                return ResponseEntity.badRequest().body(response);
+            }
+            List<Movie> movies = page.getMovies();
+            movieMetrics.recordSearch(page.getTotalCount());
             
             response.put("success", true);
             response.put("movies", movies);
             response.put("count", movies.size());
+            response.put("totalCount", page.getTotalCount());
+            response.put("pageSize", page.getPageSize());
+            response.put("sort", page.getSort().getParameter());
+            response.put("nextCursor", page.getNextCursor());
             
-            if (movies.isEmpty()) {
+            if (page.getTotalCount() == 0) {
                 response.put("message", "Arrr! No treasure found with those search criteria, but don't give up the hunt!");
             } else {
-                response.put("message", String.format("Shiver me timbers! Found %d movies in our treasure chest!", movies.size()));
+                response.put("message", String.format("Shiver me timbers! Found %d movies in our treasure chest!", page.getTotalCount()));
             }
             
             return ResponseEntity.ok(response);
@@ -130,4 +320,363 @@ public class MoviesController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sharded flavour of {@link #searchMovies}: the same search run on every shard at once, with the
+     * results merged in sort order. Shards that are too slow or failing are left out and listed in
+     * {@code shards}, with {@code partial} set, rather than holding up the whole voyage.
+     *
+     * @param name Movie name to search for (optional)
+     * @param id Movie ID to search for (optional)
+     * @param genre Genre to filter by (optional)
+     * @param director Director to filter by, case-insensitive partial match (optional)
+     * @param minYear Earliest release year, inclusive (optional)
+     * @param maxYear Latest release year, inclusive (optional)
+     * @param minDuration Shortest running time in minutes, inclusive (optional)
+     * @param maxDuration Longest running time in minutes, inclusive (optional)
+     * @param minRating Lowest IMDb rating, inclusive (optional)
+     * @param sort Ordering: id, year, rating or duration (optional, defaults to id)
+     * @param cursor The nextCursor of the previous page (optional)
+     * @param size Page size (optional, defaults to {@value MovieService#DEFAULT_PAGE_SIZE})
+     * @return JSON with the merged page and how each shard fared
+     */
+    @GetMapping("/movies/search/sharded")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> searchShards(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "minYear", required = false) Integer minYear,
+            @RequestParam(value = "maxYear", required = false) Integer maxYear,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+
+        if (MovieLogs.sampleSearch()) {
+            MovieLogs.SEARCH.info("Ahoy! Sharded search request - name: '{}', id: {}, genre: '{}', director: '{}', "
+                + "years: {}..{}, duration: {}..{}, minRating: {}",
+                name, id, genre, director, minYear, maxYear, minDuration, maxDuration, minRating);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        ShardedPage result;
+        try {
+            if (id != null && id <= 0) {
+                throw new IllegalArgumentException("Invalid ID parameter");
+            }
+            MovieFilter filter = MovieFilter.of(name, id, genre).withDirector(director).withYears(minYear, maxYear)
+                .withDuration(minDuration, maxDuration).withMinRating(minRating);
+            result = shardedSearch.search(filter, MovieSort.fromParameter(sort), cursor,
+                size != null ? size : MovieService.DEFAULT_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Arrr! That chart be smudged, matey! Check yer criteria, sort and cursor.");
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("shards", result.getShards());
+        response.put("partial", result.isPartial());
+        if (result.isUnavailable()) {
+            response.put("success", false);
+            response.put("message", "Arrr! Not one ship of the fleet answered our signal. Try again, matey!");
+            response.put("error", "No shard answered");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+
+        MoviePage page = result.getPage();
+        movieMetrics.recordSearch(page.getTotalCount());
+        response.put("success", true);
+        response.put("movies", page.getMovies());
+        response.put("count", page.getMovies().size());
+        response.put("totalCount", page.getTotalCount());
+        response.put("pageSize", page.getPageSize());
+        response.put("sort", page.getSort().getParameter());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("message", page.getTotalCount() == 0
+            ? "Arrr! No treasure found with those search criteria, but don't give up the hunt!"
+            : String.format("Shiver me timbers! The fleet found %d movies!", page.getTotalCount()));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Streaming flavour of {@link #searchMovies} picked by {@code Accept: application/x-ndjson}.
+     * Each matching movie be written as its own JSON line the moment it is found, so the first
+     * treasure reaches the client before the search finishes and memory stays flat for any haul size.
+     *
+     * @param name Movie name to search for (optional)
+     * @param id Movie ID to search for (optional)
+     * @param genre Genre to filter by (optional)
+     * @param director Director to filter by, case-insensitive partial match (optional)
+     * @param minYear Earliest release year, inclusive (optional)
+     * @param maxYear Latest release year, inclusive (optional)
+     * @param minDuration Shortest running time in minutes, inclusive (optional)
+     * @param maxDuration Longest running time in minutes, inclusive (optional)
+     * @param minRating Lowest IMDb rating, inclusive (optional)
+     * @param sort Ordering: id, year, rating or duration (optional, defaults to id)
+     * @return Newline-delimited JSON, one movie per line
+     */
+    @GetMapping(value = "/movies/search", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchMovies(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "minYear", required = false) Integer minYear,
+            @RequestParam(value = "maxYear", required = false) Integer maxYear,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "sort", required = false) String sort) {
+
+        boolean logSearch = MovieLogs.sampleSearch();
+        if (logSearch) {
+            MovieLogs.SEARCH.info("Ahoy! Streaming search request - name: '{}', id: {}, genre: '{}', director: '{}', "
+                + "years: {}..{}, duration: {}..{}, minRating: {}",
+                name, id, genre, director, minYear, maxYear, minDuration, maxDuration, minRating);
+        }
+
+        MovieFilter filter;
+        MovieSort order;
+        try {
+            if (id != null && id <= 0) {
+                throw new IllegalArgumentException("Invalid ID parameter");
+            }
+            filter = MovieFilter.of(name, id, genre).withDirector(director).withYears(minYear, maxYear)
+                .withDuration(minDuration, maxDuration).withMinRating(minRating);
+            order = MovieSort.fromParameter(sort);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().contentType(NDJSON)
+                .body(outputStream -> {
+                    objectMapper.writeValue(outputStream, error);
+                    outputStream.write('\n');
+                });
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer()
+                    // Jackson would flush after every movie; the batches below decide instead
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n").writeValues(outputStream)) {
+                int count = movieService.forEachMatch(filter, order, new Consumer<Movie>() {
+                    private int written;
+
+                    @Override
+                    public void accept(Movie movie) {
+                        try {
+                            writer.write(movie);
+                            // Push the first record out right away, then flush in batches
+                            if (++written == 1 || written % STREAM_FLUSH_INTERVAL == 0) {
+                                writer.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+                movieMetrics.recordSearch(count);
+                if (count > 0) {
+                    // The last batch is still in the writer's buffer and must go out before the final newline
+                    writer.flush();
+                    outputStream.write('\n');
+                }
+                if (logSearch) {
+                    MovieLogs.SEARCH.info("Streamed {} movies from our treasure chest", box(count));
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Ranked full-text search across name, director, genre and description.
+     * Arrr! Where {@code /movies/search} filters, this one sorts the haul by how well each movie fits the words.
+     *
+     * @param query Free text, e.g. "escaping prisoners"; the last word also matches as a prefix
+     * @param limit Maximum number of results (optional, defaults to {@value MovieService#DEFAULT_PAGE_SIZE})
+     * @return JSON with the best matches, most relevant first, each with its score
+     */
+    @GetMapping("/movies/search/ranked")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> searchRanked(
+            @RequestParam(value = "q", required = false) String query,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+
+        if (MovieLogs.sampleSearch()) {
+            MovieLogs.SEARCH.info("Ahoy! Ranked search request - q: '{}'", query);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        if (query == null || query.trim().isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Arrr! Ye need to tell us what treasure ye seek, matey!");
+            response.put("error", "Missing q parameter");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<ScoredMovie> results = movieService.searchRanked(query, limit != null ? limit : MovieService.DEFAULT_PAGE_SIZE);
+        movieMetrics.recordSearch(results.size());
+        response.put("success", true);
+        response.put("query", query);
+        response.put("results", results);
+        response.put("count", results.size());
+        response.put("message", results.isEmpty()
+            ? "Arrr! No treasure found with those search criteria, but don't give up the hunt!"
+            : String.format("Shiver me timbers! Here be the %d best matches in our treasure chest!", results.size()));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Autocomplete for the search box, forgiving of typos.
+     *
+     * @param query The text typed so far
+     * @param limit Maximum number of suggestions (optional, defaults to {@value MovieService#DEFAULT_SUGGESTIONS})
+     * @return JSON with the suggested titles; empty when nothing was typed
+     */
+    @GetMapping("/movies/suggest")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> suggestMovies(
+            @RequestParam(value = "q", required = false) String query,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+
+        List<MovieSuggestion> suggestions = movieService.suggestTitles(query,
+            limit != null ? limit : MovieService.DEFAULT_SUGGESTIONS);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("query", query != null ? query : "");
+        response.put("suggestions", suggestions);
+        response.put("count", suggestions.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Top-rated rails: the best movies overall, in one genre or in one decade. The boards are kept ready
+     * as the catalogue loads and as reviews arrive, so no request ever sorts the whole treasure chest.
+     *
+     * @param by What to rank by: rating for IMDb rating, reviews for average review rating (optional, defaults to rating)
+     * @param genre One genre, e.g. Drama (optional)
+     * @param decade A year within the decade, e.g. 1990 (optional; not together with genre)
+     * @param limit Maximum entries (optional, defaults to {@value MovieService#DEFAULT_LEADERBOARD_SIZE},
+     *              at most {@value MovieService#MAX_LEADERBOARD_SIZE})
+     * @return JSON with the ranked entries, best first
+     */
+    @GetMapping("/movies/top")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getLeaderboard(
+            @RequestParam(value = "by", required = false) String by,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "decade", required = false) Integer decade,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+
+        Map<String, Object> response = new HashMap<>();
+        List<LeaderboardEntry> entries;
+        try {
+            int size = limit != null ? limit : MovieService.DEFAULT_LEADERBOARD_SIZE;
+            if (by == null || by.trim().isEmpty() || "rating".equalsIgnoreCase(by.trim())) {
+                by = "rating";
+                entries = movieService.getTopRated(genre, decade, size);
+            } else if ("reviews".equalsIgnoreCase(by.trim())) {
+                by = "reviews";
+                entries = movieService.getTopReviewed(genre, decade, size);
+            } else {
+                throw new IllegalArgumentException("Unknown ranking: " + by);
+            }
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Arrr! Rank by rating or reviews, in one genre or one decade, matey!");
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("success", true);
+        response.put("by", by);
+        response.put("genre", genre);
+        response.put("decade", decade);
+        response.put("entries", entries);
+        response.put("count", entries.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Batch lookup for clients that would otherwise fetch movies and their reviews one id at a time.
+     * Every movie comes from the same catalogue version and the reviews from the precomputed per-movie
+     * indexes, so a whole crew of ids costs one round trip.
+     *
+     * @param ids Up to {@value #MAX_BATCH_IDS} movie ids, comma separated or repeated
+     * @param reviews What to include per movie: none, summary or full (optional, defaults to none)
+     * @return JSON with the movies found in request order, the ids not found, and the requested reviews keyed by movie id
+     */
+    @GetMapping("/movies/batch")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getMoviesBatch(
+            @RequestParam("ids") List<String> ids,
+            @RequestParam(value = "reviews", required = false) String reviews) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (ids.size() > MAX_BATCH_IDS) {
+            response.put("success", false);
+            response.put("message", "Arrr! That be more cargo than our longboat can carry, matey! Ask for fewer ids.");
+            response.put("error", "At most " + MAX_BATCH_IDS + " ids per batch");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        // Parsed here rather than bound as Longs, so a bad id gets this JSON error instead of Spring's own
+        long[] requested = new long[ids.size()];
+        int count = 0;
+        for (String id : ids) {
+            if (id == null || id.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                requested[count++] = Long.parseLong(id.trim());
+            } catch (NumberFormatException e) {
+                response.put("success", false);
+                response.put("message", "Arrr! That id be no number we can find on our charts, matey!");
+                response.put("error", "Invalid id: " + id);
+                return ResponseEntity.badRequest().body(response);
+            }
+        }
+        requested = Arrays.copyOf(requested, count);
+
+        ReviewDetail detail;
+        try {
+            detail = ReviewDetail.fromParameter(reviews);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Arrr! That be a manifest we can't read, matey! Ask for none, summary or full reviews.");
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<Movie> movies = movieService.getMoviesByIds(requested);
+        long[] found = new long[movies.size()];
+        Set<Long> missingIds = new LinkedHashSet<>();
+        for (long id : requested) {
+            missingIds.add(id);
+        }
+        for (int i = 0; i < found.length; i++) {
+            found[i] = movies.get(i).getId();
+            missingIds.remove(found[i]);
+        }
+
+        response.put("success", true);
+        response.put("movies", movies);
+        response.put("count", movies.size());
+        response.put("missingIds", missingIds);
+        if (detail == ReviewDetail.SUMMARY) {
+            response.put("reviewSummaries", reviewService.getReviewSummaries(found));
+        } else if (detail == ReviewDetail.FULL) {
+            response.put("reviews", reviewService.getReviewsForMovies(found));
+        }
+        return ResponseEntity.ok(response);
+    }
+}
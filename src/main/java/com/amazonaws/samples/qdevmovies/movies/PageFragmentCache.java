@@ -0,0 +1,203 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Rendered HTML for the parts of the pages that only change with the catalogue: one card per movie on
+ * the list page and the body of each details page. Entries are keyed by catalogue version and movie id,
+ * plus the review count for details pages, so neither a reload nor a submitted review ever serves an old
+ * rendering and the stale entries age out by themselves.
+ * <p>
+ * The fragments are declared inside movies.html and movie-details.html and rendered on their own with
+ * template selectors, so with caching off the very same markup is rendered inline as usual.
+ * <p>
+ * Because a response only changes with the catalogue version, this process's templates and the request
+ * itself, those make up its ETag, which lets revalidations be answered before any controller or template
+ * runs. The request goes into the ETag as a SHA-256 digest, so no two URLs share a tag by accident. Gzipped
+ * bodies of popular responses are kept under the catalogue version and the full request, see
+ * {@link CatalogueResponseFilter}.
+ */
+@Component
+public class PageFragmentCache {
+
+    private static final Set<String> CARD = Collections.singleton("card");
+    private static final Set<String> DETAILS = Collections.singleton("details");
+    // Shared across visitors, so numbers are formatted the one way the English pages expect
+    private static final Locale LOCALE = Locale.ENGLISH;
+
+    private final ITemplateEngine templateEngine;
+    private final Cache<Key, String> cache;
+    private final Cache<String, CompressedBody> compressed;
+    // Templates can change between deployments, so ETags issued by an earlier process must not match
+    private final String generation = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    public PageFragmentCache(ITemplateEngine templateEngine, RenderProperties properties) {
+        this.templateEngine = templateEngine;
+        this.cache = !properties.isCache() ? null : Caffeine.newBuilder()
+            .maximumWeight(properties.getCacheSize().toBytes())
+            .weigher((Key key, String html) -> 64 + html.length() * 2)
+            .recordStats()
+            .build();
+        this.compressed = !properties.isCache() ? null : Caffeine.newBuilder()
+            .maximumWeight(properties.getCompressedCacheSize().toBytes())
+            .weigher((String key, CompressedBody body) -> 64 + key.length() * 2 + body.getBytes().length)
+            .recordStats()
+            .build();
+    }
+
+    @Autowired(required = false)
+    void setMeterRegistry(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "movies.render");
+            CaffeineCacheMetrics.monitor(registry, compressed, "movies.compressed");
+        }
+    }
+
+    boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @param resource The request path and query, plus anything else that picks the representation
+     * @param gzip Whether the body is gzip-encoded; a strong ETag must differ between encodings
+     * @return Strong entity tag for the response to that request from the given catalogue version
+     */
+    String etag(long catalogueVersion, String resource, boolean gzip) {
+        return "\"" + catalogueVersion + "-" + generation + "-" + digest(resource) + (gzip ? "-gz\"" : "\"");
+    }
+
+    /**
+     * @param resource The same resource the response's ETag was built from
+     * @return The gzipped body of that response, or null
+     */
+    CompressedBody compressedBody(long catalogueVersion, String resource) {
+        return compressed.getIfPresent(compressedKey(catalogueVersion, resource));
+    }
+
+    void storeCompressedBody(long catalogueVersion, String resource, CompressedBody body) {
+        compressed.put(compressedKey(catalogueVersion, resource), body);
+    }
+
+    private static String compressedKey(long catalogueVersion, String resource) {
+        return catalogueVersion + " " + resource;
+    }
+
+    /**
+     * @return The first 128 bits of the resource's SHA-256, base64url-encoded
+     */
+    private static String digest(String resource) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(resource.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return One rendered movie card per movie, in the same order
+     */
+    List<String> movieCards(List<Movie> movies, long catalogueVersion) {
+        List<String> cards = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            cards.add(cache.get(new Key(Kind.CARD, catalogueVersion, movie.getId(), 0), k -> {
+                Context context = new Context(LOCALE);
+                context.setVariable("movie", movie);
+                return templateEngine.process("movies", CARD, context);
+            }));
+        }
+        return cards;
+    }
+
+    /**
+     * @param reviewCount How many reviews the movie has; reviews are only ever added, so this versions them
+     * @param details Adds the remaining template variables (icon, reviews) when the body must be rendered
+     * @return The rendered body of the movie's details page
+     */
+    String movieDetails(Movie movie, long catalogueVersion, int reviewCount, Consumer<Map<String, Object>> details) {
+        return cache.get(new Key(Kind.DETAILS, catalogueVersion, movie.getId(), reviewCount), k -> {
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("movie", movie);
+            details.accept(variables);
+            return templateEngine.process("movie-details", DETAILS, new Context(LOCALE, variables));
+        });
+    }
+
+    /**
+     * A gzipped response body together with the content type it was produced with.
+     */
+    static final class CompressedBody {
+        private final byte[] bytes;
+        private final String contentType;
+
+        CompressedBody(byte[] bytes, String contentType) {
+            this.bytes = bytes;
+            this.contentType = contentType;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+    }
+
+    private enum Kind { CARD, DETAILS }
+
+    private static final class Key {
+        private final Kind kind;
+        private final long version;
+        private final long movieId;
+        private final int reviewCount;
+
+        Key(Kind kind, long version, long movieId, int reviewCount) {
+            this.kind = kind;
+            this.version = version;
+            this.movieId = movieId;
+            this.reviewCount = reviewCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind == other.kind && version == other.version && movieId == other.movieId
+                && reviewCount == other.reviewCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, version, movieId, reviewCount);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings under {@code movies.render} controlling how the HTML pages are rendered.
+ */
+@Component
+@ConfigurationProperties(prefix = "movies.render")
+public class RenderProperties {
+
+    /** Reuse rendered movie cards and details per catalogue version, and serve conditional, gzipped responses */
+    private boolean cache = false;
+
+    /** Memory budget for rendered fragments */
+    private DataSize cacheSize = DataSize.ofMegabytes(32);
+
+    /** Memory budget for gzip-compressed response bodies kept for repeat requests */
+    private DataSize compressedCacheSize = DataSize.ofMegabytes(16);
+
+    /** How long browsers and proxies may reuse a response before revalidating it */
+    private Duration maxAge = Duration.ofSeconds(60);
+
+    public boolean isCache() {
+        return cache;
+    }
+
+    public void setCache(boolean cache) {
+        this.cache = cache;
+    }
+
+    public DataSize getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(DataSize cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public DataSize getCompressedCacheSize() {
+        return compressedCacheSize;
+    }
+
+    public void setCompressedCacheSize(DataSize compressedCacheSize) {
+        this.compressedCacheSize = compressedCacheSize;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+}
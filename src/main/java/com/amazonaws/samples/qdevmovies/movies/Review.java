@@ -1,10 +1,10 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
 public class Review {
-    private String userName;
-    private String avatarEmoji;
-    private double rating;
-    private String comment;
+    private final String userName;
+    private final String avatarEmoji;
+    private final double rating;
+    private final String comment;
 
     public Review(String userName, String avatarEmoji, double rating, String comment) {
         this.userName = userName;
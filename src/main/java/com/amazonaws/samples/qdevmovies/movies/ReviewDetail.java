@@ -0,0 +1,44 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * How much review data a batch lookup returns alongside each movie.
+ */
+public enum ReviewDetail {
+    /** Movies only */
+    NONE("none"),
+    /** Precomputed count, average and star histogram per movie */
+    SUMMARY("summary"),
+    /** Every review of every movie */
+    FULL("full");
+
+    private final String parameter;
+
+    ReviewDetail(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * @return The value used for this level in the {@code reviews} request parameter
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Parses the {@code reviews} request parameter.
+     * @param value The parameter value; blank means {@link #NONE}
+     * @return The matching level
+     * @throws IllegalArgumentException if the value names no known level
+     */
+    public static ReviewDetail fromParameter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return NONE;
+        }
+        for (ReviewDetail detail : values()) {
+            if (detail.parameter.equalsIgnoreCase(value.trim())) {
+                return detail;
+            }
+        }
+        throw new IllegalArgumentException("Unknown review detail: " + value);
+    }
+}
@@ -0,0 +1,100 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Boards of the movies with the best average review rating, per group as in {@link Leaderboards},
+ * kept up to date one review at a time.
+ * <p>
+ * Every reviewed movie of a group sits in an ordered set, so a changed average moves one entry in
+ * O(log n) and the next movie is at hand when one drops out of the top. The top {@link Leaderboards#SIZE}
+ * of each board are published as an immutable list, and only for boards whose top actually changed.
+ * Readers take the published list and never lock; updates must come from one thread at a time.
+ */
+final class ReviewLeaderboards {
+
+    static final ReviewLeaderboards EMPTY = new ReviewLeaderboards(null);
+
+    private final MovieCatalog catalog;
+    private final Map<String, TreeSet<LeaderboardEntry>> ranked = new HashMap<>();
+    private final Map<Long, LeaderboardEntry> entries = new HashMap<>();
+    private final Map<String, List<LeaderboardEntry>> published = new ConcurrentHashMap<>();
+
+    private ReviewLeaderboards(MovieCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Ranks every movie of the catalogue that already has reviews.
+     */
+    static ReviewLeaderboards of(MovieCatalog catalog, ReviewService reviewService) {
+        ReviewLeaderboards boards = new ReviewLeaderboards(catalog);
+        for (Movie movie : catalog.getMovies()) {
+            ReviewSummary summary = reviewService.getReviewSummary(movie.getId());
+            if (summary.getCount() > 0) {
+                LeaderboardEntry entry = new LeaderboardEntry(movie, summary.getAverageRating(), summary.getCount());
+                boards.entries.put(movie.getId(), entry);
+                for (String group : Leaderboards.groupsOf(movie)) {
+                    boards.ranked.computeIfAbsent(group, g -> new TreeSet<>(LeaderboardEntry.ORDER)).add(entry);
+                }
+            }
+        }
+        for (String group : boards.ranked.keySet()) {
+            boards.publish(group);
+        }
+        return boards;
+    }
+
+    /**
+     * Moves the movie to where its new summary ranks it. Movies outside this catalogue are ignored,
+     * as are summaries older than the one already applied.
+     */
+    void update(long movieId, ReviewSummary summary) {
+        Movie movie = catalog != null ? catalog.getMovie(movieId) : null;
+        LeaderboardEntry previous = entries.get(movieId);
+        if (movie == null || summary.getCount() == 0 || previous != null && previous.getReviewCount() >= summary.getCount()) {
+            return;
+        }
+        LeaderboardEntry entry = new LeaderboardEntry(movie, summary.getAverageRating(), summary.getCount());
+        entries.put(movieId, entry);
+        for (String group : Leaderboards.groupsOf(movie)) {
+            TreeSet<LeaderboardEntry> board = ranked.computeIfAbsent(group, g -> new TreeSet<>(LeaderboardEntry.ORDER));
+            if (previous != null) {
+                board.remove(previous);
+            }
+            board.add(entry);
+            List<LeaderboardEntry> top = published.get(group);
+            if (top == null || inTop(top, entry) || previous != null && inTop(top, previous)) {
+                publish(group);
+            }
+        }
+    }
+
+    /**
+     * @return The first {@code limit} entries of the board, or an empty list for a group without reviews
+     */
+    List<LeaderboardEntry> top(String group, int limit) {
+        return Leaderboards.top(published, group, limit);
+    }
+
+    private static boolean inTop(List<LeaderboardEntry> top, LeaderboardEntry entry) {
+        return top.size() < Leaderboards.SIZE || LeaderboardEntry.ORDER.compare(entry, top.get(top.size() - 1)) <= 0;
+    }
+
+    private void publish(String group) {
+        TreeSet<LeaderboardEntry> board = ranked.get(group);
+        List<LeaderboardEntry> top = new ArrayList<>(Math.min(board.size(), Leaderboards.SIZE));
+        Iterator<LeaderboardEntry> it = board.iterator();
+        while (it.hasNext() && top.size() < Leaderboards.SIZE) {
+            top.add(it.next());
+        }
+        published.put(group, Collections.unmodifiableList(top));
+    }
+}
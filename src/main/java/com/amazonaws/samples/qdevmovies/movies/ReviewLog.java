@@ -0,0 +1,511 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log that makes submitted reviews durable, with group commit: a single writer thread takes
+ * every submission waiting in the queue, writes them in one go and syncs the file once for all of them,
+ * so under load the cost of an fsync is shared by the whole batch instead of paid per review.
+ * <p>
+ * The log is a series of segment files {@code reviews-<sequence>.log}; a new one is started once the
+ * current one reaches the configured size. Each record is an {@code int} payload length, an {@code int}
+ * CRC32 of the payload and the payload itself: {@code long} movie id, {@code double} rating, then user
+ * name, avatar and comment as modified UTF-8. A record cut short by a crash fails its checksum and is
+ * truncated away on the next start, along with anything after it.
+ * <p>
+ * Once enough segments are closed, a background thread folds them and the previous snapshot into
+ * {@code reviews-<sequence>.snapshot}, in the {@link CatalogueSnapshot} format, which holds every review
+ * logged before segment {@code <sequence>}; the folded files are then deleted.
+ */
+final class ReviewLog implements Closeable {
+    private static final Logger logger = LogManager.getLogger(ReviewLog.class);
+
+    private static final String PREFIX = "reviews-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * Receives reviews in log order.
+     */
+    interface Sink {
+        void accept(long movieId, Review review);
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int maxBatch;
+    private final int compactAfterSegments;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private volatile boolean closed;
+    private Thread writer;
+    // Only the writer thread touches the active segment once it is started
+    private FileChannel segment;
+    private long segmentSequence;
+    private long segmentSize;
+
+    ReviewLog(Path dir, ReviewProperties properties) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.segmentBytes = properties.getSegmentSize().toBytes();
+        this.maxBatch = Math.max(1, properties.getMaxBatch());
+        this.compactAfterSegments = Math.max(1, properties.getCompactAfterSegments());
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "review-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Hands every review already in the log to the sink, from the newest readable snapshot on,
+     * then opens the last segment for new writes, or a fresh one once that is full.
+     * @return Number of reviews replayed
+     */
+    int replay(Sink sink) throws IOException {
+        int replayed = 0;
+        long snapshotSequence = 0;
+        long unreadable = -1;
+        List<Long> snapshots = sequences(SNAPSHOT_SUFFIX);
+        Collections.reverse(snapshots);
+        for (long sequence : snapshots) {
+            try {
+                replayed += replaySnapshot(snapshotPath(sequence), sink);
+                snapshotSequence = sequence;
+                break;
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable review snapshot {}: {}", snapshotPath(sequence), e.getMessage());
+                unreadable = Math.max(unreadable, sequence);
+            }
+        }
+        List<Long> segments = sequences(SEGMENT_SUFFIX);
+        if (unreadable >= 0 && !covers(segments, snapshotSequence, unreadable)) {
+            // Compaction deleted what the unreadable snapshot holds, so nothing else has these reviews
+            logger.error("Blimey! Review snapshot {} is unreadable and the segments folded into it are gone: "
+                + "reviews logged from segment {} to {} are lost", snapshotPath(unreadable), snapshotSequence,
+                unreadable - 1);
+        }
+        long next = snapshotSequence;
+        for (long sequence : segments) {
+            if (sequence >= snapshotSequence) {
+                replayed += replaySegment(segmentPath(sequence), sink);
+                next = sequence + 1;
+            }
+        }
+        // Torn records are gone by now, so the last segment can take more unless it is already full
+        if (next > snapshotSequence && Files.size(segmentPath(next - 1)) < segmentBytes) {
+            next--;
+        }
+        segmentSequence = next;
+        segment = openSegment(segmentSequence);
+        segmentSize = segment.size();
+        return replayed;
+    }
+
+    /**
+     * @return true if every segment from {@code from} up to, not including, {@code upTo} is still there
+     */
+    private static boolean covers(List<Long> segments, long from, long upTo) {
+        long expected = from;
+        for (long sequence : segments) {
+            if (sequence == expected && expected < upTo) {
+                expected++;
+            }
+        }
+        return expected >= upTo;
+    }
+
+    /**
+     * Starts committing appended reviews; each one reaches the sink after it is on disk.
+     */
+    void start(Sink sink) {
+        writer = new Thread(() -> run(sink), "review-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        maybeCompact();
+    }
+
+    /**
+     * Queues a review for the next group commit.
+     * @return Completes once the review is on disk and handed to the sink; fails if it could not be written
+     */
+    CompletableFuture<Void> append(long movieId, Review review) {
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        if (closed) {
+            committed.completeExceptionally(new IOException("Review log is closed"));
+            return committed;
+        }
+        byte[] record;
+        try {
+            record = encode(movieId, review);
+        } catch (UncheckedIOException e) {
+            // Such as a field past the 64KB that writeUTF can hold; the caller gets it like any failed write
+            committed.completeExceptionally(e.getCause());
+            return committed;
+        }
+        Pending pending = new Pending(movieId, review, record, committed);
+        queue.add(pending);
+        // close() may have drained the queue between the check above and the add; then nobody else will
+        // take this one, and leaving it queued would hang the caller until its timeout
+        if (closed && queue.remove(pending)) {
+            committed.completeExceptionally(new IOException("Review log is closed"));
+        }
+        return committed;
+    }
+
+    /**
+     * @return Number of fsyncs so far; below {@link #records()} whenever writes were batched
+     */
+    long commits() {
+        return commits.get();
+    }
+
+    /**
+     * @return Number of reviews committed since startup
+     */
+    long records() {
+        return records.get();
+    }
+
+    /**
+     * Commits what is already queued, then stops the writer, lets a running compaction finish and
+     * closes the active segment. Appends from then on fail straight away, as does anything still
+     * queued when the writer could not be waited for.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Pending abandoned;
+        while ((abandoned = queue.poll()) != null) {
+            abandoned.committed.completeExceptionally(new IOException("Review log is closed"));
+        }
+        compactor.shutdown();
+        try {
+            // A compaction halfway through deleting folded files must not race the next start
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private void run(Sink sink) {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            Pending first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            // Everything that queued up during the previous fsync goes out under the next one
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            commit(batch, sink);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Pending> batch, Sink sink) {
+        int bytes = 0;
+        for (Pending pending : batch) {
+            bytes += pending.record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        for (Pending pending : batch) {
+            buffer.put(pending.record);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+        } catch (IOException e) {
+            logger.error("Blimey! Failed to write {} reviews to {}: {}", batch.size(), segmentPath(segmentSequence),
+                e.getMessage());
+            try {
+                // Leave no partial batch behind for the next one to be appended after
+                segment.truncate(segmentSize);
+            } catch (IOException ignored) {
+                // The torn tail is cut off on the next start instead
+            }
+            for (Pending pending : batch) {
+                pending.committed.completeExceptionally(e);
+            }
+            return;
+        }
+        segmentSize += bytes;
+        commits.incrementAndGet();
+        records.addAndGet(batch.size());
+        for (Pending pending : batch) {
+            sink.accept(pending.movieId, pending.review);
+            pending.committed.complete(null);
+        }
+        if (segmentSize >= segmentBytes) {
+            roll();
+        }
+    }
+
+    private void roll() {
+        try {
+            FileChannel next = openSegment(segmentSequence + 1);
+            segment.close();
+            segment = next;
+            segmentSequence++;
+            segmentSize = 0;
+        } catch (IOException e) {
+            logger.error("Cannot start review log segment {}, still appending to {}: {}", segmentSequence + 1,
+                segmentPath(segmentSequence), e.getMessage());
+            return;
+        }
+        maybeCompact();
+    }
+
+    private void maybeCompact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        long upTo = segmentSequence;
+        try {
+            int closedSegments = 0;
+            for (long sequence : sequences(SEGMENT_SUFFIX)) {
+                if (sequence < upTo) {
+                    closedSegments++;
+                }
+            }
+            if (closedSegments >= compactAfterSegments) {
+                compactor.execute(() -> compact(upTo));
+                return;
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot list review log segments: {}", e.getMessage());
+        }
+        compacting.set(false);
+    }
+
+    /**
+     * Folds the newest snapshot and every segment before {@code upTo} into a new snapshot, then deletes them.
+     * Closed segments never change, so this runs alongside the writer.
+     */
+    private void compact(long upTo) {
+        try {
+            Map<Long, List<Review>> reviews = new HashMap<>();
+            Sink collect = (movieId, review) -> reviews.computeIfAbsent(movieId, id -> new ArrayList<>()).add(review);
+            long from = 0;
+            List<Long> snapshots = sequences(SNAPSHOT_SUFFIX);
+            if (!snapshots.isEmpty()) {
+                // An unreadable snapshot must stay where it is rather than be folded into nothing
+                from = snapshots.get(snapshots.size() - 1);
+                replaySnapshot(snapshotPath(from), collect);
+            }
+            int folded = 0;
+            for (long sequence : sequences(SEGMENT_SUFFIX)) {
+                if (sequence >= from && sequence < upTo) {
+                    replaySegment(segmentPath(sequence), collect);
+                    folded++;
+                }
+            }
+            Path target = snapshotPath(upTo);
+            CatalogueSnapshot.writeReviews(reviews, target);
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            // Nothing is deleted until the new snapshot reads back whole, since it becomes the only copy
+            int expected = 0;
+            for (List<Review> movieReviews : reviews.values()) {
+                expected += movieReviews.size();
+            }
+            int readBack;
+            try {
+                readBack = replaySnapshot(target, (movieId, review) -> { });
+            } catch (IOException e) {
+                readBack = -1;
+            }
+            if (readBack != expected) {
+                Files.deleteIfExists(target);
+                throw new IOException("New snapshot " + target.getFileName() + " did not read back: " + readBack
+                    + " of " + expected + " reviews");
+            }
+            for (long sequence : sequences(SEGMENT_SUFFIX)) {
+                if (sequence < upTo) {
+                    Files.deleteIfExists(segmentPath(sequence));
+                }
+            }
+            for (long sequence : sequences(SNAPSHOT_SUFFIX)) {
+                if (sequence < upTo) {
+                    Files.deleteIfExists(snapshotPath(sequence));
+                }
+            }
+            logger.info("Compacted {} review log segments into {}", folded, target.getFileName());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Review log compaction failed, keeping the segments: {}", e.getMessage());
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private static int replaySnapshot(Path path, Sink sink) throws IOException {
+        int count = 0;
+        for (Map.Entry<Long, List<Review>> entry : CatalogueSnapshot.readReviews(path).entrySet()) {
+            for (Review review : entry.getValue()) {
+                sink.accept(entry.getKey(), review);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int replaySegment(Path path, Sink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the whole segment is in memory
+            }
+            buffer.flip();
+            int count = 0;
+            int intact = 0;
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                    long movieId = in.readLong();
+                    double rating = in.readDouble();
+                    sink.accept(movieId, new Review(in.readUTF(), in.readUTF(), rating, in.readUTF()));
+                }
+                count++;
+                intact = buffer.position();
+            }
+            if (intact < channel.size()) {
+                logger.warn("Truncating {} bytes of torn records from {}", channel.size() - intact, path);
+                channel.truncate(intact);
+                channel.force(true);
+            }
+            return count;
+        }
+    }
+
+    private static byte[] encode(long movieId, Review review) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64 + review.getComment().length());
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeLong(movieId);
+            out.writeDouble(review.getRating());
+            out.writeUTF(review.getUserName());
+            out.writeUTF(review.getAvatarEmoji());
+            out.writeUTF(review.getComment());
+            out.flush();
+            byte[] bytes = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length);
+            return ByteBuffer.allocate(RECORD_HEADER_BYTES + bytes.length)
+                .putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileChannel openSegment(long sequence) throws IOException {
+        return FileChannel.open(segmentPath(sequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return Sequence numbers of the files with the given suffix, ascending
+     */
+    private List<Long> sequences(String suffix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring stray file {} in the review log", file);
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private Path segmentPath(long sequence) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotPath(long sequence) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+
+    private static final class Pending {
+        private final long movieId;
+        private final Review review;
+        private final byte[] record;
+        private final CompletableFuture<Void> committed;
+
+        Pending(long movieId, Review review, byte[] record, CompletableFuture<Void> committed) {
+            this.movieId = movieId;
+            this.review = review;
+            this.record = record;
+            this.committed = committed;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings under {@code movies.reviews} controlling where submitted reviews are made durable.
+ */
+@Component
+@ConfigurationProperties(prefix = "movies.reviews")
+public class ReviewProperties {
+
+    /** Directory of the append-only review log; when blank, submitted reviews last until restart */
+    private String logDir;
+
+    /** Size at which the log starts a new segment file */
+    private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+    /** Most reviews written together under a single fsync */
+    private int maxBatch = 1024;
+
+    /** Closed segments that trigger compaction into a snapshot */
+    private int compactAfterSegments = 4;
+
+    /** How long a submission waits for its batch to reach the disk before giving up */
+    private Duration commitTimeout = Duration.ofSeconds(5);
+
+    public String getLogDir() {
+        return logDir;
+    }
+
+    public void setLogDir(String logDir) {
+        this.logDir = logDir;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    public void setMaxBatch(int maxBatch) {
+        this.maxBatch = maxBatch;
+    }
+
+    public int getCompactAfterSegments() {
+        return compactAfterSegments;
+    }
+
+    public void setCompactAfterSegments(int compactAfterSegments) {
+        this.compactAfterSegments = compactAfterSegments;
+    }
+
+    public Duration getCommitTimeout() {
+        return commitTimeout;
+    }
+
+    public void setCommitTimeout(Duration commitTimeout) {
+        this.commitTimeout = commitTimeout;
+    }
+
+    boolean hasLogDir() {
+        return logDir != null && !logDir.trim().isEmpty();
+    }
+}
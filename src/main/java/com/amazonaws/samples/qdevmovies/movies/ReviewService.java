@@ -2,46 +2,396 @@ package com.amazonaws.samples.qdevmovies.movies;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Service
 public class ReviewService {
     private static final Logger logger = LogManager.getLogger(ReviewService.class);
+    static final int MAX_USER_NAME_LENGTH = 40;
+    static final int MAX_COMMENT_LENGTH = 2000;
+    // Room for the longest emoji sequences, such as a family joined with zero-width joiners
+    static final int MAX_AVATAR_LENGTH = 16;
+    private final ReviewProperties properties;
+    // Readers take one entry per call and never lock; submissions swap in a whole new entry for the movie
+    private final ConcurrentMap<Long, MovieReviews> reviewsByMovie;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private ReviewLog log;
 
-    public List<Review> getReviewsForMovie(long movieId) {
-        List<Review> reviews = new ArrayList<>();
+    /**
+     * Told about every submitted review once it is visible, e.g. to keep rankings by review rating current.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread that published the review. Calls for one movie may arrive out of order,
+         * but summary counts only ever grow, so a stale summary is easy to spot.
+         */
+        void reviewAdded(long movieId, ReviewSummary summary);
+    }
+
+    public ReviewService() {
+        this(new ReviewProperties());
+    }
+
+    @Autowired
+    public ReviewService(ReviewProperties properties) {
+        this.properties = properties;
+        this.reviewsByMovie = index(loadReviews());
+        logger.info("Indexed reviews for {} movies", reviewsByMovie.size());
+    }
+
+    /**
+     * Builds the service over in-memory reviews instead of mock-reviews.json, e.g. for benchmarks.
+     * @param reviews Reviews keyed by movie id
+     */
+    public ReviewService(Map<Long, List<Review>> reviews) {
+        this.properties = new ReviewProperties();
+        this.reviewsByMovie = index(reviews);
+    }
+
+    private static ConcurrentMap<Long, MovieReviews> index(Map<Long, List<Review>> reviews) {
+        ConcurrentMap<Long, MovieReviews> index = new ConcurrentHashMap<>(Math.max(16, reviews.size() * 2));
+        for (Map.Entry<Long, List<Review>> entry : reviews.entrySet()) {
+            Review[] movieReviews = entry.getValue().toArray(new Review[0]);
+            index.put(entry.getKey(), new MovieReviews(movieReviews, ReviewSummary.of(Arrays.asList(movieReviews)), 0L));
+        }
+        return index;
+    }
+
+    /**
+     * Replays the review log, if one is configured, on top of the bundled reviews and starts
+     * committing new submissions to it.
+     */
+    @PostConstruct
+    public void openLog() {
+        if (!properties.hasLogDir()) {
+            return;
+        }
         try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mock-reviews.json");
+            ReviewLog opened = new ReviewLog(Paths.get(properties.getLogDir()), properties);
+            long started = System.nanoTime();
+            int replayed = opened.replay(this::apply);
+            opened.start(this::apply);
+            log = opened;
+            logger.info("Replayed {} submitted reviews from {} in {} ms", replayed, properties.getLogDir(),
+                (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            // Accepting reviews that would silently vanish on restart is worse than not starting
+            throw new UncheckedIOException("Cannot open review log " + properties.getLogDir(), e);
+        }
+    }
+
+    @PreDestroy
+    public void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    /**
+     * Loads the review snapshot written by the build, falling back to mock-reviews.json when it is
+     * missing, fails its checks or was built from a different mock-reviews.json.
+     */
+    private Map<Long, List<Review>> loadReviews() {
+        URL snapshot = getClass().getClassLoader().getResource(CatalogueSnapshot.REVIEWS_RESOURCE);
+        if (snapshot != null) {
+            try {
+                return CatalogueSnapshot.readReviews(snapshot,
+                    getClass().getClassLoader().getResource("mock-reviews.json"));
+            } catch (IOException e) {
+                logger.warn("Ignoring review snapshot, reading mock-reviews.json instead: {}", e.getMessage());
+            }
+        }
+        return loadReviewsFromJson();
+    }
+
+    /**
+     * Loads mock-reviews.json once, one movie at a time, so only a single movie's reviews
+     * are ever held as a JSON tree instead of the whole document.
+     */
+    private Map<Long, List<Review>> loadReviewsFromJson() {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mock-reviews.json")) {
             if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONObject reviewsData = new JSONObject(jsonContent);
-                if (reviewsData.has(String.valueOf(movieId))) {
-                    JSONArray movieReviews = reviewsData.getJSONArray(String.valueOf(movieId));
-                    for (int i = 0; i < movieReviews.length(); i++) {
-                        JSONObject reviewObj = movieReviews.getJSONObject(i);
-                        reviews.add(new Review(
-                            reviewObj.getString("userName"),
-                            reviewObj.getString("avatarEmoji"),
-                            reviewObj.getDouble("rating"),
-                            reviewObj.getString("comment")
-                        ));
-                    }
-                }
+                return readReviewsJson(inputStream);
             }
         } catch (Exception e) {
-            logger.error("Failed to load reviews for movie {}: {}", movieId, e.getMessage());
+            logger.error("Failed to load reviews from JSON: {}", e.getMessage());
+        }
+        return new HashMap<>();
+    }
+
+    static Map<Long, List<Review>> readReviewsJson(InputStream inputStream) {
+        Map<Long, List<Review>> index = new HashMap<>();
+        Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        readReviews(new JSONTokener(reader), index);
+        return index;
+    }
+
+    private static void readReviews(JSONTokener tokener, Map<Long, List<Review>> index) {
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("Reviews must be a JSON object keyed by movie id");
+        }
+        if (tokener.nextClean() == '}') {
+            return;
+        }
+        tokener.back();
+        while (true) {
+            String key = String.valueOf(tokener.nextValue());
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected ':' after movie id " + key);
+            }
+            JSONArray movieReviews = new JSONArray(tokener);
+            try {
+                index.put(Long.parseLong(key), toReviews(movieReviews));
+            } catch (NumberFormatException e) {
+                logger.warn("Skipping reviews with non-numeric movie id '{}'", key);
+            }
+
+            char next = tokener.nextClean();
+            if (next == '}') {
+                return;
+            }
+            if (next != ',') {
+                throw tokener.syntaxError("Expected ',' or '}' after reviews for movie " + key);
+            }
+        }
+    }
+
+    private static List<Review> toReviews(JSONArray movieReviews) {
+        Review[] reviews = new Review[movieReviews.length()];
+        for (int i = 0; i < reviews.length; i++) {
+            JSONObject reviewObj = movieReviews.getJSONObject(i);
+            reviews[i] = new Review(
+                reviewObj.getString("userName"),
+                reviewObj.getString("avatarEmoji"),
+                reviewObj.getDouble("rating"),
+                reviewObj.getString("comment")
+            );
+        }
+        return Collections.unmodifiableList(Arrays.asList(reviews));
+    }
+
+    /**
+     * Records a new review for a movie. With a log directory configured the review joins the next group
+     * commit and shows up once it is on disk; otherwise it shows up straight away and lasts until restart.
+     * Readers are never blocked either way.
+     *
+     * @param movieId The movie being reviewed; the caller checks that it exists
+     * @param review The review, with a rating from 1 to 5, a user name and a comment
+     * @return Completes with the movie's updated summary once the review is visible, or fails if it could not be logged
+     * @throws IllegalArgumentException If the review is incomplete or out of range
+     */
+    public CompletableFuture<ReviewSummary> submitReview(long movieId, Review review) {
+        validate(review);
+        if (log == null) {
+            apply(movieId, review);
+            return CompletableFuture.completedFuture(getReviewSummary(movieId));
+        }
+        return log.append(movieId, review).thenApply(committed -> getReviewSummary(movieId));
+    }
+
+    private static void validate(Review review) {
+        if (review.getUserName() == null || review.getUserName().trim().isEmpty()
+                || review.getUserName().length() > MAX_USER_NAME_LENGTH) {
+            throw new IllegalArgumentException("User name must be 1 to " + MAX_USER_NAME_LENGTH + " characters");
+        }
+        if (review.getComment() == null || review.getComment().trim().isEmpty()
+                || review.getComment().length() > MAX_COMMENT_LENGTH) {
+            throw new IllegalArgumentException("Comment must be 1 to " + MAX_COMMENT_LENGTH + " characters");
+        }
+        if (!isAvatar(review.getAvatarEmoji())) {
+            throw new IllegalArgumentException("Avatar must be an emoji of at most " + MAX_AVATAR_LENGTH + " characters");
+        }
+        if (!(review.getRating() >= 1.0 && review.getRating() <= 5.0)) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+    }
+
+    /**
+     * @return true for a short run of symbols: no letters, spaces or control characters, so a client cannot
+     *         pass off text, or a string too long for the log's record format, as an avatar
+     */
+    private static boolean isAvatar(String avatar) {
+        if (avatar == null || avatar.isEmpty() || avatar.length() > MAX_AVATAR_LENGTH) {
+            return false;
+        }
+        return avatar.codePoints().noneMatch(c -> Character.isLetter(c) || Character.isWhitespace(c)
+            || Character.isISOControl(c));
+    }
+
+    /**
+     * Publishes one committed review. Runs on the log writer, or on the caller without a log;
+     * compute keeps concurrent submissions for the same movie from losing one another.
+     */
+    private void apply(long movieId, Review review) {
+        long now = System.currentTimeMillis();
+        MovieReviews updated = reviewsByMovie.compute(movieId, (id, current) -> current == null
+            ? new MovieReviews(new Review[] {review}, ReviewSummary.EMPTY.plus(review.getRating()), now)
+            : current.plus(review, now));
+        for (Listener listener : listeners) {
+            try {
+                listener.reviewAdded(movieId, updated.summary);
+            } catch (RuntimeException e) {
+                // The review is already stored; a failing listener must not stop the log writer
+                logger.error("Blimey! Review listener failed for movie {}: {}", movieId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registers a listener for reviews published from now on.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return How long a submission may wait for its group commit
+     */
+    public Duration getCommitTimeout() {
+        return properties.getCommitTimeout();
+    }
+
+    /**
+     * @param movieId The movie to look up
+     * @return The movie's reviews in file order, then submitted ones in commit order; an immutable, possibly empty list
+     */
+    public List<Review> getReviewsForMovie(long movieId) {
+        MovieReviews reviews = reviewsByMovie.get(movieId);
+        return reviews != null ? reviews.list : Collections.<Review>emptyList();
+    }
+
+    /**
+     * @param movieId The movie to look up
+     * @return Precomputed count, mean rating and star histogram for the movie's reviews
+     */
+    public ReviewSummary getReviewSummary(long movieId) {
+        MovieReviews reviews = reviewsByMovie.get(movieId);
+        return reviews != null ? reviews.summary : ReviewSummary.EMPTY;
+    }
+
+    /**
+     * @param movieId The movie to look up
+     * @return When a review was last submitted for the movie in epoch millis, or 0 if none since startup
+     */
+    public long getReviewsUpdatedAt(long movieId) {
+        MovieReviews reviews = reviewsByMovie.get(movieId);
+        return reviews != null ? reviews.updatedAt : 0L;
+    }
+
+    /**
+     * Looks up the reviews of many movies in one call.
+     * @param movieIds The movies to look up; duplicates are answered once
+     * @return Each distinct id in request order mapped to its reviews, empty lists for movies without any
+     */
+    public Map<Long, List<Review>> getReviewsForMovies(long[] movieIds) {
+        Map<Long, List<Review>> reviews = new LinkedHashMap<>(movieIds.length * 2);
+        for (long movieId : movieIds) {
+            reviews.computeIfAbsent(movieId, this::getReviewsForMovie);
         }
         return reviews;
     }
+
+    /**
+     * Looks up the review summaries of many movies in one call.
+     * @param movieIds The movies to look up; duplicates are answered once
+     * @return Each distinct id in request order mapped to its summary, {@link ReviewSummary#EMPTY} without reviews
+     */
+    public Map<Long, ReviewSummary> getReviewSummaries(long[] movieIds) {
+        Map<Long, ReviewSummary> summaries = new LinkedHashMap<>(movieIds.length * 2);
+        for (long movieId : movieIds) {
+            summaries.computeIfAbsent(movieId, this::getReviewSummary);
+        }
+        return summaries;
+    }
+
+    /**
+     * One movie's reviews and their summary, replaced as a whole so readers always see the two agree.
+     * <p>
+     * Successive entries for a movie share one array that doubles when full, so a submission costs a
+     * slot rather than a copy of every earlier review. Each entry only shows the first {@code count}
+     * slots, which never change once filled; a new review goes into the first free slot under the map's
+     * compute lock and becomes visible to readers with the entry that counts it.
+     */
+    private static final class MovieReviews {
+        private final Review[] reviews;
+        private final List<Review> list;
+        private final ReviewSummary summary;
+        private final long updatedAt;
+
+        MovieReviews(Review[] reviews, ReviewSummary summary, long updatedAt) {
+            this(reviews, reviews.length, summary, updatedAt);
+        }
+
+        private MovieReviews(Review[] reviews, int count, ReviewSummary summary, long updatedAt) {
+            this.reviews = reviews;
+            this.list = new ReviewList(reviews, count);
+            this.summary = summary;
+            this.updatedAt = updatedAt;
+        }
+
+        /**
+         * Only ever called on the movie's current entry, from inside compute.
+         */
+        MovieReviews plus(Review review, long now) {
+            int count = list.size();
+            Review[] next = count < reviews.length ? reviews : Arrays.copyOf(reviews, Math.max(4, count * 2));
+            next[count] = review;
+            return new MovieReviews(next, count + 1, summary.plus(review.getRating()), now);
+        }
+    }
+
+    /**
+     * Read-only view of the first {@code size} reviews of a shared array.
+     */
+    private static final class ReviewList extends AbstractList<Review> implements RandomAccess {
+        private final Review[] reviews;
+        private final int size;
+
+        ReviewList(Review[] reviews, int size) {
+            this.reviews = reviews;
+            this.size = size;
+        }
+
+        @Override
+        public Review get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            }
+            return reviews[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.List;
+
+/**
+ * Precomputed rating aggregates for one movie's reviews.
+ * Built once when the reviews are indexed so the details page never has to walk the review list.
+ */
+public class ReviewSummary {
+
+    public static final ReviewSummary EMPTY = new ReviewSummary(0, 0.0, new int[5]);
+
+    private final int count;
+    private final double totalRating;
+    private final double averageRating;
+    private final int[] histogram;
+
+    private ReviewSummary(int count, double totalRating, int[] histogram) {
+        this.count = count;
+        this.totalRating = totalRating;
+        this.averageRating = count > 0 ? totalRating / count : 0.0;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Builds the aggregates for a list of reviews.
+     * @param reviews The reviews of a single movie
+     * @return The summary, or {@link #EMPTY} when there are no reviews
+     */
+    public static ReviewSummary of(List<Review> reviews) {
+        if (reviews == null || reviews.isEmpty()) {
+            return EMPTY;
+        }
+        int[] histogram = new int[5];
+        double total = 0.0;
+        for (Review review : reviews) {
+            total += review.getRating();
+            histogram[starBucket(review.getRating())]++;
+        }
+        return new ReviewSummary(reviews.size(), total, histogram);
+    }
+
+    /**
+     * Folds one more review into the aggregates without revisiting the earlier ones.
+     * @param rating The new review's rating
+     * @return A new summary; this one is left as it is
+     */
+    ReviewSummary plus(double rating) {
+        int[] next = histogram.clone();
+        next[starBucket(rating)]++;
+        return new ReviewSummary(count + 1, totalRating + rating, next);
+    }
+
+    private static int starBucket(double rating) {
+        int stars = (int) Math.floor(rating);
+        return Math.max(1, Math.min(5, stars)) - 1;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public double getAverageRating() {
+        return this.averageRating;
+    }
+
+    /**
+     * @return Review counts per whole star, index 0 holding 1-star reviews and index 4 holding 5-star reviews
+     */
+    public int[] getHistogram() {
+        return this.histogram.clone();
+    }
+
+    /**
+     * @param stars Whole star value between 1 and 5
+     * @return Number of reviews whose rating rounds down to the given star value
+     */
+    public int getStarCount(int stars) {
+        if (stars < 1 || stars > 5) {
+            return 0;
+        }
+        return this.histogram[stars - 1];
+    }
+}
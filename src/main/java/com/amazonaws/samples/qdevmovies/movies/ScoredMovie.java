@@ -0,0 +1,27 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * A movie returned by a ranked search or a similar-titles lookup together with its score.
+ */
+public class ScoredMovie {
+
+    private final Movie movie;
+    private final float score;
+
+    public ScoredMovie(Movie movie, float score) {
+        this.movie = movie;
+        this.score = score;
+    }
+
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /**
+     * @return BM25 relevance for a search, cosine similarity for similar titles; only comparable between
+     *         results of the same query
+     */
+    public float getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,106 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.BitSet;
+
+/**
+ * Remembers which catalogue positions match each recently seen search, so the handful of popular
+ * filter combinations (and the empty browse-all query) skip the index work entirely.
+ * Eviction be W-TinyLFU, which keeps the steady favourites over one-off queries, bounded by the bytes
+ * the cached bit sets take rather than by entry count, since their size grows with the catalogue.
+ * <p>
+ * Keys carry the catalogue version, so a result computed against an old snapshot can never be served
+ * for a new one; {@link #invalidateAll()} just frees the memory of the old entries sooner.
+ * Cached bit sets are shared between callers and must not be modified.
+ */
+final class SearchResultCache {
+
+    /** Rough per-entry bookkeeping on top of the bit set's words */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Cache<Key, BitSet> cache;
+
+    /**
+     * @param maxBytes Memory budget for cached results; zero or less disables caching
+     */
+    SearchResultCache(long maxBytes) {
+        this.cache = maxBytes <= 0 ? null : Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Key key, BitSet matches) -> ENTRY_OVERHEAD_BYTES + matches.size() / Byte.SIZE)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * @return The positions in the catalogue matching the criteria, from cache when seen before
+     */
+    BitSet match(MovieCatalog catalog, String name, Long id, String genre) {
+        return match(catalog, MovieFilter.of(name, id, genre));
+    }
+
+    /**
+     * @return The positions in the catalogue matching the filter, from cache when seen before
+     */
+    BitSet match(MovieCatalog catalog, MovieFilter filter) {
+        if (cache == null) {
+            return catalog.match(filter);
+        }
+        return cache.get(new Key(catalog.getVersion(), filter), k -> catalog.match(k.filter));
+    }
+
+    void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return Hit, miss and eviction counts since startup; all zero when caching is off
+     */
+    CacheStats stats() {
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    /**
+     * Publishes the cache's statistics as the {@code cache.*} meters tagged {@code cache=movies.search}.
+     */
+    void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "movies.search");
+        }
+    }
+
+    private static final class Key {
+        private final long version;
+        private final MovieFilter filter;
+        private final int hash;
+
+        Key(long version, MovieFilter filter) {
+            this.version = version;
+            this.filter = filter;
+            this.hash = 31 * Long.hashCode(version) + filter.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && filter.equals(other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
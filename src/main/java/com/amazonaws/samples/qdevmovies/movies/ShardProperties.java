@@ -0,0 +1,46 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings under {@code movies.shards} for coordinating searches across instances that each serve one
+ * partition of the catalogue (see {@code movies.catalogue.shard-count}).
+ */
+@Component
+@ConfigurationProperties(prefix = "movies.shards")
+public class ShardProperties {
+
+    /**
+     * Base URL of every shard in shard-index order, e.g. http://localhost:8082; when empty, sharded searches
+     * run locally
+     */
+    private List<String> peers = new ArrayList<>();
+
+    /** How long a sharded search waits for the shards before answering with what it has */
+    private Duration timeout = Duration.ofMillis(500);
+
+    public List<String> getPeers() {
+        return peers;
+    }
+
+    public void setPeers(List<String> peers) {
+        this.peers = peers;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    boolean hasPeers() {
+        return peers != null && !peers.isEmpty();
+    }
+}
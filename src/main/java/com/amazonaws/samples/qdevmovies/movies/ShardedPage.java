@@ -0,0 +1,104 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of search results gathered from every shard, plus how each shard fared.
+ */
+public class ShardedPage {
+
+    private final MoviePage page;
+    private final List<Shard> shards;
+
+    public ShardedPage(MoviePage page, List<Shard> shards) {
+        this.page = page;
+        this.shards = Collections.unmodifiableList(shards);
+    }
+
+    /**
+     * @return The merged page; counts and movies only cover the shards that answered
+     */
+    public MoviePage getPage() {
+        return page;
+    }
+
+    /**
+     * @return One entry per configured shard, in configuration order; empty when the search ran locally
+     */
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * @return Whether some shard did not answer in time or failed, so matches may be missing
+     */
+    public boolean isPartial() {
+        for (Shard shard : shards) {
+            if (shard.getStatus() != Shard.Status.OK) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether there were shards to ask and none of them answered
+     */
+    public boolean isUnavailable() {
+        for (Shard shard : shards) {
+            if (shard.getStatus() == Shard.Status.OK) {
+                return false;
+            }
+        }
+        return !shards.isEmpty();
+    }
+
+    /**
+     * The outcome of asking one shard.
+     */
+    public static class Shard {
+
+        public enum Status { OK, TIMEOUT, ERROR }
+
+        private final int index;
+        private final String url;
+        private final Status status;
+        private final int totalCount;
+        private final long tookMillis;
+
+        public Shard(int index, String url, Status status, int totalCount, long tookMillis) {
+            this.index = index;
+            this.url = url;
+            this.status = status;
+            this.totalCount = totalCount;
+            this.tookMillis = tookMillis;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return Matches on this shard; 0 unless it answered
+         */
+        public int getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * @return Time until the shard answered, or until the coordinator stopped waiting for it
+         */
+        public long getTookMillis() {
+            return tookMillis;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.VirtualThreads;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Scatter-gather search over instances that each serve one partition of the catalogue
+ * ({@code movies.catalogue.shard-count} and {@code shard-index}). Every shard listed in
+ * {@code movies.shards.peers} is asked for the same page of {@code /movies/search} at once, and their
+ * sorted pages are merged into one.
+ * <p>
+ * Cursors are keyset positions (sort key and id) that mean the same on every shard, so the merged page's
+ * cursor is simply the position of its last movie and each shard resumes from there on the next request.
+ * Shards that have not answered by {@code movies.shards.timeout} are left out and the page is marked
+ * partial; the same goes for shards that fail.
+ */
+@Component
+public class ShardedSearch {
+    private static final Logger logger = LogManager.getLogger(ShardedSearch.class);
+
+    private final ShardProperties properties;
+    private final MovieService movieService;
+    private final ObjectMapper objectMapper;
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ShardedSearch(ShardProperties properties, MovieService movieService, ObjectMapper objectMapper,
+                         RestTemplateBuilder restTemplateBuilder) {
+        this.properties = properties;
+        this.movieService = movieService;
+        this.objectMapper = objectMapper;
+        // A shard still talking after the deadline is abandoned, so its thread must not hang on much longer
+        this.restTemplate = restTemplateBuilder
+            .setConnectTimeout(properties.getTimeout())
+            .setReadTimeout(properties.getTimeout())
+            .build();
+        this.executor = VirtualThreads.newThreadPerTaskExecutor().orElseGet(() -> Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-search");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fetches one page of matches from all shards.
+     *
+     * @param filter The search criteria
+     * @param sort The ordering to page through; null means {@link MovieSort#ID}
+     * @param cursor The next cursor of the previous merged page, or null for the first page
+     * @param pageSize Maximum movies on the page, clamped to 1..{@value MovieService#MAX_PAGE_SIZE}
+     * @return The merged page and each shard's outcome; answered from this instance alone when no peers are configured
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort order
+     */
+    public ShardedPage search(MovieFilter filter, MovieSort sort, String cursor, int pageSize) {
+        MovieSort order = sort != null ? sort : MovieSort.ID;
+        int size = Math.max(1, Math.min(MovieService.MAX_PAGE_SIZE, pageSize));
+        if (!properties.hasPeers()) {
+            return new ShardedPage(movieService.getMoviesPage(filter, order, cursor, size),
+                Collections.<ShardedPage.Shard>emptyList());
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            // Rejected here rather than by every shard at once
+            MovieCursor.decode(cursor, order);
+        }
+
+        List<String> peers = properties.getPeers();
+        long started = System.nanoTime();
+        long deadline = started + properties.getTimeout().toNanos();
+        List<CompletableFuture<Answer>> calls = new ArrayList<>(peers.size());
+        for (String peer : peers) {
+            URI uri = searchUri(peer, filter, order, cursor, size);
+            calls.add(CompletableFuture.supplyAsync(() -> fetch(uri, order), executor));
+        }
+
+        List<MoviePage> pages = new ArrayList<>(peers.size());
+        List<ShardedPage.Shard> shards = new ArrayList<>(peers.size());
+        for (int i = 0; i < calls.size(); i++) {
+            ShardedPage.Shard.Status status;
+            Answer answer = null;
+            try {
+                answer = calls.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                status = ShardedPage.Shard.Status.OK;
+                pages.add(answer.page);
+            } catch (TimeoutException e) {
+                calls.get(i).cancel(true);
+                status = ShardedPage.Shard.Status.TIMEOUT;
+                logger.warn("Shard {} at {} did not answer within {}", i, peers.get(i), properties.getTimeout());
+            } catch (ExecutionException e) {
+                status = ShardedPage.Shard.Status.ERROR;
+                logger.warn("Shard {} at {} failed: {}", i, peers.get(i), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                status = ShardedPage.Shard.Status.ERROR;
+            }
+            shards.add(new ShardedPage.Shard(i, peers.get(i), status,
+                answer != null ? answer.page.getTotalCount() : 0,
+                TimeUnit.NANOSECONDS.toMillis(answer != null ? answer.tookNanos : System.nanoTime() - started)));
+        }
+        return new ShardedPage(merge(pages, order, size), shards);
+    }
+
+    /**
+     * Finds one movie wherever it is stored: on this instance, or else on the shard its id hashes to.
+     * Peers are listed in shard-index order, so that shard is the peer at the same position.
+     *
+     * @return The movie, or empty when its shard does not have it or does not answer in time
+     */
+    public Optional<Movie> findMovie(long id) {
+        Optional<Movie> local = movieService.getMovieById(id);
+        if (local.isPresent() || !properties.hasPeers()) {
+            return local;
+        }
+        List<String> peers = properties.getPeers();
+        String owner = peers.get(CatalogueProperties.shardOf(id, peers.size()));
+        try {
+            for (Movie movie : fetch(searchUri(owner, MovieFilter.of(null, id, null), MovieSort.ID, null, 1),
+                    MovieSort.ID).page.getMovies()) {
+                if (movie.getId() == id) {
+                    return Optional.of(movie);
+                }
+            }
+        } catch (RestClientException | UncheckedIOException e) {
+            logger.warn("Shard at {} could not be asked for movie {}: {}", owner, id, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Merges pages that are each sorted by the same ordering into one page of at most {@code pageSize} movies.
+     * Partitions are disjoint, so no movie appears twice.
+     */
+    static MoviePage merge(List<MoviePage> pages, MovieSort sort, int pageSize) {
+        int totalCount = 0;
+        boolean more = false;
+        for (MoviePage page : pages) {
+            totalCount += page.getTotalCount();
+            more |= page.getNextCursor() != null;
+        }
+        int[] heads = new int[pages.size()];
+        List<Movie> movies = new ArrayList<>(pageSize);
+        while (true) {
+            // k-way merge over a handful of shards: a linear scan of the heads beats a heap
+            int best = -1;
+            for (int i = 0; i < heads.length; i++) {
+                List<Movie> shard = pages.get(i).getMovies();
+                if (heads[i] < shard.size()
+                        && (best < 0 || sort.compare(shard.get(heads[i]), pages.get(best).getMovies().get(heads[best])) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            if (movies.size() == pageSize) {
+                more = true;
+                break;
+            }
+            movies.add(pages.get(best).getMovies().get(heads[best]++));
+        }
+        String nextCursor = more && !movies.isEmpty()
+            ? MovieCursor.after(sort, movies.get(movies.size() - 1)).encode() : null;
+        return new MoviePage(movies, totalCount, pageSize, sort, nextCursor);
+    }
+
+    private static URI searchUri(String peer, MovieFilter filter, MovieSort sort, String cursor, int size) {
+        UriComponentsBuilder uri = UriComponentsBuilder.fromHttpUrl(peer).path("/movies/search");
+        addParam(uri, "name", filter.getName());
+        addParam(uri, "id", filter.getId());
+        addParam(uri, "genre", filter.getGenre());
+        addParam(uri, "director", filter.getDirector());
+        addParam(uri, "minYear", filter.getMinYear());
+        addParam(uri, "maxYear", filter.getMaxYear());
+        addParam(uri, "minDuration", filter.getMinDuration());
+        addParam(uri, "maxDuration", filter.getMaxDuration());
+        addParam(uri, "minRating", filter.getMinRating());
+        addParam(uri, "sort", sort.getParameter());
+        addParam(uri, "cursor", cursor != null && !cursor.isEmpty() ? cursor : null);
+        addParam(uri, "size", size);
+        return uri.build().encode().toUri();
+    }
+
+    private static void addParam(UriComponentsBuilder uri, String name, Object value) {
+        if (value != null) {
+            uri.queryParam(name, value);
+        }
+    }
+
+    /**
+     * Asks one shard for its page and reads the movies back out of the JSON response.
+     */
+    private Answer fetch(URI uri, MovieSort sort) {
+        long started = System.nanoTime();
+        String body = restTemplate.getForObject(uri, String.class);
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Movie> movies = new ArrayList<>();
+        for (JsonNode movie : root.path("movies")) {
+            movies.add(new Movie(
+                movie.path("id").asLong(),
+                movie.path("movieName").asText(null),
+                movie.path("director").asText(null),
+                movie.path("year").asInt(),
+                movie.path("genre").asText(null),
+                movie.path("description").asText(null),
+                movie.path("duration").asInt(),
+                movie.path("imdbRating").asDouble(),
+                movie.path("icon").asText(null)));
+        }
+        JsonNode nextCursor = root.path("nextCursor");
+        MoviePage page = new MoviePage(movies, root.path("totalCount").asInt(), root.path("pageSize").asInt(), sort,
+            nextCursor.isTextual() ? nextCursor.asText() : null);
+        return new Answer(page, System.nanoTime() - started);
+    }
+
+    private static final class Answer {
+        private final MoviePage page;
+        private final long tookNanos;
+
+        Answer(MoviePage page, long tookNanos) {
+            this.page = page;
+            this.tookNanos = tookNanos;
+        }
+    }
+}
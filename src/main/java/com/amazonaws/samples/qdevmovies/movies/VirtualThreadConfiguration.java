@@ -0,0 +1,62 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.VirtualThreads;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in execution mode ({@code movies.web.virtual-threads=true}) that runs every request, and every
+ * streamed search body, on its own JDK 21 virtual thread instead of Tomcat's bounded worker pool.
+ * A request parked on a slow client or a blocking lookup then costs a few hundred bytes rather than one
+ * of {@code server.tomcat.threads.max} threads, so concurrency is capped by
+ * {@code server.tomcat.max-connections} instead. On an older JDK the pool stays and a warning is logged.
+ */
+@Configuration
+@ConditionalOnProperty(name = "movies.web.virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+    private static final Logger logger = LogManager.getLogger(VirtualThreadConfiguration.class);
+
+    private final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor().orElse(null);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadExecutorCustomizer() {
+        return protocolHandler -> {
+            if (executor == null) {
+                logger.warn("Virtual threads need JDK 21 or later, this be {}; keepin' the Tomcat thread pool",
+                    System.getProperty("java.version"));
+                return;
+            }
+            protocolHandler.setExecutor(executor);
+            logger.info("Ahoy! Servin' requests on virtual threads");
+        };
+    }
+
+    /**
+     * Streaming responses run on the MVC async executor, which would otherwise be a small platform pool.
+     * Registered after Spring Boot's own configurer, so this one wins.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (executor != null) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web tier wiring for the movie endpoints.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    private MovieMetrics movieMetrics;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private PageFragmentCache pageFragments;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerTimingInterceptor(movieMetrics)).addPathPatterns("/movies", "/movies/**");
+        registry.addInterceptor(new AccessLogInterceptor()).addPathPatterns("/movies", "/movies/**");
+    }
+
+    /**
+     * ETags, Cache-Control and stored gzip bodies for the catalogue pages; on together with the fragment
+     * cache, since in development templates change under the same catalogue version.
+     */
+    @Bean
+    public FilterRegistrationBean<CatalogueResponseFilter> catalogueResponseFilter(RenderProperties renderProperties) {
+        FilterRegistrationBean<CatalogueResponseFilter> registration = new FilterRegistrationBean<>(
+            new CatalogueResponseFilter(movieService, reviewService, pageFragments, renderProperties));
+        registration.addUrlPatterns("/movies", "/movies/*");
+        registration.setEnabled(pageFragments.isEnabled());
+        return registration;
+    }
+}
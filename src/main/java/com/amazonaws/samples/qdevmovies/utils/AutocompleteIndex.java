@@ -0,0 +1,552 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Search-as-you-type over a fixed list of titles, tolerant of typos.
+ * <p>
+ * Titles are normalised to lowercase words separated by single spaces and kept as UTF-8 bytes in one
+ * {@link Utf8Column}, compared byte by byte rather than held as a String each. Every word start of every
+ * title is a key in one sorted array, so the keys starting with a query form a single range found by
+ * binary search: "dream he" matches "Dream Heist" and "heis" matches it too. A segment tree over that
+ * array holds the most popular title of every subrange, so the best {@code limit} titles of a range
+ * come out in O(limit log n) however wide the range is.
+ * <p>
+ * When too few titles start with the query it is matched word by word instead. Each word may be
+ * misspelt, found through a SymSpell deletion index over the title vocabulary: every word is stored
+ * with all its variants of as many deleted characters as typos it allows (two from six letters, one
+ * from three), so candidates within the edit distance are found by hashing the query's own deletions,
+ * never by comparing against the whole vocabulary. The last word may also be unfinished and matches
+ * any vocabulary word it prefixes. Titles containing a candidate of every word are found by leapfrogging
+ * through per-word postings kept in popularity order, so the search skips ahead past titles missing a
+ * word and stops as soon as {@code limit} are found.
+ */
+public class AutocompleteIndex {
+
+    private static final int MAX_EDITS = 2;
+    private static final int MAX_CORRECTIONS = 8;
+    private static final int MAX_PREFIX_WORDS = 16;
+    // Work budget per query: common words that rarely occur together could otherwise leapfrog through
+    // most of their postings, and a dropdown is better served fast with the most popular matches found so far
+    private static final int MAX_PROBES = 4096;
+    // Typing "the" should not rank every title with a "the" in the middle ahead of those starting with it
+    private static final Set<String> UNINDEXED_WORDS = new HashSet<>(Arrays.asList("a", "an", "and", "of", "the"));
+
+    private final Utf8Column titles;
+    private final int[] rank;
+    private final int[] order;
+    private final long[] keys;
+    private final int[] best;
+    private final String[] words;
+    private final int[][] wordRanks;
+    private final int wordBits;
+    private final long[] deletions;
+
+    /**
+     * @param values The titles; the position of each title is what suggestions return
+     * @param rank Popularity rank of each position, 0 being the most popular; must be a permutation of 0..n-1
+     */
+    public AutocompleteIndex(String[] values, int[] rank) {
+        int n = values.length;
+        String[] normalized = new String[n];
+        this.rank = rank;
+        this.order = new int[n];
+        for (int pos = 0; pos < n; pos++) {
+            normalized[pos] = normalize(values[pos]);
+            order[rank[pos]] = pos;
+        }
+        this.titles = Utf8Column.of(normalized);
+
+        // Keys: position in the high bits, byte offset of the word start in the low 16
+        LongList starts = new LongList();
+        for (int pos = 0; pos < n; pos++) {
+            int offset = 0;
+            for (String word : normalized[pos].split(" ")) {
+                if (offset > 0xFFFF) {
+                    break;
+                }
+                if (!word.isEmpty() && (offset == 0 || !UNINDEXED_WORDS.contains(word))) {
+                    starts.add((long) pos << 16 | offset);
+                }
+                offset += utf8Length(word) + 1;
+            }
+        }
+        this.keys = Arrays.copyOf(starts.values, starts.size);
+        sortKeys(keys, 0, keys.length, new long[keys.length]);
+
+        // Bottom-up segment tree: leaves at keys.length.., each inner node the more popular of its children
+        this.best = new int[Math.max(2, 2 * keys.length)];
+        for (int i = 0; i < keys.length; i++) {
+            best[keys.length + i] = i;
+        }
+        for (int node = keys.length - 1; node > 0; node--) {
+            best[node] = better(best[2 * node], best[2 * node + 1]);
+        }
+
+        // Vocabulary with postings in rank order, so walking a posting list visits the most popular titles first
+        Map<String, IntList> postings = new HashMap<>();
+        for (int r = 0; r < n; r++) {
+            for (String word : normalized[order[r]].split(" ")) {
+                if (!word.isEmpty()) {
+                    IntList list = postings.computeIfAbsent(word, w -> new IntList());
+                    if (list.size == 0 || list.values[list.size - 1] != r) {
+                        list.add(r);
+                    }
+                }
+            }
+        }
+        this.words = postings.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        this.wordRanks = new int[words.length][];
+        // Deletion variants as one sorted array of hash and word id, rather than a map of strings: a
+        // vocabulary of long words has tens of variants per word. Ids take the low bits, so all the words
+        // sharing a variant sit together. A hash collision only adds a candidate that fails the distance check.
+        this.wordBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, words.length - 1));
+        LongList variants = new LongList();
+        for (int w = 0; w < words.length; w++) {
+            wordRanks[w] = postings.get(words[w]).toArray();
+            for (String variant : deletions(words[w], allowedEdits(words[w].length()))) {
+                variants.add(hash(variant) << wordBits | w);
+            }
+        }
+        this.deletions = Arrays.copyOf(variants.values, variants.size);
+        Arrays.sort(deletions);
+    }
+
+    /**
+     * @return Number of indexed titles
+     */
+    public int size() {
+        return titles.size();
+    }
+
+    /**
+     * @return Number of distinct words across all titles
+     */
+    public int vocabularySize() {
+        return words.length;
+    }
+
+    /**
+     * Suggests titles for what has been typed so far.
+     * @param query The text typed so far
+     * @param limit Maximum number of suggestions
+     * @return Titles starting with the query (or with a word of the query onwards), most popular first,
+     *         followed if there are too few by titles matching every word allowing for typos
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Suggestion> suggestions = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+        completePrefix(q, limit, suggestions, seen);
+        if (suggestions.size() < limit) {
+            matchWords(q.split(" "), limit, suggestions, seen);
+        }
+        return suggestions;
+    }
+
+    private void completePrefix(String query, int limit, List<Suggestion> out, Set<Integer> seen) {
+        byte[] q = query.getBytes(StandardCharsets.UTF_8);
+        int from = boundary(q, false);
+        int to = boundary(q, true);
+        if (from >= to) {
+            return;
+        }
+        // Best-first over subranges: take the range's most popular key, then split around it
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> Integer.compare(rankOfKey(a[2]), rankOfKey(b[2])));
+        ranges.add(new int[] {from, to, bestIn(from, to)});
+        while (!ranges.isEmpty() && out.size() < limit) {
+            int[] range = ranges.poll();
+            int key = range[2];
+            int pos = (int) (keys[key] >>> 16);
+            if (seen.add(pos)) {
+                out.add(new Suggestion(pos, true));
+            }
+            if (range[0] < key) {
+                ranges.add(new int[] {range[0], key, bestIn(range[0], key)});
+            }
+            if (key + 1 < range[1]) {
+                ranges.add(new int[] {key + 1, range[1], bestIn(key + 1, range[1])});
+            }
+        }
+    }
+
+    private void matchWords(String[] queryWords, int limit, List<Suggestion> out, Set<Integer> seen) {
+        int[][][] candidates = new int[queryWords.length][][];
+        int[][] cursors = new int[queryWords.length][];
+        for (int i = 0; i < queryWords.length; i++) {
+            Set<Integer> ids = corrections(queryWords[i]);
+            if (i == queryWords.length - 1) {
+                ids.addAll(completions(queryWords[i]));
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            candidates[i] = new int[ids.size()][];
+            cursors[i] = new int[ids.size()];
+            int c = 0;
+            for (int id : ids) {
+                candidates[i][c++] = wordRanks[id];
+            }
+        }
+
+        // Leapfrog over the rank-ordered postings: each word jumps to its first title at or after the
+        // current rank, and the rank moves to the furthest of those until every word lands on the same one
+        int r = 0;
+        int probes = 0;
+        while (out.size() < limit && probes++ < MAX_PROBES) {
+            int target = r;
+            for (int i = 0; i < candidates.length; i++) {
+                int next = Integer.MAX_VALUE;
+                for (int l = 0; l < candidates[i].length; l++) {
+                    int[] list = candidates[i][l];
+                    int cursor = seek(list, cursors[i][l], target);
+                    cursors[i][l] = cursor;
+                    if (cursor < list.length) {
+                        next = Math.min(next, list[cursor]);
+                    }
+                }
+                if (next == Integer.MAX_VALUE) {
+                    return;
+                }
+                target = Math.max(target, next);
+            }
+            if (target == r) {
+                if (seen.add(order[r])) {
+                    out.add(new Suggestion(order[r], false));
+                }
+                r++;
+            } else {
+                r = target;
+            }
+        }
+    }
+
+    /**
+     * Gallops forward from {@code from} to the first element not below {@code target}.
+     * @return Its index, or the list length if there is none
+     */
+    private static int seek(int[] list, int from, int target) {
+        if (from >= list.length || list[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < list.length && list[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        int i = Arrays.binarySearch(list, low + 1, Math.min(low + step + 1, list.length), target);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Finds the vocabulary words closest to a word within the allowed edit distance, commonest first.
+     * The distance allowed is that of the shorter of the two words, which is also as many deletions as
+     * either side was indexed with. Only the closest distance found is kept, so a correctly spelt word
+     * matches just itself.
+     */
+    private Set<Integer> corrections(String word) {
+        int maxEdits = allowedEdits(word.length());
+        int closest = maxEdits;
+        Map<Integer, Integer> distances = new HashMap<>();
+        long idMask = (1L << wordBits) - 1;
+        for (String variant : deletions(word, maxEdits)) {
+            long key = hash(variant) << wordBits;
+            int i = Arrays.binarySearch(deletions, key);
+            for (i = i >= 0 ? i : -i - 1; i < deletions.length && (deletions[i] & ~idMask) == key; i++) {
+                int id = (int) (deletions[i] & idMask);
+                if (!distances.containsKey(id)) {
+                    int allowed = Math.min(closest, allowedEdits(words[id].length()));
+                    int distance = editDistance(word, words[id], allowed);
+                    if (distance <= allowed) {
+                        closest = Math.min(closest, distance);
+                    } else {
+                        // Too far for the shorter word's allowance, however close it is to the query's
+                        distance = Integer.MAX_VALUE;
+                    }
+                    distances.put(id, distance);
+                }
+            }
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : distances.entrySet()) {
+            if (entry.getValue() == closest) {
+                ids.add(entry.getKey());
+            }
+        }
+        ids.sort((a, b) -> Integer.compare(wordRanks[b].length, wordRanks[a].length));
+        return new LinkedHashSet<>(ids.subList(0, Math.min(MAX_CORRECTIONS, ids.size())));
+    }
+
+    /**
+     * @return Vocabulary words the unfinished word is a proper prefix of
+     */
+    private List<Integer> completions(String prefix) {
+        List<Integer> ids = new ArrayList<>();
+        int w = Arrays.binarySearch(words, prefix);
+        for (w = w >= 0 ? w + 1 : -w - 1; w < words.length && ids.size() < MAX_PREFIX_WORDS && words[w].startsWith(prefix); w++) {
+            ids.add(w);
+        }
+        return ids;
+    }
+
+    /**
+     * Short words get fewer typos, or "cat" would match every three-letter word. Each vocabulary word is
+     * indexed with this many deletions, so only words of six letters or more pay for the C(n, 2)
+     * two-deletion variants.
+     */
+    private static int allowedEdits(int length) {
+        return length < 3 ? 0 : length < 6 ? 1 : MAX_EDITS;
+    }
+
+    /**
+     * @return The word itself and every string made by deleting up to {@code maxEdits} characters from it
+     */
+    static Set<String> deletions(String word, int maxEdits) {
+        Set<String> variants = new HashSet<>();
+        variants.add(word);
+        List<String> frontier = Collections.singletonList(word);
+        for (int d = 0; d < maxEdits; d++) {
+            List<String> next = new ArrayList<>();
+            for (String s : frontier) {
+                for (int i = 0; i < s.length(); i++) {
+                    String variant = s.substring(0, i) + s.substring(i + 1);
+                    if (variants.add(variant)) {
+                        next.add(variant);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return variants;
+    }
+
+    /**
+     * 64-bit FNV-1a; the index keeps as many of the low bits as the word ids leave room for.
+     */
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Optimal string alignment distance: insertions, deletions, substitutions and adjacent transpositions.
+     * @return The distance, or {@code max + 1} as soon as it is known to exceed {@code max}
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, previous2[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Lowercases and turns every run of characters other than letters and digits into a single space.
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean space = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @param past false for the first key starting with the query or after it, true for the first key after all those starting with it
+     */
+    private int boundary(byte[] q, boolean past) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = titles.comparePrefix((int) (keys[mid] >>> 16), (int) (keys[mid] & 0xFFFF), q);
+            if (cmp < 0 || past && cmp == 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareKeys(long a, long b) {
+        int cmp = titles.compare((int) (a >>> 16), (int) (a & 0xFFFF), (int) (b >>> 16), (int) (b & 0xFFFF));
+        return cmp != 0 ? cmp : Integer.compare(rank[(int) (a >>> 16)], rank[(int) (b >>> 16)]);
+    }
+
+    /**
+     * Normalised text holds no surrogates, which are neither letters nor digits as single chars.
+     */
+    private static int utf8Length(String word) {
+        int length = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * Merge sort of keys by their text, on the primitive array: sorting boxed keys would allocate an
+     * object per word start. Short runs are insertion-sorted.
+     */
+    private void sortKeys(long[] a, int from, int to, long[] scratch) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                long key = a[i];
+                int j = i - 1;
+                for (; j >= from && compareKeys(a[j], key) > 0; j--) {
+                    a[j + 1] = a[j];
+                }
+                a[j + 1] = key;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortKeys(a, from, mid, scratch);
+        sortKeys(a, mid, to, scratch);
+        if (compareKeys(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, from, scratch, from, to - from);
+        for (int i = from, l = from, r = mid; i < to; i++) {
+            a[i] = r >= to || l < mid && compareKeys(scratch[l], scratch[r]) <= 0 ? scratch[l++] : scratch[r++];
+        }
+    }
+
+    private int rankOfKey(int key) {
+        return rank[(int) (keys[key] >>> 16)];
+    }
+
+    private int better(int a, int b) {
+        return rankOfKey(a) <= rankOfKey(b) ? a : b;
+    }
+
+    /**
+     * @return The key in {@code [from, to)} whose title is the most popular
+     */
+    private int bestIn(int from, int to) {
+        int result = from;
+        for (int l = from + keys.length, r = to + keys.length; l < r; l >>>= 1, r >>>= 1) {
+            if ((l & 1) == 1) {
+                result = better(result, best[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = better(result, best[--r]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A suggested title.
+     */
+    public static final class Suggestion {
+        private final int position;
+        private final boolean prefix;
+
+        Suggestion(int position, boolean prefix) {
+            this.position = position;
+            this.prefix = prefix;
+        }
+
+        /**
+         * @return Position of the title in the array the index was built from
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return true if the title, or a run of its words, starts with the query exactly; false if it
+         *         matched word by word, possibly after correcting typos
+         */
+        public boolean isPrefix() {
+            return prefix;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
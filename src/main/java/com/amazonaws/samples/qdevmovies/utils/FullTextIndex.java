@@ -0,0 +1,496 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index ranking documents against free-text queries with BM25.
+ * <p>
+ * Each document is a fixed list of fields; a term's frequency in a document is the sum of its
+ * occurrences weighted by field, so a title hit counts for more than a description hit. Text is split
+ * on anything that is not a letter or digit, lowercased, stripped of stop words and reduced with a
+ * light English suffix stemmer, at build time and query time alike.
+ * <p>
+ * Each posting stores its document's length-normalised BM25 term weight, so a query only multiplies
+ * it by the term's idf and adds it up. The best {@code limit} documents are kept in a bounded heap and
+ * the rest are pruned with MaxScore: every term also stores its largest weight, overall and per block
+ * of postings. Terms whose bounds together cannot lift a document past the heap's weakest entry stop
+ * being read and are only looked up for documents the other terms found, and blocks that cannot either
+ * are skipped whole. The remaining terms are added up a window of documents at a time into a small
+ * array, so dense queries keep the speed of plain accumulation. A common word then reads little more
+ * than the postings that fill the heap; several equally common words still read most of theirs.
+ * The last query word also matches as a prefix of the words seen at build time, which lets a search
+ * box rank while the user is still typing.
+ */
+public class FullTextIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // Prefix expansions count for less than the word itself and are capped, so "s" cannot read the whole index
+    private static final float PREFIX_WEIGHT = 0.5f;
+    private static final int MAX_PREFIX_TERMS = 64;
+    // Sums of upper bounds are widened a little so float rounding never prunes a document that qualifies
+    private static final float BOUND_SLACK = 1.0001f;
+    // Documents scored together by the essential terms, and postings sharing one upper bound
+    private static final int WINDOW = 4096;
+    private static final int BLOCK = 64;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "he", "her", "his", "in", "into",
+        "is", "it", "its", "of", "on", "or", "she", "that", "the", "their", "they", "this", "to", "was", "who",
+        "with"));
+
+    private final int documentCount;
+    private final String[] terms;
+    private final Map<String, Integer> termIds;
+    private final float[] idf;
+    private final int[][] documents;
+    private final float[][] weights;
+    private final float[] maxWeights;
+    private final float[][] blockMax;
+    private final String[] words;
+    private final int[] wordTerms;
+
+    /**
+     * @param fields For each document, its field values in the same order as {@code fieldWeights}; null values are skipped
+     * @param fieldWeights How much one occurrence in each field counts towards term frequency
+     */
+    public FullTextIndex(String[][] fields, float[] fieldWeights) {
+        this.documentCount = fields.length;
+        Map<String, Postings> builders = new HashMap<>();
+        float[] lengths = new float[documentCount];
+        List<String> tokens = new ArrayList<>();
+        Map<String, String> stems = new HashMap<>();
+        Map<String, Float> frequencies = new HashMap<>();
+        double totalLength = 0;
+        for (int doc = 0; doc < documentCount; doc++) {
+            frequencies.clear();
+            for (int f = 0; f < fieldWeights.length; f++) {
+                tokens.clear();
+                tokenize(fields[doc][f], tokens);
+                for (String token : tokens) {
+                    frequencies.merge(stems.computeIfAbsent(token, FullTextIndex::stem), fieldWeights[f], Float::sum);
+                }
+                lengths[doc] += tokens.size() * fieldWeights[f];
+            }
+            totalLength += lengths[doc];
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                builders.computeIfAbsent(entry.getKey(), t -> new Postings()).add(doc, entry.getValue());
+            }
+        }
+        float averageLength = documentCount == 0 || totalLength == 0 ? 1 : (float) (totalLength / documentCount);
+
+        this.terms = builders.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        this.termIds = new HashMap<>(terms.length * 4 / 3 + 1);
+        this.idf = new float[terms.length];
+        this.documents = new int[terms.length][];
+        this.weights = new float[terms.length][];
+        this.maxWeights = new float[terms.length];
+        this.blockMax = new float[terms.length][];
+        for (int t = 0; t < terms.length; t++) {
+            Postings postings = builders.get(terms[t]);
+            termIds.put(terms[t], t);
+            int df = postings.size;
+            idf[t] = (float) Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            documents[t] = Arrays.copyOf(postings.documents, df);
+            weights[t] = new float[df];
+            blockMax[t] = new float[(df + BLOCK - 1) / BLOCK];
+            for (int i = 0; i < df; i++) {
+                float tf = postings.frequencies[i];
+                float norm = K1 * (1 - B + B * lengths[postings.documents[i]] / averageLength);
+                weights[t][i] = tf * (K1 + 1) / (tf + norm);
+                blockMax[t][i / BLOCK] = Math.max(blockMax[t][i / BLOCK], weights[t][i]);
+                maxWeights[t] = Math.max(maxWeights[t], weights[t][i]);
+            }
+        }
+
+        // Words as they were written, so a prefix still being typed is not compared against stems
+        this.words = stems.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        this.wordTerms = new int[words.length];
+        for (int w = 0; w < words.length; w++) {
+            wordTerms[w] = termIds.get(stems.get(words[w]));
+        }
+    }
+
+    /**
+     * @return Number of indexed documents
+     */
+    public int size() {
+        return documentCount;
+    }
+
+    /**
+     * @return Number of distinct terms after stemming
+     */
+    public int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Ranks documents against the query.
+     * @param query Free text; words are combined with OR, so any matching word makes a document a candidate
+     * @param limit Maximum number of hits to return
+     * @return Up to {@code limit} hits, best first; equal scores keep document order
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> queryWords = new ArrayList<>();
+        tokenize(query, queryWords);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Distinct term ids with their query weight; the last word also expands to the terms of every word it prefixes
+        Map<Integer, Float> queryTerms = new HashMap<>();
+        for (String word : queryWords) {
+            Integer id = termIds.get(stem(word));
+            if (id != null) {
+                queryTerms.merge(id, 1f, Float::sum);
+            }
+        }
+        String last = queryWords.get(queryWords.size() - 1);
+        int from = Arrays.binarySearch(words, last);
+        from = from >= 0 ? from : -from - 1;
+        Set<Integer> expanded = new HashSet<>();
+        for (int w = from; w < words.length && expanded.size() < MAX_PREFIX_TERMS && words[w].startsWith(last); w++) {
+            if (expanded.add(wordTerms[w])) {
+                queryTerms.putIfAbsent(wordTerms[w], PREFIX_WEIGHT);
+            }
+        }
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Terms by ascending upper bound, insertion-sorted since a query has few
+        int n = 0;
+        int[] ids = new int[queryTerms.size()];
+        float[] scales = new float[ids.length];
+        float[] termBounds = new float[ids.length];
+        for (Map.Entry<Integer, Float> entry : queryTerms.entrySet()) {
+            int t = entry.getKey();
+            float scale = idf[t] * entry.getValue();
+            float bound = scale * maxWeights[t];
+            int i = n++;
+            for (; i > 0 && termBounds[i - 1] > bound; i--) {
+                ids[i] = ids[i - 1];
+                scales[i] = scales[i - 1];
+                termBounds[i] = termBounds[i - 1];
+            }
+            ids[i] = t;
+            scales[i] = scale;
+            termBounds[i] = bound;
+        }
+        // Running sums of the bounds; a single term's is exact, so a one-word query stops as soon as it can
+        float[] bounds = new float[n];
+        for (int i = 0; i < n; i++) {
+            bounds[i] = i == 0 ? termBounds[0] : (bounds[i - 1] + termBounds[i]) * BOUND_SLACK;
+        }
+
+        TopHits top = new TopHits(Math.min(limit, documentCount));
+        int[] cursors = new int[n];
+        // A small catalogue fits in one window, so it need not clear a full-sized one per query
+        int window = Math.min(WINDOW, (documentCount + 63) & ~63);
+        float[] windowScores = new float[window];
+        long[] touched = new long[window / 64];
+        // Terms below this index are non-essential: together they cannot lift a document past the heap's weakest
+        int essential = 0;
+        float threshold = 0;
+        while (essential < n) {
+            int base = Integer.MAX_VALUE;
+            for (int i = essential; i < n; i++) {
+                if (cursors[i] < documents[ids[i]].length) {
+                    base = Math.min(base, documents[ids[i]][cursors[i]]);
+                }
+            }
+            if (base == Integer.MAX_VALUE) {
+                break;
+            }
+
+            // Essential terms add up their postings in this window of documents, skipping blocks whose
+            // largest weight, with every other term at its best, still cannot beat the heap
+            int end = base + window;
+            for (int i = essential; i < n; i++) {
+                int[] docs = documents[ids[i]];
+                float[] termWeights = weights[ids[i]];
+                float[] termBlockMax = blockMax[ids[i]];
+                float others = bounds[n - 1] - termBounds[i];
+                int c = cursors[i];
+                while (c < docs.length && docs[c] < end) {
+                    if (scales[i] * termBlockMax[c / BLOCK] + others <= threshold) {
+                        c = (c / BLOCK + 1) * BLOCK;
+                        continue;
+                    }
+                    int blockEnd = Math.min(docs.length, (c / BLOCK + 1) * BLOCK);
+                    for (; c < blockEnd && docs[c] < end; c++) {
+                        int slot = docs[c] - base;
+                        touched[slot >>> 6] |= 1L << slot;
+                        windowScores[slot] += scales[i] * termWeights[c];
+                    }
+                }
+                cursors[i] = Math.min(c, docs.length);
+            }
+
+            // Then in document order, so a later document that only ties the weakest entry is rightly refused,
+            // the non-essential terms are looked up only while they could still make the difference
+            for (int word = 0; word < touched.length; word++) {
+                for (long bits = touched[word]; bits != 0; bits &= bits - 1) {
+                    int slot = word << 6 | Long.numberOfTrailingZeros(bits);
+                    int doc = base + slot;
+                    float score = windowScores[slot];
+                    windowScores[slot] = 0;
+                    for (int i = essential - 1; i >= 0 && score + bounds[i] > threshold; i--) {
+                        int[] docs = documents[ids[i]];
+                        int found = seek(docs, cursors[i], doc);
+                        cursors[i] = found;
+                        if (found < docs.length && docs[found] == doc) {
+                            score += scales[i] * weights[ids[i]][found];
+                        }
+                    }
+                    if (top.offer(doc, score) && top.isFull()) {
+                        threshold = top.weakestScore();
+                    }
+                }
+                touched[word] = 0;
+            }
+            // Only between windows, as terms that stop being essential have already been read to the window's end
+            while (essential < n && bounds[essential] <= threshold) {
+                essential++;
+            }
+        }
+        return top.hits();
+    }
+
+    /**
+     * Gallops forward from {@code from} to the first document not below {@code target}.
+     * @return Its index, or the list length if there is none
+     */
+    private static int seek(int[] list, int from, int target) {
+        if (from >= list.length || list[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < list.length && list[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        int i = Arrays.binarySearch(list, low + 1, Math.min(low + step + 1, list.length), target);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Splits text into lowercased words of letters and digits, dropping stop words.
+     */
+    public static void tokenize(String text, List<String> out) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = text.substring(start, i).toLowerCase();
+                if (!STOP_WORDS.contains(word)) {
+                    out.add(word);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Light English stemmer: folds plurals and -ing/-ed forms so "escapes", "escaped" and "escaping"
+     * all index as "escap". A final y becomes i, as does -ies, so "story" and "stories" meet at "stori"
+     * and "movie" and "movies" at "movi". Words of three letters or fewer are left alone.
+     */
+    public static String stem(String word) {
+        int n = word.length();
+        if (n <= 3) {
+            return word;
+        }
+        if (word.endsWith("ies") && n > 4) {
+            return word.substring(0, n - 2);
+        }
+        if (word.endsWith("sses")) {
+            return word.substring(0, n - 2);
+        }
+        if (word.endsWith("ing") && n > 5) {
+            return foldY(undouble(word.substring(0, n - 3)));
+        }
+        if (word.endsWith("ed") && n > 4) {
+            return foldY(undouble(word.substring(0, n - 2)));
+        }
+        if (word.endsWith("es") && n > 4 && "sxz".indexOf(word.charAt(n - 3)) >= 0) {
+            return word.substring(0, n - 2);
+        }
+        if (word.endsWith("e")) {
+            return word.substring(0, n - 1);
+        }
+        if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            return stem(word.substring(0, n - 1));
+        }
+        return foldY(word);
+    }
+
+    private static String foldY(String stem) {
+        int n = stem.length();
+        return n > 3 && stem.charAt(n - 1) == 'y' ? stem.substring(0, n - 1) + "i" : stem;
+    }
+
+    private static String undouble(String stem) {
+        int n = stem.length();
+        char last = stem.charAt(n - 1);
+        if (n > 2 && last == stem.charAt(n - 2) && "aeioulsz".indexOf(last) < 0) {
+            return stem.substring(0, n - 1);
+        }
+        return stem;
+    }
+
+    /**
+     * A ranked document.
+     */
+    public static final class Hit {
+        private final int position;
+        private final float score;
+
+        Hit(int position, float score) {
+            this.position = position;
+            this.score = score;
+        }
+
+        /**
+         * @return Position of the document in the array the index was built from
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * The best hits seen so far, in a min-heap of at most {@code capacity} entries with the weakest at the root.
+     */
+    private static final class TopHits {
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+
+        TopHits(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        /**
+         * @return true if the hit was kept
+         */
+        boolean offer(int doc, float score) {
+            if (size < docs.length) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(docs, scores, size++);
+                return true;
+            }
+            if (!weaker(scores[0], docs[0], score, doc)) {
+                return false;
+            }
+            docs[0] = doc;
+            scores[0] = score;
+            siftDown(docs, scores, size);
+            return true;
+        }
+
+        boolean isFull() {
+            return size == docs.length;
+        }
+
+        float weakestScore() {
+            return scores[0];
+        }
+
+        /**
+         * Empties the heap into a list, best first.
+         */
+        List<Hit> hits() {
+            Hit[] hits = new Hit[size];
+            while (size > 0) {
+                hits[--size] = new Hit(docs[0], scores[0]);
+                docs[0] = docs[size];
+                scores[0] = scores[size];
+                siftDown(docs, scores, size);
+            }
+            return Arrays.asList(hits);
+        }
+
+        /**
+         * @return true if the first hit ranks below the second: lower score, or the same score further down the catalogue
+         */
+        private static boolean weaker(float score, int doc, float otherScore, int otherDoc) {
+            return score < otherScore || score == otherScore && doc > otherDoc;
+        }
+
+        private static void siftUp(int[] docs, float[] scores, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!weaker(scores[i], docs[i], scores[parent], docs[parent])) {
+                    return;
+                }
+                swap(docs, scores, i, parent);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(int[] docs, float[] scores, int n) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= n) {
+                    return;
+                }
+                if (child + 1 < n && weaker(scores[child + 1], docs[child + 1], scores[child], docs[child])) {
+                    child++;
+                }
+                if (!weaker(scores[child], docs[child], scores[i], docs[i])) {
+                    return;
+                }
+                swap(docs, scores, i, child);
+                i = child;
+            }
+        }
+
+        private static void swap(int[] docs, float[] scores, int i, int j) {
+            int doc = docs[i];
+            docs[i] = docs[j];
+            docs[j] = doc;
+            float score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+    }
+
+    private static final class Postings {
+        private int[] documents = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+
+        void add(int document, float frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size++] = frequency;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Approximate nearest-neighbour index over unit vectors: a hierarchical navigable small world graph
+ * (Malkov and Yashunin). Every vector is a node linked to a few similar ones; a sparse random subset
+ * is also linked on higher layers with longer hops. A lookup walks greedily down the layers and then
+ * searches a beam of {@code ef} candidates on the bottom one, so it reads O(ef * links * log n)
+ * vectors rather than all of them.
+ * <p>
+ * Similarity is the dot product, which for unit vectors is their cosine. Vectors are stored as
+ * bytes, each component scaled by {@value #SCALE} (see {@link #quantize}), in one flat array; that
+ * is a quarter of the memory of floats and still orders neighbours the same way to within noise.
+ * Links are flat int arrays with the count in the first slot, one stride per node and layer.
+ * <p>
+ * The graph is built once, by the constructor, on one thread and from a fixed seed, so the same
+ * vectors always give the same neighbours. After that it is read-only and safe to share. The build
+ * reuses one set of scratch buffers for every insert, visited marks included, so apart from the
+ * graph itself it allocates next to nothing.
+ */
+public class HnswIndex {
+
+    /** Quantization scale: a unit component of 1.0 is stored as this byte value */
+    public static final int SCALE = 127;
+    private static final float SIMILARITY_SCALE = 1f / (SCALE * SCALE);
+    private static final int MAX_LEVEL = 16;
+    private static final long SEED = 42L;
+    // Inserts between checks of whether the caller still wants the graph
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final int dimensions;
+    private final int size;
+    private final byte[] vectors;
+    private final int maxLinks;
+    private final int maxBottomLinks;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int[] bottomLinks;
+    private final int[][] upperLinks;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    /**
+     * @param vectors {@code size * dimensions} quantized components, vector after vector
+     * @param dimensions Components per vector
+     * @param maxLinks Links per node on the upper layers; the bottom layer keeps twice as many
+     * @param efConstruction Beam width while linking a new node; wider finds better links, slower
+     * @param efSearch Smallest beam width of a lookup
+     */
+    public HnswIndex(byte[] vectors, int dimensions, int maxLinks, int efConstruction, int efSearch) {
+        this(vectors, dimensions, maxLinks, efConstruction, efSearch, () -> false);
+    }
+
+    /**
+     * Builds the graph unless the caller gives up on it first, e.g. because a newer catalogue replaced it.
+     * @param cancelled Polled every few thousand inserts
+     * @throws CancellationException When {@code cancelled} turned true before the graph was complete
+     */
+    public HnswIndex(byte[] vectors, int dimensions, int maxLinks, int efConstruction, int efSearch,
+                     BooleanSupplier cancelled) {
+        if (dimensions <= 0 || vectors.length % dimensions != 0) {
+            throw new IllegalArgumentException("Vectors must be a whole number of " + dimensions + "-component rows");
+        }
+        this.dimensions = dimensions;
+        this.size = vectors.length / dimensions;
+        this.vectors = vectors;
+        this.maxLinks = maxLinks;
+        this.maxBottomLinks = maxLinks * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.bottomLinks = new int[size * (maxBottomLinks + 1)];
+        this.upperLinks = new int[size][];
+
+        Random random = new Random(SEED);
+        double levelFactor = 1 / Math.log(maxLinks);
+        Scratch scratch = new Scratch(new int[size], efConstruction);
+        for (int node = 0; node < size; node++) {
+            if (node % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException("Abandoned after " + node + " of " + size + " vectors");
+            }
+            int level = Math.min(MAX_LEVEL, (int) (-Math.log(1 - random.nextDouble()) * levelFactor));
+            if (level > 0) {
+                upperLinks[node] = new int[level * (maxLinks + 1)];
+            }
+            insert(node, level, scratch);
+        }
+    }
+
+    /**
+     * Scales a unit vector into bytes as the index stores them.
+     */
+    public static void quantize(float[] unit, byte[] out, int offset) {
+        for (int i = 0; i < unit.length; i++) {
+            out[offset + i] = (byte) Math.round(Math.max(-1f, Math.min(1f, unit[i])) * SCALE);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the vectors most similar to an indexed one.
+     * @param position Row of the vector to look around
+     * @param limit Maximum number of neighbours to return
+     * @return Up to {@code limit} other rows, most similar first; approximate, so a close match can be missed
+     */
+    public List<Neighbour> nearest(int position, int limit) {
+        if (position < 0 || position >= size || limit <= 0 || size < 2) {
+            return Collections.emptyList();
+        }
+        int from = descend(position, 0);
+        int ef = Math.max(efSearch, limit + 1);
+        // Lookups run concurrently and touch few nodes, so each marks what it visited in a small map of its own
+        Heap found = searchLayer(position, from, ef, 0, new Scratch(null, ef));
+        int count = found.size();
+        int[] nodes = new int[count];
+        float[] similarities = new float[count];
+        // The heap pops the least similar first
+        for (int i = count - 1; i >= 0; i--) {
+            similarities[i] = found.topSimilarity();
+            nodes[i] = found.pop();
+        }
+        List<Neighbour> neighbours = new ArrayList<>(Math.min(limit, count));
+        for (int i = 0; i < count && neighbours.size() < limit; i++) {
+            if (nodes[i] != position) {
+                neighbours.add(new Neighbour(nodes[i], similarities[i] * SIMILARITY_SCALE));
+            }
+        }
+        return neighbours;
+    }
+
+    private void insert(int node, int level, Scratch scratch) {
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+        int from = descend(node, level);
+        int[] candidates = scratch.candidates;
+        int[] similarities = scratch.similarities;
+        for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+            Heap found = searchLayer(node, from, efConstruction, layer, scratch);
+            int count = found.size();
+            for (int i = count - 1; i >= 0; i--) {
+                similarities[i] = found.topSimilarity();
+                candidates[i] = found.pop();
+            }
+            from = candidates[0];
+            int[] links = links(node, layer);
+            int offset = offset(node, layer);
+            links[offset] = select(candidates, similarities, count, maxLinks(layer), links, offset + 1);
+            for (int i = 0; i < links[offset]; i++) {
+                link(links[offset + 1 + i], node, layer, scratch);
+            }
+        }
+        if (level > topLevel) {
+            entryPoint = node;
+            topLevel = level;
+        }
+    }
+
+    /**
+     * Greedy walk from the entry point down to the given layer, always moving to the most similar link.
+     * @return The node to start the beam search of layer {@code level} from
+     */
+    private int descend(int query, int level) {
+        int current = entryPoint;
+        int best = dot(query, current);
+        for (int layer = topLevel; layer > level; layer--) {
+            boolean moved = true;
+            while (moved) {
+                moved = false;
+                int[] links = links(current, layer);
+                int offset = offset(current, layer);
+                for (int i = 1; i <= links[offset]; i++) {
+                    int similarity = dot(query, links[offset + i]);
+                    if (similarity > best) {
+                        best = similarity;
+                        current = links[offset + i];
+                        moved = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer keeping the {@code ef} most similar nodes seen.
+     * @return Those nodes in a min-heap, least similar on top
+     */
+    private Heap searchLayer(int query, int from, int ef, int layer, Scratch scratch) {
+        scratch.startSearch(ef * maxLinks(layer));
+        Heap candidates = scratch.frontier;
+        Heap found = scratch.found;
+        int similarity = dot(query, from);
+        scratch.visit(from);
+        candidates.push(from, similarity);
+        found.push(from, similarity);
+        while (candidates.size() > 0) {
+            int closest = candidates.topSimilarity();
+            int current = candidates.pop();
+            if (found.size() == ef && closest < found.topSimilarity()) {
+                break;
+            }
+            int[] links = links(current, layer);
+            int offset = offset(current, layer);
+            for (int i = 1; i <= links[offset]; i++) {
+                int next = links[offset + i];
+                if (!scratch.visit(next)) {
+                    continue;
+                }
+                similarity = dot(query, next);
+                if (found.size() < ef || similarity > found.topSimilarity()) {
+                    candidates.push(next, similarity);
+                    found.push(next, similarity);
+                    if (found.size() > ef) {
+                        found.pop();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds a back link, re-choosing the node's links when it already has as many as it may.
+     */
+    private void link(int node, int to, int layer, Scratch scratch) {
+        int[] links = links(node, layer);
+        int offset = offset(node, layer);
+        int count = links[offset];
+        if (count < maxLinks(layer)) {
+            links[offset + 1 + count] = to;
+            links[offset] = count + 1;
+            return;
+        }
+        // Not the insert's own candidate arrays: it is still walking those
+        int[] candidates = scratch.relinked;
+        int[] similarities = scratch.relinkedSimilarities;
+        for (int i = 0; i <= count; i++) {
+            candidates[i] = i < count ? links[offset + 1 + i] : to;
+            similarities[i] = dot(node, candidates[i]);
+        }
+        // Few enough to insertion-sort, most similar first
+        for (int i = 1; i <= count; i++) {
+            int candidate = candidates[i];
+            int similarity = similarities[i];
+            int j = i - 1;
+            for (; j >= 0 && similarities[j] < similarity; j--) {
+                candidates[j + 1] = candidates[j];
+                similarities[j + 1] = similarities[j];
+            }
+            candidates[j + 1] = candidate;
+            similarities[j + 1] = similarity;
+        }
+        links[offset] = select(candidates, similarities, count + 1, count, links, offset + 1);
+    }
+
+    /**
+     * Neighbour selection heuristic: walks the candidates from most similar and keeps one only if it is
+     * more similar to the node than to every candidate already kept. Near-duplicates of a kept link are
+     * skipped, so the links point in different directions and clusters stay reachable from each other.
+     * @return Number of links written to {@code out}
+     */
+    private int select(int[] candidates, int[] similarities, int count, int max, int[] out, int outOffset) {
+        int kept = 0;
+        for (int i = 0; i < count && kept < max; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < kept && diverse; j++) {
+                diverse = dot(candidates[i], out[outOffset + j]) <= similarities[i];
+            }
+            if (diverse) {
+                out[outOffset + kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? maxBottomLinks : maxLinks;
+    }
+
+    private int[] links(int node, int layer) {
+        return layer == 0 ? bottomLinks : upperLinks[node];
+    }
+
+    private int offset(int node, int layer) {
+        return layer == 0 ? node * (maxBottomLinks + 1) : (layer - 1) * (maxLinks + 1);
+    }
+
+    /**
+     * @return Dot product of two stored vectors, in units of 1 / {@value #SCALE}²
+     */
+    private int dot(int a, int b) {
+        int sum = 0;
+        for (int i = a * dimensions, j = b * dimensions, end = i + dimensions; i < end; i++, j++) {
+            sum += vectors[i] * vectors[j];
+        }
+        return sum;
+    }
+
+    /**
+     * Buffers for one search at a time, reused across the inserts of a build.
+     * <p>
+     * Visited nodes are marked either in an array with a slot per node, stamped with the number of the
+     * current search so that starting a new one clears every mark at once, or, for a lone lookup that
+     * only touches a few hundred nodes, in a small map.
+     */
+    private final class Scratch {
+        private final int[] stamps;
+        private int generation;
+        private LongIntHashMap visitedMap;
+        final Heap frontier;
+        final Heap found;
+        final int[] candidates;
+        final int[] similarities;
+        final int[] relinked = new int[maxBottomLinks + 1];
+        final int[] relinkedSimilarities = new int[maxBottomLinks + 1];
+
+        Scratch(int[] stamps, int ef) {
+            this.stamps = stamps;
+            this.frontier = new Heap(ef * 2, -1);
+            this.found = new Heap(ef + 1, 1);
+            this.candidates = new int[ef + 1];
+            this.similarities = new int[ef + 1];
+        }
+
+        void startSearch(int expectedVisits) {
+            frontier.clear();
+            found.clear();
+            if (stamps == null) {
+                visitedMap = new LongIntHashMap(expectedVisits, 0);
+            } else if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * @return true the first time a node is seen in the current search
+         */
+        boolean visit(int node) {
+            if (stamps == null) {
+                if (visitedMap.get(node) != 0) {
+                    return false;
+                }
+                visitedMap.put(node, 1);
+                return true;
+            }
+            if (stamps[node] == generation) {
+                return false;
+            }
+            stamps[node] = generation;
+            return true;
+        }
+    }
+
+    /**
+     * An indexed vector close to the one looked up.
+     */
+    public static final class Neighbour {
+        private final int position;
+        private final float similarity;
+
+        Neighbour(int position, float similarity) {
+            this.position = position;
+            this.similarity = similarity;
+        }
+
+        /**
+         * @return Row of the vector in the array the index was built from
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return Cosine similarity, from -1 to 1
+         */
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+
+    /**
+     * Binary heap of nodes by similarity without boxing; {@code order} 1 keeps the least similar on top,
+     * -1 the most similar.
+     */
+    private static final class Heap {
+        private int[] nodes;
+        private int[] keys;
+        private final int order;
+        private int size;
+
+        Heap(int capacity, int order) {
+            this.nodes = new int[Math.max(4, capacity)];
+            this.keys = new int[nodes.length];
+            this.order = order;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int topSimilarity() {
+            return keys[0] * order;
+        }
+
+        void push(int node, int similarity) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int key = similarity * order;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            int lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            keys[i] = lastKey;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data-driven rules picking the icon shown for a movie, read from a JSON file such as the bundled
+ * {@value #BUNDLED_RESOURCE}:
+ * <pre>
+ * {
+ *   "default": "🎬",
+ *   "titles":   {"The Prison Escape": "🔒"},
+ *   "keywords": [{"match": "heist", "icon": "💰"}],
+ *   "genres":   {"Sci-Fi": "🛸"}
+ * }
+ * </pre>
+ * An exact title wins, then the first listed keyword found in the title as a whole word, then the first
+ * part of a "Crime/Drama" style genre that has a rule, then the default. Titles and genres are compared
+ * ignoring case. Keywords are compiled into one {@link KeywordMatcher}, so the cost per movie does not
+ * grow with the number of rules.
+ */
+public class IconRules {
+
+    public static final String BUNDLED_RESOURCE = "movie-icons.json";
+    public static final String DEFAULT_ICON = "🎬";
+
+    private final String defaultIcon;
+    private final Map<String, String> titleIcons;
+    private final KeywordMatcher keywords;
+    private final String[] keywordIcons;
+    private final Map<String, String> genreIcons;
+
+    private IconRules(String defaultIcon, Map<String, String> titleIcons, String[] keywords, String[] keywordIcons,
+                      Map<String, String> genreIcons) {
+        this.defaultIcon = defaultIcon;
+        this.titleIcons = titleIcons;
+        this.keywords = new KeywordMatcher(keywords);
+        this.keywordIcons = keywordIcons;
+        this.genreIcons = genreIcons;
+    }
+
+    /**
+     * Parses a rules file; every section is optional.
+     * @throws IOException if the stream cannot be read
+     * @throws org.json.JSONException if it is not a rules object
+     */
+    public static IconRules read(InputStream inputStream) throws IOException {
+        JSONObject rules;
+        try (InputStreamReader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            rules = new JSONObject(new JSONTokener(reader));
+        }
+        Map<String, String> titleIcons = lowerCaseKeys(rules.optJSONObject("titles"));
+        Map<String, String> genreIcons = lowerCaseKeys(rules.optJSONObject("genres"));
+        JSONArray keywordRules = rules.optJSONArray("keywords");
+        int count = keywordRules != null ? keywordRules.length() : 0;
+        String[] keywords = new String[count];
+        String[] keywordIcons = new String[count];
+        for (int i = 0; i < count; i++) {
+            JSONObject rule = keywordRules.getJSONObject(i);
+            keywords[i] = rule.getString("match");
+            keywordIcons[i] = rule.getString("icon");
+        }
+        return new IconRules(rules.optString("default", DEFAULT_ICON), titleIcons, keywords, keywordIcons, genreIcons);
+    }
+
+    /**
+     * @return The rules bundled with the application, read once on first use
+     */
+    public static IconRules bundled() {
+        return Bundled.RULES;
+    }
+
+    /**
+     * @return Rules giving every movie the default icon
+     */
+    public static IconRules none() {
+        return new IconRules(DEFAULT_ICON, Collections.emptyMap(), new String[0], new String[0], Collections.emptyMap());
+    }
+
+    /**
+     * @param title The movie name
+     * @param genre The movie genre, possibly several joined by '/' (optional)
+     * @return The icon for the movie, never null
+     */
+    public String iconFor(String title, String genre) {
+        if (title != null) {
+            String exact = titleIcons.get(title.trim().toLowerCase());
+            if (exact != null) {
+                return exact;
+            }
+            int keyword = keywords.firstMatch(title);
+            if (keyword >= 0) {
+                return keywordIcons[keyword];
+            }
+        }
+        if (genre != null) {
+            for (String part : genre.split("/")) {
+                String icon = genreIcons.get(part.trim().toLowerCase());
+                if (icon != null) {
+                    return icon;
+                }
+            }
+        }
+        return defaultIcon;
+    }
+
+    /**
+     * @return Number of title, keyword and genre rules
+     */
+    public int size() {
+        return titleIcons.size() + keywordIcons.length + genreIcons.size();
+    }
+
+    private static Map<String, String> lowerCaseKeys(JSONObject section) {
+        Map<String, String> icons = new HashMap<>();
+        if (section != null) {
+            for (String key : section.keySet()) {
+                icons.put(key.trim().toLowerCase(), section.getString(key));
+            }
+        }
+        return icons;
+    }
+
+    private static final class Bundled {
+        static final IconRules RULES = load();
+
+        private static IconRules load() {
+            try (InputStream inputStream = IconRules.class.getClassLoader().getResourceAsStream(BUNDLED_RESOURCE)) {
+                return inputStream != null ? read(inputStream) : none();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
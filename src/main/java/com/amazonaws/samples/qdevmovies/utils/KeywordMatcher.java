@@ -0,0 +1,189 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton finding which of a fixed list of keywords occur in a text as whole words,
+ * in a single pass over the text whatever the number of keywords. Matching ignores case.
+ * <p>
+ * Keywords are numbered in the order given, and that order doubles as their priority: when several
+ * occur, {@link #firstMatch} reports the one listed first. Transitions are stored as sorted edge arrays
+ * per state, so the compiled automaton is a handful of primitive arrays; for rule sets of ordinary size the
+ * ASCII transitions are also expanded into a dense table, so most characters cost one array read.
+ */
+public class KeywordMatcher {
+
+    private static final int ROOT = 0;
+    private static final int ASCII = 128;
+    /** States beyond which the dense ASCII table would cost more memory than it saves time */
+    private static final int MAX_DENSE_STATES = 8192;
+
+    private final int[] firstEdge;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+    private final int[] failure;
+    /** Keyword ending at each state, or -1 */
+    private final int[] keyword;
+    /** Nearest state along the failure chain that ends a keyword, or -1 */
+    private final int[] outputLink;
+    private final int[] keywordLengths;
+    /** Next state for every (state, ASCII character), failure links already followed; null for huge rule sets */
+    private final int[] dense;
+
+    /**
+     * @param keywords The keywords, in priority order; blank ones never match
+     */
+    public KeywordMatcher(String[] keywords) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(-1);
+        this.keywordLengths = new int[keywords.length];
+        for (int k = 0; k < keywords.length; k++) {
+            String word = keywords[k] == null ? "" : keywords[k].trim().toLowerCase();
+            keywordLengths[k] = word.length();
+            if (word.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                Integer next = trie.get(state).get(word.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ends.add(-1);
+                    trie.get(state).put(word.charAt(i), next);
+                }
+                state = next;
+            }
+            // A repeated keyword keeps its first, higher priority number
+            if (ends.get(state) < 0) {
+                ends.set(state, k);
+            }
+        }
+
+        int states = trie.size();
+        this.firstEdge = new int[states + 1];
+        int edges = 0;
+        for (int s = 0; s < states; s++) {
+            firstEdge[s] = edges;
+            edges += trie.get(s).size();
+        }
+        firstEdge[states] = edges;
+        this.edgeLabels = new char[edges];
+        this.edgeTargets = new int[edges];
+        for (int s = 0; s < states; s++) {
+            int e = firstEdge[s];
+            for (Map.Entry<Character, Integer> edge : trie.get(s).entrySet()) {
+                edgeLabels[e] = edge.getKey();
+                edgeTargets[e++] = edge.getValue();
+            }
+        }
+        this.keyword = new int[states];
+        for (int s = 0; s < states; s++) {
+            keyword[s] = ends.get(s);
+        }
+
+        // Breadth-first, so every state's failure target is settled before its children need it
+        this.failure = new int[states];
+        this.outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = firstEdge[ROOT]; e < firstEdge[ROOT + 1]; e++) {
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = firstEdge[state]; e < firstEdge[state + 1]; e++) {
+                int child = edgeTargets[e];
+                int fallback = failure[state];
+                int target;
+                while ((target = transition(fallback, edgeLabels[e])) < 0 && fallback != ROOT) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = target >= 0 ? target : ROOT;
+                outputLink[child] = keyword[failure[child]] >= 0 ? failure[child] : outputLink[failure[child]];
+                queue.add(child);
+            }
+        }
+
+        this.dense = states <= MAX_DENSE_STATES ? denseTable(states) : null;
+    }
+
+    private int[] denseTable(int states) {
+        int[] table = new int[states * ASCII];
+        // Breadth-first again: a state's row copies its failure target's row, which is always shallower
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(ROOT);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (state != ROOT) {
+                System.arraycopy(table, failure[state] * ASCII, table, state * ASCII, ASCII);
+            }
+            for (int e = firstEdge[state]; e < firstEdge[state + 1]; e++) {
+                if (edgeLabels[e] < ASCII) {
+                    table[state * ASCII + edgeLabels[e]] = edgeTargets[e];
+                }
+                queue.add(edgeTargets[e]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return Number of the highest priority keyword occurring in the text as a whole word, or -1 if none does
+     */
+    public int firstMatch(CharSequence text) {
+        if (text == null) {
+            return -1;
+        }
+        int best = -1;
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (dense != null && c < ASCII) {
+                state = dense[state * ASCII + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c)];
+            } else {
+                c = Character.toLowerCase(c);
+                int next;
+                while ((next = transition(state, c)) < 0 && state != ROOT) {
+                    state = failure[state];
+                }
+                state = next >= 0 ? next : ROOT;
+            }
+            for (int s = keyword[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int k = keyword[s];
+                if ((best < 0 || k < best) && isWholeWord(text, i - keywordLengths[k] + 1, i)) {
+                    best = k;
+                }
+            }
+        }
+        return best;
+    }
+
+    private int transition(int state, char c) {
+        int low = firstEdge[state];
+        int high = firstEdge[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (edgeLabels[mid] < c) {
+                low = mid + 1;
+            } else if (edgeLabels[mid] > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWholeWord(CharSequence text, int start, int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+            && (end + 1 == text.length() || !Character.isLetterOrDigit(text.charAt(end + 1)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+/**
+ * Open-addressing hash map from primitive long keys to int values with linear probing.
+ * Lookups never box or allocate; two flat arrays replace the per-entry node, Long and Integer
+ * objects of a {@code HashMap<Long, Integer>}.
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private final int missingValue;
+
+    /**
+     * @param expectedSize Number of entries expected, used to size the table
+     * @param missingValue Value returned by {@link #get} for absent keys
+     */
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.missingValue = missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long stored = keys[slot];
+            if (stored == key) {
+                return values[slot];
+            }
+            if (stored == EMPTY) {
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        size = hasZeroKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Spreads sequential ids across the table (murmur3 finalizer).
+     */
+    private static int mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
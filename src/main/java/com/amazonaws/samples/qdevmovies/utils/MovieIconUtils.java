@@ -1,22 +1,18 @@
 package com.amazonaws.samples.qdevmovies.utils;
 
+/**
+ * Icon lookup for movies that did not come through the catalogue loader, which resolves icons once per load.
+ */
 public class MovieIconUtils {
     
     public static String getMovieIcon(String movieName) {
-        switch (movieName.toLowerCase()) {
-            case "the prison escape": return "🔒";
-            case "the family boss": return "👔";
-            case "the masked hero": return "🦇";
-            case "urban stories": return "🌆";
-            case "life journey": return "🏃";
-            case "dream heist": return "💭";
-            case "the virtual world": return "🕶️";
-            case "the wise guys": return "🤵";
-            case "the quest for the ring": return "💍";
-            case "space wars: the beginning": return "🚀";
-            case "the factory owner": return "🏭";
-            case "underground club": return "👊";
-            default: return "🎬";
-        }
+        return getMovieIcon(movieName, null);
+    }
+
+    /**
+     * @return The icon the bundled {@link IconRules} give a movie with this name and genre
+     */
+    public static String getMovieIcon(String movieName, String genre) {
+        return IconRules.bundled().iconFor(movieName, genre);
     }
 }
@@ -0,0 +1,54 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Sorts positions 0..n-1 by a comparator over positions, on a primitive array: sorting boxed
+ * positions would allocate an object per position and compare through a lookup per comparison.
+ * The sort is a stable merge sort, so ties keep position order just like {@code Arrays.sort} on objects.
+ */
+public final class PositionSort {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private PositionSort() {
+    }
+
+    /**
+     * @param n Number of positions
+     * @param comparator Compares two positions, typically by reading primitive columns at both
+     * @return Positions 0..n-1 in comparator order
+     */
+    public static int[] sorted(int n, IntBinaryOperator comparator) {
+        int[] positions = new int[n];
+        for (int pos = 0; pos < n; pos++) {
+            positions[pos] = pos;
+        }
+        sort(positions, 0, n, new int[n], comparator);
+        return positions;
+    }
+
+    private static void sort(int[] a, int from, int to, int[] scratch, IntBinaryOperator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int pos = a[i];
+                int j = i - 1;
+                for (; j >= from && comparator.applyAsInt(a[j], pos) > 0; j--) {
+                    a[j + 1] = a[j];
+                }
+                a[j + 1] = pos;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(a, from, mid, scratch, comparator);
+        sort(a, mid, to, scratch, comparator);
+        if (comparator.applyAsInt(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, from, scratch, from, to - from);
+        for (int i = from, l = from, r = mid; i < to; i++) {
+            a[i] = r >= to || l < mid && comparator.applyAsInt(scratch[l], scratch[r]) <= 0 ? scratch[l++] : scratch[r++];
+        }
+    }
+}
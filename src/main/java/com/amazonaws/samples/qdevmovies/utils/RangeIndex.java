@@ -0,0 +1,102 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.BitSet;
+
+/**
+ * Sorted column index answering "value between min and max" over a fixed list of numbers.
+ * Positions are kept sorted by value, so the positions in any range form one contiguous run found by
+ * two binary searches, and the values stay addressable by position for checking single candidates.
+ */
+public class RangeIndex {
+
+    private final double[] values;
+    private final int[] positions;
+    private final double[] sortedValues;
+
+    /**
+     * @param values The value of each position
+     */
+    public RangeIndex(double[] values) {
+        this.values = values.clone();
+        this.positions = PositionSort.sorted(values.length, (a, b) -> Double.compare(values[a], values[b]));
+        this.sortedValues = new double[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            sortedValues[i] = values[positions[i]];
+        }
+    }
+
+    /**
+     * @return Number of positions whose value lies in {@code [min, max]}
+     */
+    public int count(double min, double max) {
+        return Math.max(0, upperBound(max) - lowerBound(min));
+    }
+
+    /**
+     * Clears every position outside {@code [min, max]} from the candidates, by whichever is cheaper:
+     * checking each candidate's value, or building the range as a bit set (or its complement, when the
+     * range covers most positions) and intersecting.
+     *
+     * @param candidates Positions to narrow down, modified in place
+     */
+    public void retain(BitSet candidates, double min, double max) {
+        int from = lowerBound(min);
+        int to = Math.max(from, upperBound(max));
+        int inRange = to - from;
+        int outside = values.length - inRange;
+        if (candidates.cardinality() <= Math.min(inRange, outside)) {
+            for (int pos = candidates.nextSetBit(0); pos >= 0; pos = candidates.nextSetBit(pos + 1)) {
+                if (values[pos] < min || values[pos] > max) {
+                    candidates.clear(pos);
+                }
+            }
+        } else if (inRange <= outside) {
+            BitSet range = new BitSet(values.length);
+            for (int i = from; i < to; i++) {
+                range.set(positions[i]);
+            }
+            candidates.and(range);
+        } else {
+            for (int i = 0; i < from; i++) {
+                candidates.clear(positions[i]);
+            }
+            for (int i = to; i < positions.length; i++) {
+                candidates.clear(positions[i]);
+            }
+        }
+    }
+
+    /**
+     * @return Index in sorted order of the first value not below {@code min}
+     */
+    private int lowerBound(double min) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] < min) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Index in sorted order just past the last value not above {@code max}
+     */
+    private int upperBound(double max) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] <= max) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,41 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket (generic cell rate algorithm): allows {@code permitsPerSecond} on average
+ * and up to {@code burst} at once. A denied call costs one atomic read and allocates nothing.
+ */
+public final class RateLimiter {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param permitsPerSecond Sustained rate; zero or less means unlimited
+     * @param burst Permits available at once after a quiet period, at least one
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (1_000_000_000L / permitsPerSecond) : 0L;
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryAcquire() {
+        return intervalNanos == 0 || tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long now) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long start = arrival - now > 0 ? arrival : now;
+            if (start - now > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
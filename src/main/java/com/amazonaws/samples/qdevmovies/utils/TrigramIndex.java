@@ -0,0 +1,180 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Inverted trigram index answering case-insensitive substring queries over a fixed list of keys.
+ * Keys are lowercased once at build time; a query intersects the posting lists of its trigrams
+ * and only verifies the surviving candidates against the keys' UTF-8 bytes, so results are
+ * identical to a full {@code key.toLowerCase().contains(query)} scan.
+ * <p>
+ * Keys live in a {@link Utf8Column} rather than one String each, and may be a columnar store's own
+ * arena, so the index adds no per-key objects to the heap.
+ * <p>
+ * Trigrams are packed into longs and looked up in a {@link LongIntHashMap} that gives the slot of
+ * their posting list, so a lookup neither boxes nor allocates per trigram.
+ */
+public class TrigramIndex {
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private static final int ABSENT = -1;
+
+    private final Utf8Column keys;
+    private final LongIntHashMap slots;
+    private final int[][] postings;
+
+    /**
+     * @param values The values to index; the position of each value is what queries return
+     */
+    public TrigramIndex(String[] values) {
+        this(Utf8Column.of(lowerCase(values)));
+    }
+
+    /**
+     * @param keys Already lowercased keys; the row of each key is what queries return
+     */
+    public TrigramIndex(Utf8Column keys) {
+        this.keys = keys;
+        this.slots = new LongIntHashMap(1024, ABSENT);
+        List<IntList> builders = new ArrayList<>();
+        for (int pos = 0; pos < keys.size(); pos++) {
+            String key = keys.get(pos);
+            if (key == null) {
+                continue;
+            }
+            for (int i = 0; i + 3 <= key.length(); i++) {
+                long gram = trigram(key, i);
+                int slot = slots.get(gram);
+                if (slot == ABSENT) {
+                    slot = builders.size();
+                    slots.put(gram, slot);
+                    builders.add(new IntList());
+                }
+                IntList list = builders.get(slot);
+                if (list.size == 0 || list.values[list.size - 1] != pos) {
+                    list.add(pos);
+                }
+            }
+        }
+        this.postings = new int[builders.size()][];
+        for (int slot = 0; slot < postings.length; slot++) {
+            postings[slot] = builders.get(slot).toArray();
+        }
+    }
+
+    private static String[] lowerCase(String[] values) {
+        String[] keys = new String[values.length];
+        for (int pos = 0; pos < values.length; pos++) {
+            keys[pos] = values[pos] == null ? "" : values[pos].toLowerCase();
+        }
+        return keys;
+    }
+
+    /**
+     * @return Number of indexed keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * @param position Position of an indexed value
+     * @return The lowercased key stored for that position, decoded into a new String
+     */
+    public String key(int position) {
+        String key = keys.get(position);
+        return key != null ? key : "";
+    }
+
+    /**
+     * Finds every position whose key contains the query.
+     * @param query An already lowercased, non-empty query
+     * @return Matching positions
+     */
+    public BitSet search(String query) {
+        BitSet result = new BitSet(keys.size());
+        byte[] needle = query.getBytes(StandardCharsets.UTF_8);
+        if (query.length() < 3) {
+            for (int pos = 0; pos < keys.size(); pos++) {
+                if (keys.contains(pos, needle)) {
+                    result.set(pos);
+                }
+            }
+            return result;
+        }
+
+        int gramCount = query.length() - 2;
+        int[][] lists = new int[gramCount][];
+        for (int i = 0; i < gramCount; i++) {
+            int slot = slots.get(trigram(query, i));
+            if (slot == ABSENT) {
+                return result;
+            }
+            lists[i] = postings[slot];
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+
+        int[] candidates = lists[0];
+        int count = candidates.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                int[] target = candidates == lists[0] ? new int[count] : candidates;
+                count = intersect(candidates, count, lists[i], target);
+                candidates = target;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int pos = candidates[i];
+            if (keys.contains(pos, needle)) {
+                result.set(pos);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges two sorted posting lists; {@code target} may alias {@code left} since writes never overtake reads.
+     */
+    private static int intersect(int[] left, int leftCount, int[] right, int[] target) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftCount && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                target[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static long trigram(String key, int offset) {
+        return ((long) key.charAt(offset) << 32) | ((long) key.charAt(offset + 1) << 16) | key.charAt(offset + 2);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return size == 0 ? NO_POSTINGS : Arrays.copyOf(values, size);
+        }
+    }
+}
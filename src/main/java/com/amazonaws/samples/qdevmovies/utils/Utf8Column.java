@@ -0,0 +1,152 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only column of strings kept as UTF-8 bytes back to back in one buffer, so indexes over a
+ * million titles hold a byte array and two int arrays rather than a million String objects. Each row
+ * refers to its string by code, so rows with the same value share its bytes, and the buffer may be
+ * the off-heap arena of a columnar store.
+ * <p>
+ * Matching and ordering work on the bytes directly: a valid UTF-8 needle can only match a valid
+ * UTF-8 haystack at a character boundary, and unsigned byte order is code point order. Only
+ * {@link #get(int)} decodes, and it allocates a String each time.
+ */
+public final class Utf8Column {
+
+    private final ByteBuffer bytes;
+    private final int[] offsets;
+    private final int[] codes;
+
+    /**
+     * @param bytes Every distinct string's bytes; only ever read at absolute indexes, so it may be shared
+     * @param offsets Start of each code's bytes, followed by the end of the last
+     * @param codes The code of each row, or -1 for a null value
+     */
+    public Utf8Column(ByteBuffer bytes, int[] offsets, int[] codes) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.codes = codes;
+    }
+
+    /**
+     * Packs strings into a heap buffer, one code per row.
+     */
+    public static Utf8Column of(String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        int[] offsets = new int[values.length + 1];
+        int[] codes = new int[values.length];
+        for (int row = 0; row < values.length; row++) {
+            encoded[row] = values[row] == null ? new byte[0] : values[row].getBytes(StandardCharsets.UTF_8);
+            offsets[row + 1] = offsets[row] + encoded[row].length;
+            codes[row] = values[row] == null ? -1 : row;
+        }
+        byte[] packed = new byte[offsets[values.length]];
+        for (int row = 0; row < values.length; row++) {
+            System.arraycopy(encoded[row], 0, packed, offsets[row], encoded[row].length);
+        }
+        return new Utf8Column(ByteBuffer.wrap(packed), offsets, codes);
+    }
+
+    /**
+     * @return Number of rows
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * @return The row's string, decoded into a new String; null if the row holds none
+     */
+    public String get(int row) {
+        int code = codes[row];
+        if (code < 0) {
+            return null;
+        }
+        byte[] value = new byte[offsets[code + 1] - offsets[code]];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = bytes.get(offsets[code] + i);
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Length of the row's string in bytes, 0 for none
+     */
+    public int length(int row) {
+        int code = codes[row];
+        return code < 0 ? 0 : offsets[code + 1] - offsets[code];
+    }
+
+    /**
+     * @return true if the row's bytes contain the needle; a row without a string contains only the empty needle
+     */
+    public boolean contains(int row, byte[] needle) {
+        int code = codes[row];
+        int start = code < 0 ? 0 : offsets[code];
+        int last = (code < 0 ? 0 : offsets[code + 1]) - needle.length;
+        outer:
+        for (int from = start; from <= last; from++) {
+            for (int i = 0; i < needle.length; i++) {
+                if (bytes.get(from + i) != needle[i]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares the bytes of one row from an offset onwards with those of another, unsigned.
+     * @return Negative, zero or positive as the first tail sorts before, equal to or after the second
+     */
+    public int compare(int rowA, int offsetA, int rowB, int offsetB) {
+        int i = start(rowA) + offsetA;
+        int j = start(rowB) + offsetB;
+        int endA = start(rowA) + length(rowA);
+        int endB = start(rowB) + length(rowB);
+        for (; i < endA && j < endB; i++, j++) {
+            int cmp = Integer.compare(bytes.get(i) & 0xFF, bytes.get(j) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(endA - i, endB - j);
+    }
+
+    /**
+     * Compares the bytes of a row from an offset onwards, cut to the prefix's length, with the prefix.
+     * @return Zero if the tail starts with the prefix, otherwise its unsigned order relative to the prefix
+     */
+    public int comparePrefix(int row, int offset, byte[] prefix) {
+        int from = start(row) + offset;
+        int n = Math.min(length(row) - offset, prefix.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(bytes.get(from + i) & 0xFF, prefix[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length(row) - offset < prefix.length ? -1 : 0;
+    }
+
+    /**
+     * @return Offset of the first occurrence of the byte in the row at or after {@code from}, or -1
+     */
+    public int indexOf(int row, byte value, int from) {
+        int start = start(row);
+        for (int i = from, n = length(row); i < n; i++) {
+            if (bytes.get(start + i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int start(int row) {
+        int code = codes[row];
+        return code < 0 ? 0 : offsets[code];
+    }
+}
@@ -0,0 +1,34 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to JDK 21 virtual threads from code compiled for Java 8. Looked up reflectively, so the same
+ * jar runs everywhere and simply keeps platform threads on older JDKs.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return An executor starting a new virtual thread per task, or empty when this JDK has none
+     *         (before 21, or 19/20 without {@code --enable-preview})
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return Optional.empty();
+        } catch (InvocationTargetException e) {
+            // Preview API present but not enabled
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                return Optional.empty();
+            }
+            throw new IllegalStateException("Cannot create virtual thread executor", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ship's log of every visitor, kept only when the captain asks for it
+ */
+public class AccessLogInterceptorTest {
+
+    private final AccessLogInterceptor interceptor = new AccessLogInterceptor();
+
+    @AfterEach
+    public void tearDown() {
+        Configurator.setLevel(MovieLogs.ACCESS.getName(), Level.OFF);
+    }
+
+    @Test
+    public void testDoesNothingWhileAccessLogIsOff() {
+        Configurator.setLevel(MovieLogs.ACCESS.getName(), Level.OFF);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/search");
+
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+        assertFalse(request.getAttributeNames().hasMoreElements());
+    }
+
+    @Test
+    public void testTimesRequestWhenAccessLogIsOn() {
+        Configurator.setLevel(MovieLogs.ACCESS.getName(), Level.INFO);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/search");
+        request.setQueryString("name=prison");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, null));
+        assertTrue(request.getAttributeNames().hasMoreElements());
+        interceptor.afterCompletion(request, response, null, new IllegalStateException("boom"));
+    }
+}
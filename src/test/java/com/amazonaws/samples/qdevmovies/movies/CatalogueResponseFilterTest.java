@@ -0,0 +1,153 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ETags, Cache-Control and stored gzip bodies in front of the catalogue
+ * Arrr! Why haul the same chest ashore twice when the first mate already has it?
+ */
+public class CatalogueResponseFilterTest {
+
+    private static final String PAGE = String.join("", Collections.nCopies(200, "<p>Yo ho ho</p>"));
+
+    private PageFragmentCache pageFragments;
+    private ReviewService reviewService;
+    private CatalogueResponseFilter filter;
+    private AtomicInteger rendered;
+    private FilterChain chain;
+
+    @BeforeEach
+    public void setUp() {
+        RenderProperties properties = new RenderProperties();
+        properties.setCache(true);
+        pageFragments = new PageFragmentCache(null, properties);
+        MovieService movieService = new MovieService(Collections.singletonList(
+            new Movie(1L, "Movie", "Director", 2001, "Drama", "d", 100, 4.0)));
+        reviewService = new ReviewService(Collections.<Long, List<Review>>emptyMap());
+        filter = new CatalogueResponseFilter(movieService, reviewService, pageFragments, properties);
+        rendered = new AtomicInteger();
+        chain = (request, response) -> {
+            rendered.incrementAndGet();
+            response.setContentType("text/html;charset=UTF-8");
+            response.getOutputStream().write(PAGE.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private MockHttpServletResponse get(String uri, String... headers) throws Exception {
+        String[] pathAndQuery = uri.split("\\?", 2);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", pathAndQuery[0]);
+        if (pathAndQuery.length > 1) {
+            request.setQueryString(pathAndQuery[1]);
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            request.addHeader(headers[i], headers[i + 1]);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(org.springframework.util.StreamUtils.copyToByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testCompressesOnceAndServesStoredBody() throws Exception {
+        MockHttpServletResponse first = get("/movies", "Accept-Encoding", "gzip, deflate, br");
+        assertEquals(200, first.getStatus());
+        assertEquals("gzip", first.getHeader("Content-Encoding"));
+        assertEquals(PAGE, gunzip(first.getContentAsByteArray()));
+        assertTrue(first.getHeader("ETag").endsWith("-gz\""));
+        assertEquals("max-age=60, public", first.getHeader("Cache-Control"));
+        assertEquals("Accept-Encoding", first.getHeader("Vary"));
+        assertNotNull(first.getHeader("Last-Modified"));
+
+        MockHttpServletResponse second = get("/movies", "Accept-Encoding", "gzip");
+        assertArrayEquals(first.getContentAsByteArray(), second.getContentAsByteArray());
+        assertEquals("text/html;charset=UTF-8", second.getContentType());
+        assertEquals(1, rendered.get());
+    }
+
+    @Test
+    public void testRevalidationGetsNotModifiedWithoutRendering() throws Exception {
+        String etag = get("/movies/1/details").getHeader("ETag");
+        assertFalse(etag.endsWith("-gz\""));
+
+        MockHttpServletResponse notModified = get("/movies/1/details", "If-None-Match", etag);
+        assertEquals(304, notModified.getStatus());
+        assertEquals(0, notModified.getContentLength());
+
+        MockHttpServletResponse sinceLoaded = get("/movies/1/details", "If-Modified-Since",
+            notModified.getHeader("Last-Modified"));
+        assertEquals(304, sinceLoaded.getStatus());
+        assertEquals(1, rendered.get());
+    }
+
+    @Test
+    public void testSubmittedReviewChangesDetailsETag() throws Exception {
+        String etag = get("/movies/1/details").getHeader("ETag");
+        String searchEtag = get("/movies/search?name=movie").getHeader("ETag");
+
+        reviewService.submitReview(1L, new Review("alice", "👩", 4.0, "Crispy")).get();
+
+        assertEquals(200, get("/movies/1/details", "If-None-Match", etag).getStatus());
+        assertEquals(304, get("/movies/search?name=movie", "If-None-Match", searchEtag).getStatus());
+    }
+
+    @Test
+    public void testETagsDifferByQueryAndEncoding() throws Exception {
+        String plain = get("/movies/search?name=the").getHeader("ETag");
+        String other = get("/movies/search?name=them").getHeader("ETag");
+        String gzipped = get("/movies/search?name=the", "Accept-Encoding", "gzip").getHeader("ETag");
+        String refused = get("/movies/search?name=the", "Accept-Encoding", "gzip;q=0").getHeader("ETag");
+
+        assertNotEquals(plain, other);
+        assertNotEquals(plain, gzipped);
+        assertEquals(plain, refused);
+        assertEquals(200, get("/movies/search?name=them", "If-None-Match", plain).getStatus());
+    }
+
+    @Test
+    public void testHashCollidingRequestsKeepTheirOwnTagsAndBodies() throws Exception {
+        chain = (request, response) -> {
+            rendered.incrementAndGet();
+            response.setContentType("text/html;charset=UTF-8");
+            String query = ((javax.servlet.http.HttpServletRequest) request).getQueryString();
+            response.getOutputStream().write((PAGE + query).getBytes(StandardCharsets.UTF_8));
+        };
+        // "Aa" and "BB" share a String.hashCode, and so do the two requests
+        assertEquals("/movies/search?name=Aa".hashCode(), "/movies/search?name=BB".hashCode());
+
+        MockHttpServletResponse aa = get("/movies/search?name=Aa", "Accept-Encoding", "gzip");
+        MockHttpServletResponse bb = get("/movies/search?name=BB", "Accept-Encoding", "gzip");
+        assertNotEquals(aa.getHeader("ETag"), bb.getHeader("ETag"));
+        assertEquals(PAGE + "name=Aa", gunzip(aa.getContentAsByteArray()));
+        assertEquals(PAGE + "name=BB", gunzip(bb.getContentAsByteArray()));
+        assertEquals(200, get("/movies/search?name=BB", "If-None-Match", get("/movies/search?name=Aa").getHeader("ETag"))
+            .getStatus());
+    }
+
+    @Test
+    public void testStreamsAndOtherPathsPassThrough() throws Exception {
+        assertNull(get("/movies/search", "Accept", MoviesController.NDJSON_VALUE, "Accept-Encoding", "gzip")
+            .getHeader("ETag"));
+        assertNull(get("/movies/batch").getHeader("ETag"));
+        assertEquals(2, rendered.get());
+    }
+}
@@ -0,0 +1,214 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the binary catalogue snapshot format
+ * Arrr! A map to the treasure be only worth somethin' if it survives the voyage intact!
+ */
+public class CatalogueSnapshotTest {
+
+    private static final List<Movie> MOVIES = Arrays.asList(
+        new Movie(1, "Amélie", "Jean-Pierre Jeunet", 2001, "Romance", "Café 🎬 life", 122, 8.3),
+        new Movie(2, "Delicatessen", "Jean-Pierre Jeunet", 1991, "Comedy", "", 99, 7.6),
+        new Movie(3000000000L, "Untitled", null, 2020, "Comedy", null, 90, 5.0));
+
+    @Test
+    public void testMoviesRoundTrip(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        CatalogueSnapshot.writeMovies(MOVIES, file);
+
+        assertTrue(CatalogueSnapshot.isSnapshot(file));
+        List<Movie> movies = CatalogueSnapshot.readMovies(file);
+        assertEquals(MOVIES.size(), movies.size());
+        for (int i = 0; i < MOVIES.size(); i++) {
+            Movie expected = MOVIES.get(i);
+            Movie actual = movies.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getMovieName(), actual.getMovieName());
+            assertEquals(expected.getDirector(), actual.getDirector());
+            assertEquals(expected.getYear(), actual.getYear());
+            assertEquals(expected.getGenre(), actual.getGenre());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getDuration(), actual.getDuration());
+            assertEquals(expected.getImdbRating(), actual.getImdbRating());
+        }
+        // Repeated strings are decoded once and shared
+        assertSame(movies.get(0).getDirector(), movies.get(1).getDirector());
+    }
+
+    @Test
+    public void testReviewsRoundTrip(@TempDir Path dir) throws IOException {
+        Map<Long, List<Review>> reviews = new HashMap<>();
+        reviews.put(1L, Arrays.asList(new Review("alice", "👩", 4.5, "Loved it"), new Review("bob", "🧔", 2.0, "Meh")));
+        reviews.put(2L, Arrays.asList(new Review("alice", "👩", 5.0, "Loved it")));
+        Path file = dir.resolve("reviews.snapshot");
+        CatalogueSnapshot.writeReviews(reviews, file);
+
+        Map<Long, List<Review>> read = CatalogueSnapshot.readReviews(file);
+        assertEquals(2, read.size());
+        assertEquals(2, read.get(1L).size());
+        Review bob = read.get(1L).get(1);
+        assertEquals("bob", bob.getUserName());
+        assertEquals("🧔", bob.getAvatarEmoji());
+        assertEquals(2.0, bob.getRating());
+        assertEquals("Meh", bob.getComment());
+        assertEquals(5.0, read.get(2L).get(0).getRating());
+    }
+
+    @Test
+    public void testBundledSnapshotsMatchJson() throws IOException {
+        List<Movie> fromJson;
+        Map<Long, List<Review>> reviewsFromJson;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("movies.json")) {
+            fromJson = MovieService.readMoviesJson(in);
+        }
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("mock-reviews.json")) {
+            reviewsFromJson = ReviewService.readReviewsJson(in);
+        }
+        List<Movie> fromSnapshot = CatalogueSnapshot.readMovies(
+            getClass().getClassLoader().getResource(CatalogueSnapshot.MOVIES_RESOURCE),
+            getClass().getClassLoader().getResource("movies.json"));
+        Map<Long, List<Review>> reviewsFromSnapshot = CatalogueSnapshot.readReviews(
+            getClass().getClassLoader().getResource(CatalogueSnapshot.REVIEWS_RESOURCE),
+            getClass().getClassLoader().getResource("mock-reviews.json"));
+
+        assertEquals(fromJson.size(), fromSnapshot.size());
+        for (int i = 0; i < fromJson.size(); i++) {
+            assertEquals(fromJson.get(i).getId(), fromSnapshot.get(i).getId());
+            assertEquals(fromJson.get(i).getDescription(), fromSnapshot.get(i).getDescription());
+        }
+        assertEquals(reviewsFromJson.keySet(), reviewsFromSnapshot.keySet());
+    }
+
+    @Test
+    public void testRejectsSnapshotOfOtherJson(@TempDir Path dir) throws IOException {
+        Path json = dir.resolve("movies.json");
+        Files.write(json, "[]".getBytes(StandardCharsets.UTF_8));
+        Path file = dir.resolve("movies.snapshot");
+        CatalogueSnapshot.writeMovies(MOVIES, file, Files.size(json));
+        FileTime written = Files.getLastModifiedTime(file);
+        Files.setLastModifiedTime(json, FileTime.fromMillis(written.toMillis() - 60000));
+        assertEquals(MOVIES.size(), CatalogueSnapshot.readMovies(file.toUri().toURL(), json.toUri().toURL()).size());
+
+        // The JSON is edited but the snapshot in target/ is not rebuilt
+        Files.write(json, "{}".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(json, FileTime.fromMillis(written.toMillis() + 60000));
+        IOException e = assertThrows(CatalogueSnapshot.SnapshotException.class,
+            () -> CatalogueSnapshot.readMovies(file.toUri().toURL(), json.toUri().toURL()));
+        assertTrue(e.getMessage().contains("modified since"));
+
+        // Or replaced by an older file of another size
+        Files.write(json, "[ ]".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(json, FileTime.fromMillis(written.toMillis() - 60000));
+        e = assertThrows(CatalogueSnapshot.SnapshotException.class,
+            () -> CatalogueSnapshot.readMovies(file.toUri().toURL(), json.toUri().toURL()));
+        assertTrue(e.getMessage().contains("other JSON"));
+        // Without a source to compare against, any intact snapshot is accepted
+        assertEquals(MOVIES.size(), CatalogueSnapshot.readMovies(file).size());
+    }
+
+    @Test
+    public void testReadsFormatOneWithoutSource(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("reviews.snapshot");
+        Map<Long, List<Review>> reviews = new HashMap<>();
+        reviews.put(7L, Arrays.asList(new Review("alice", "👩", 4.5, "Loved it")));
+        CatalogueSnapshot.writeReviews(reviews, file);
+        // Format 1: the same header without the trailing source checksum
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] old = new byte[bytes.length - 8];
+        System.arraycopy(bytes, 0, old, 0, 32);
+        System.arraycopy(bytes, CatalogueSnapshot.HEADER_BYTES, old, 32, bytes.length - CatalogueSnapshot.HEADER_BYTES);
+        ByteBuffer.wrap(old).putInt(4, 1);
+        Files.write(file, old);
+
+        assertEquals("Loved it", CatalogueSnapshot.readReviews(file).get(7L).get(0).getComment());
+    }
+
+    @Test
+    public void testRejectsCorruptPayload(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        CatalogueSnapshot.writeMovies(MOVIES, file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 3] ^= 0x5A;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(CatalogueSnapshot.SnapshotException.class, () -> CatalogueSnapshot.readMovies(file));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+
+    @Test
+    public void testRejectsTruncatedFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        CatalogueSnapshot.writeMovies(MOVIES, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertThrows(CatalogueSnapshot.SnapshotException.class, () -> CatalogueSnapshot.readMovies(file));
+    }
+
+    @Test
+    public void testRejectsTruncatedHeader(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        CatalogueSnapshot.writeMovies(MOVIES, file);
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length : new int[] {6, 32, 39}) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            assertThrows(CatalogueSnapshot.SnapshotException.class, () -> CatalogueSnapshot.readMovies(file));
+        }
+    }
+
+    @Test
+    public void testRejectsRecordCountPayloadCannotHold(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        CatalogueSnapshot.writeMovies(MOVIES, file);
+        byte[] bytes = Files.readAllBytes(file);
+        for (int count : new int[] {Integer.MAX_VALUE, -1, 1000}) {
+            ByteBuffer.wrap(bytes).putInt(12, count);
+            Files.write(file, bytes);
+            IOException e = assertThrows(CatalogueSnapshot.SnapshotException.class, () -> CatalogueSnapshot.readMovies(file));
+            assertTrue(e.getMessage().contains("records"));
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFormatVersionAndKind(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("movies.snapshot");
+        CatalogueSnapshot.writeMovies(MOVIES, file);
+
+        assertThrows(CatalogueSnapshot.SnapshotException.class, () -> CatalogueSnapshot.readReviews(file));
+
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, CatalogueSnapshot.FORMAT_VERSION + 1);
+        Files.write(file, bytes);
+        IOException e = assertThrows(CatalogueSnapshot.SnapshotException.class, () -> CatalogueSnapshot.readMovies(file));
+        assertTrue(e.getMessage().contains("format"));
+    }
+
+    @Test
+    public void testJsonIsNotSnapshot(@TempDir Path dir) throws IOException {
+        Path json = dir.resolve("movies.json");
+        Files.write(json, "[]".getBytes(StandardCharsets.UTF_8));
+        Path empty = dir.resolve("empty");
+        Files.write(empty, new byte[0]);
+
+        assertFalse(CatalogueSnapshot.isSnapshot(json));
+        assertFalse(CatalogueSnapshot.isSnapshot(empty));
+        assertThrows(CatalogueSnapshot.SnapshotException.class, () -> CatalogueSnapshot.readMovies(json));
+    }
+}
@@ -0,0 +1,57 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for splittin' request time between the captain's orders and the paintin' of the page
+ */
+public class HandlerTimingInterceptorTest {
+
+    private SimpleMeterRegistry registry;
+    private HandlerTimingInterceptor interceptor;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        interceptor = new HandlerTimingInterceptor(new MovieMetrics(registry));
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void testRecordsHandlerAndRenderTimeForViews() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new MoviesController(), "getMovieDetails", Long.class,
+            org.springframework.ui.Model.class);
+
+        interceptor.preHandle(request, response, handler);
+        interceptor.postHandle(request, response, handler, new ModelAndView("movie-details"));
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertEquals(1L, registry.get("movies.handler").tag("handler", "getMovieDetails").timer().count());
+        assertEquals(1L, registry.get("movies.render").tag("handler", "getMovieDetails").timer().count());
+    }
+
+    @Test
+    public void testSkipsRenderTimeForResponseBodies() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new MoviesController(), "searchMovies", String.class, Long.class,
+            String.class, String.class, Integer.class, Integer.class, Integer.class, Integer.class, Double.class,
+            String.class, String.class, Integer.class);
+
+        interceptor.preHandle(request, response, handler);
+        interceptor.postHandle(request, response, handler, null);
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertEquals(1L, registry.get("movies.handler").tag("handler", "searchMovies").timer().count());
+        assertNull(registry.find("movies.render").timer());
+    }
+}
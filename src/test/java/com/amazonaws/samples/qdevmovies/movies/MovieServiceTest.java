@@ -1,10 +1,23 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,6 +57,57 @@ public class MovieServiceTest {
         assertFalse(movie.isPresent());
     }
 
+    @Test
+    public void testGetMoviesByIds() {
+        List<Movie> movies = movieService.getMoviesByIds(new long[] {3L, 999L, 1L, 3L, -1L});
+        assertEquals(2, movies.size());
+        assertEquals(3L, movies.get(0).getId());
+        assertEquals(1L, movies.get(1).getId());
+        assertSame(movieService.getMovieById(1L).get(), movies.get(1));
+    }
+
+    @Test
+    public void testGetMoviesByIdsEmpty() {
+        assertTrue(movieService.getMoviesByIds(new long[0]).isEmpty());
+    }
+
+    @Test
+    public void testSearchRankedMatchesDescriptionAndDirector() {
+        List<ScoredMovie> results = movieService.searchRanked("escaping prisoners", 5);
+        assertFalse(results.isEmpty());
+        assertEquals("The Prison Escape", results.get(0).getMovie().getMovieName());
+
+        Movie byDirector = movieService.searchRanked(movieService.getMovieById(2L).get().getDirector(), 1).get(0).getMovie();
+        assertEquals(2L, byDirector.getId());
+    }
+
+    @Test
+    public void testSearchRankedBlankQueryAndLimit() {
+        assertTrue(movieService.searchRanked("  ", 10).isEmpty());
+        assertTrue(movieService.searchRanked(null, 10).isEmpty());
+        assertEquals(1, movieService.searchRanked("the drama crime", 1).size());
+    }
+
+    @Test
+    public void testSuggestTitles() {
+        List<MovieSuggestion> suggestions = movieService.suggestTitles("the", 3);
+        assertEquals(3, suggestions.size());
+        // Best rated first
+        assertEquals("The Prison Escape", suggestions.get(0).getMovieName());
+        assertTrue(suggestions.get(0).isExact());
+
+        List<MovieSuggestion> corrected = movieService.suggestTitles("drem hiest", 5);
+        assertEquals(1, corrected.size());
+        assertEquals(6L, corrected.get(0).getId());
+        assertFalse(corrected.get(0).isExact());
+    }
+
+    @Test
+    public void testSuggestTitlesBlankQuery() {
+        assertTrue(movieService.suggestTitles("", 5).isEmpty());
+        assertTrue(movieService.suggestTitles(null, 5).isEmpty());
+    }
+
     @Test
     public void testGetMovieByIdNull() {
         Optional<Movie> movie = movieService.getMovieById(null);
@@ -233,4 +297,580 @@ public class MovieServiceTest {
             assertEquals(results1.get(i).getId(), results2.get(i).getId());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSearchMoviesByShortName() {
+        // Queries shorter than a trigram still match like contains()
+        List<Movie> results = movieService.searchMovies("ue", null, null);
+        assertFalse(results.isEmpty());
+        for (Movie movie : results) {
+            assertTrue(movie.getMovieName().toLowerCase().contains("ue"));
+        }
+    }
+
+    @Test
+    public void testSearchMoviesTrigramsPresentButNotContiguous() {
+        // "the" and "her" both occur in titles, but no title contains "ther"
+        List<Movie> results = movieService.searchMovies("ther", null, null);
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void testSearchMoviesMatchesLinearScan() {
+        List<Movie> allMovies = movieService.getAllMovies();
+        for (Movie source : allMovies) {
+            String name = source.getMovieName();
+            for (int start = 0; start < name.length(); start += 2) {
+                for (int end = start + 1; end <= name.length(); end += 3) {
+                    String query = name.substring(start, end);
+                    if (query.trim().isEmpty()) {
+                        continue;
+                    }
+                    List<Movie> expected = new ArrayList<>();
+                    for (Movie movie : allMovies) {
+                        if (movie.getMovieName().toLowerCase().contains(query.toLowerCase().trim())) {
+                            expected.add(movie);
+                        }
+                    }
+                    assertEquals(expected, movieService.searchMovies(query, null, null), "query: " + query);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetAllGenresIsMemoized() {
+        List<String> genres = movieService.getAllGenres();
+        assertSame(genres, movieService.getAllGenres());
+        assertThrows(UnsupportedOperationException.class, () -> genres.add("Horror"));
+    }
+
+    @Test
+    public void testGetGenreCounts() {
+        Map<String, Integer> counts = movieService.getGenreCounts();
+        assertEquals(movieService.getAllGenres(), new ArrayList<>(counts.keySet()));
+        assertEquals(Integer.valueOf(3), counts.get("Crime/Drama"));
+        assertEquals(Integer.valueOf(1), counts.get("Drama"));
+
+        int total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        assertEquals(movieService.getAllMovies().size(), total);
+    }
+
+    @Test
+    public void testGetMoviesByGenre() {
+        List<Movie> results = movieService.getMoviesByGenre("Crime/Drama");
+        assertEquals(3, results.size());
+        for (Movie movie : results) {
+            assertEquals("Crime/Drama", movie.getGenre());
+        }
+        assertTrue(movieService.getMoviesByGenre("Horror").isEmpty());
+        assertTrue(movieService.getMoviesByGenre(null).isEmpty());
+    }
+
+    @Test
+    public void testGetMoviesPageWalksAllMoviesById() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            MoviePage page = movieService.getMoviesPage(null, null, null, MovieSort.ID, cursor, 5);
+            assertTrue(page.getMovies().size() <= 5);
+            assertEquals(movieService.getAllMovies().size(), page.getTotalCount());
+            for (Movie movie : page.getMovies()) {
+                seen.add(movie.getId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(movieService.getAllMovies().size(), seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1) < seen.get(i));
+        }
+    }
+
+    @Test
+    public void testGetMoviesPageByRatingIsStable() {
+        List<Movie> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            MoviePage page = movieService.getMoviesPage(null, null, null, MovieSort.RATING, cursor, 4);
+            all.addAll(page.getMovies());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(movieService.getAllMovies().size(), all.size());
+        for (int i = 1; i < all.size(); i++) {
+            Movie previous = all.get(i - 1);
+            Movie current = all.get(i);
+            assertTrue(previous.getImdbRating() > current.getImdbRating()
+                || (previous.getImdbRating() == current.getImdbRating() && previous.getId() < current.getId()));
+        }
+    }
+
+    @Test
+    public void testGetMoviesPageWithFilter() {
+        MoviePage first = movieService.getMoviesPage(null, null, "Drama", MovieSort.YEAR, null, 2);
+        List<Movie> expected = movieService.searchMovies(null, null, "Drama");
+        assertEquals(expected.size(), first.getTotalCount());
+        assertEquals(2, first.getMovies().size());
+        assertNotNull(first.getNextCursor());
+        assertTrue(first.getMovies().get(0).getYear() >= first.getMovies().get(1).getYear());
+
+        MoviePage second = movieService.getMoviesPage(null, null, "Drama", MovieSort.YEAR, first.getNextCursor(), 2);
+        assertTrue(first.getMovies().get(1).getYear() >= second.getMovies().get(0).getYear());
+    }
+
+    @Test
+    public void testGetMoviesPageSparseMatches() {
+        MoviePage page = movieService.getMoviesPage("Prison", null, null, MovieSort.RATING, null, 10);
+        assertEquals(1, page.getTotalCount());
+        assertEquals("The Prison Escape", page.getMovies().get(0).getMovieName());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testGetMoviesPageWithYearAndRatingRangesSortedByDuration() {
+        MovieFilter filter = MovieFilter.ALL.withYears(1990, 1999).withMinRating(4.5);
+        MoviePage page = movieService.getMoviesPage(filter, MovieSort.DURATION, null, 4);
+        assertEquals(6, page.getTotalCount());
+        assertEquals(Arrays.asList(11L, 4L, 8L, 1L), ids(page.getMovies()));
+
+        MoviePage rest = movieService.getMoviesPage(filter, MovieSort.DURATION, page.getNextCursor(), 4);
+        assertEquals(Arrays.asList(12L, 7L), ids(rest.getMovies()));
+        assertNull(rest.getNextCursor());
+    }
+
+    @Test
+    public void testGetMoviesPageWithDirectorAndDuration() {
+        MovieFilter longOnes = MovieFilter.ALL.withDirector("MOVIEMAKER").withDuration(150, null);
+        assertEquals(Arrays.asList(3L, 9L), ids(movieService.getMoviesPage(longOnes, MovieSort.ID, null, 10).getMovies()));
+
+        MovieFilter shortDramas = MovieFilter.of(null, null, "drama").withDirector("filmmaker").withDuration(null, 146);
+        assertEquals(Arrays.asList(5L, 8L), ids(movieService.getMoviesPage(shortDramas, MovieSort.ID, null, 10).getMovies()));
+
+        assertEquals(0, movieService.getMoviesPage(MovieFilter.ALL.withDirector("Kubrick"), MovieSort.ID, null, 10)
+            .getTotalCount());
+    }
+
+    @Test
+    public void testRangeFiltersAgreeWithScan() {
+        List<Movie> all = movieService.getAllMovies();
+        for (int minYear = 1970; minYear <= 2010; minYear += 4) {
+            for (double minRating = 3.5; minRating <= 5.0; minRating += 0.5) {
+                MovieFilter filter = MovieFilter.ALL.withYears(minYear, minYear + 15).withMinRating(minRating);
+                List<Long> expected = new ArrayList<>();
+                for (Movie movie : all) {
+                    if (movie.getYear() >= minYear && movie.getYear() <= minYear + 15 && movie.getImdbRating() >= minRating) {
+                        expected.add(movie.getId());
+                    }
+                }
+                List<Long> actual = new ArrayList<>();
+                movieService.forEachMatch(filter, MovieSort.ID, movie -> actual.add(movie.getId()));
+                assertEquals(expected, actual, filter.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testMovieFilterNormalisesAndValidates() {
+        assertEquals(MovieFilter.of(" Prison ", -1L, ""), MovieFilter.of("prison", null, null));
+        assertFalse(MovieFilter.of(null, 0L, " ").isRestrictive());
+        assertTrue(MovieFilter.ALL.withMinRating(4.0).isRestrictive());
+        assertThrows(IllegalArgumentException.class, () -> MovieFilter.ALL.withYears(2000, 1990));
+        assertThrows(IllegalArgumentException.class, () -> MovieFilter.ALL.withDuration(-5, null));
+        assertThrows(IllegalArgumentException.class, () -> MovieFilter.ALL.withMinRating(Double.NaN));
+    }
+
+    @Test
+    public void testGetMoviesPageRejectsForeignCursor() {
+        MoviePage page = movieService.getMoviesPage(null, null, null, MovieSort.ID, null, 1);
+        assertThrows(IllegalArgumentException.class,
+            () -> movieService.getMoviesPage(null, null, null, MovieSort.YEAR, page.getNextCursor(), 1));
+        assertThrows(IllegalArgumentException.class,
+            () -> movieService.getMoviesPage(null, null, null, MovieSort.ID, "not-a-cursor!", 1));
+    }
+
+    private static final String TWO_MOVIES = "["
+        + "{\"id\": 1, \"movieName\": \"First Voyage\", \"director\": \"A\", \"year\": 2000, \"genre\": \"Drama\", "
+        + "\"description\": \"d\", \"duration\": 100, \"imdbRating\": 4.0},"
+        + "{\"id\": 2, \"movieName\": \"Second Voyage\", \"director\": \"B\", \"year\": 2001, \"genre\": \"Comedy\", "
+        + "\"description\": \"d\", \"duration\": 90, \"imdbRating\": 3.5}"
+        + "]";
+
+    private static final String ONE_MOVIE = "["
+        + "{\"id\": 3, \"movieName\": \"Third Voyage\", \"director\": \"C\", \"year\": 2002, \"genre\": \"Horror\", "
+        + "\"description\": \"d\", \"duration\": 95, \"imdbRating\": 3.0}"
+        + "]";
+
+    private MovieService externalCatalogueService(Path file) {
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setPath(file.toString());
+        properties.setReloadDelayMillis(50);
+        return new MovieService(properties);
+    }
+
+    @Test
+    public void testResolvesIconsWhenLoading() {
+        assertEquals("🔒", movieService.getMovieById(1L).get().getIcon());
+        assertEquals("🚀", movieService.getMovieById(10L).get().getIcon());
+
+        MovieService service = new MovieService(Arrays.asList(
+            new Movie(1, "Night Train", "A", 2000, "Drama", "d", 100, 4.0),
+            new Movie(2, "Quiet Days", "B", 2001, "Comedy/Drama", "d", 90, 3.5)));
+        assertEquals("🚂", service.getMovieById(1L).get().getIcon());
+        assertEquals("😂", service.getMovieById(2L).get().getIcon());
+    }
+
+    @Test
+    public void testExternalIconRulesAreReadAgainOnReload(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("movies.json");
+        Files.write(file, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+        Path rules = dir.resolve("icons.json");
+        Files.write(rules, "{\"genres\": {\"Drama\": \"D\"}, \"default\": \"?\"}".getBytes(StandardCharsets.UTF_8));
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setPath(file.toString());
+        properties.setIconRules(rules.toString());
+        MovieService service = new MovieService(properties);
+        assertEquals("D", service.getMovieById(1L).get().getIcon());
+        assertEquals("?", service.getMovieById(2L).get().getIcon());
+
+        Files.write(rules, "{\"keywords\": [{\"match\": \"voyage\", \"icon\": \"V\"}]}".getBytes(StandardCharsets.UTF_8));
+        assertTrue(service.reloadCatalogue());
+        assertEquals("V", service.getMovieById(2L).get().getIcon());
+
+        // A broken rules file leaves the previous rules in force
+        Files.write(rules, "{not json".getBytes(StandardCharsets.UTF_8));
+        assertTrue(service.reloadCatalogue());
+        assertEquals("V", service.getMovieById(1L).get().getIcon());
+    }
+
+    @Test
+    public void testLoadsExternalCatalogue(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("movies.json");
+        Files.write(file, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+
+        MovieService service = externalCatalogueService(file);
+        assertEquals(2, service.getAllMovies().size());
+        assertEquals(1L, service.getCatalogueVersion());
+    }
+
+    @Test
+    public void testReloadPublishesNewSnapshot(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("movies.json");
+        Files.write(file, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+        MovieService service = externalCatalogueService(file);
+        List<Movie> before = service.getAllMovies();
+
+        Files.write(file, ONE_MOVIE.getBytes(StandardCharsets.UTF_8));
+        assertTrue(service.reloadCatalogue());
+
+        assertEquals(2L, service.getCatalogueVersion());
+        assertEquals(1, service.getAllMovies().size());
+        assertEquals(Arrays.asList("Horror"), service.getAllGenres());
+        assertEquals(1, service.searchMovies("third", null, null).size());
+        assertFalse(service.getMovieById(1L).isPresent());
+        // Callers holding the old snapshot keep a consistent view
+        assertEquals(2, before.size());
+    }
+
+    @Test
+    public void testReloadKeepsCatalogueOnBadFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("movies.json");
+        Files.write(file, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+        MovieService service = externalCatalogueService(file);
+
+        Files.write(file, "[{\"id\": ".getBytes(StandardCharsets.UTF_8));
+        assertFalse(service.reloadCatalogue());
+        assertEquals(1L, service.getCatalogueVersion());
+        assertEquals(2, service.getAllMovies().size());
+    }
+
+    @Test
+    public void testLoadsAndReloadsExternalSnapshot(@TempDir Path dir) throws Exception {
+        Path json = dir.resolve("movies.json");
+        Files.write(json, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+        Path file = dir.resolve("movies.snapshot");
+        try (InputStream in = Files.newInputStream(json)) {
+            CatalogueSnapshot.writeMovies(MovieService.readMoviesJson(in), file);
+        }
+
+        MovieService service = externalCatalogueService(file);
+        assertEquals(2, service.getAllMovies().size());
+
+        Files.write(json, ONE_MOVIE.getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = Files.newInputStream(json)) {
+            CatalogueSnapshot.writeMovies(MovieService.readMoviesJson(in), file);
+        }
+        assertTrue(service.reloadCatalogue());
+        assertEquals(1, service.getAllMovies().size());
+        assertEquals(1, service.searchMovies("third", null, null).size());
+    }
+
+    @Test
+    public void testReadMoviesJsonStreamsEmptyArray() {
+        InputStream in = new ByteArrayInputStream(" [ ] ".getBytes(StandardCharsets.UTF_8));
+        assertTrue(MovieService.readMoviesJson(in).isEmpty());
+    }
+
+    @Test
+    public void testWatcherReloadsChangedFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("movies.json");
+        Files.write(file, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+        MovieService service = externalCatalogueService(file);
+        service.startWatching();
+        try {
+            Files.write(file, ONE_MOVIE.getBytes(StandardCharsets.UTF_8));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (service.getCatalogueVersion() == 1L && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, service.getAllMovies().size());
+        } finally {
+            service.stopWatching();
+        }
+    }
+
+    @Test
+    public void testGetMovieByIdWithSparseIds() {
+        List<Movie> movies = new ArrayList<>();
+        long[] ids = {7L, 1000000007L, 42L, Long.MAX_VALUE, 3L};
+        for (long id : ids) {
+            movies.add(new Movie(id, "Movie " + id, "Director", 2000, "Drama", "d", 100, 4.0));
+        }
+        MovieService service = new MovieService(movies);
+
+        for (long id : ids) {
+            assertEquals("Movie " + id, service.getMovieById(id).get().getMovieName());
+            assertEquals(1, service.searchMovies(null, id, null).size());
+        }
+        assertFalse(service.getMovieById(8L).isPresent());
+        assertFalse(service.getMovieById(1000000008L).isPresent());
+        assertTrue(service.searchMovies(null, 8L, null).isEmpty());
+    }
+
+    @Test
+    public void testGetMovieByIdWithDenseIdsOffsetFromZero() {
+        List<Movie> movies = new ArrayList<>();
+        for (long id = 500; id < 600; id++) {
+            movies.add(new Movie(id, "Movie " + id, "Director", 2000, "Drama", "d", 100, 4.0));
+        }
+        MovieService service = new MovieService(movies);
+
+        assertEquals(500L, service.getMovieById(500L).get().getId());
+        assertEquals(599L, service.getMovieById(599L).get().getId());
+        assertFalse(service.getMovieById(499L).isPresent());
+        assertFalse(service.getMovieById(600L).isPresent());
+    }
+
+    @Test
+    public void testColumnarStorageServesSameMovies() throws Exception {
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setStorage(CatalogueProperties.Storage.COLUMNAR);
+        MovieService columnar = new MovieService(properties);
+        ObjectMapper mapper = new ObjectMapper();
+
+        List<Movie> expected = movieService.getAllMovies();
+        List<Movie> actual = columnar.getAllMovies();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Movie heap = expected.get(i);
+            Movie view = actual.get(i);
+            assertEquals(heap.getId(), view.getId());
+            assertEquals(heap.getMovieName(), view.getMovieName());
+            assertEquals(heap.getDirector(), view.getDirector());
+            assertEquals(heap.getYear(), view.getYear());
+            assertEquals(heap.getGenre(), view.getGenre());
+            assertEquals(heap.getDescription(), view.getDescription());
+            assertEquals(heap.getDuration(), view.getDuration());
+            assertEquals(heap.getImdbRating(), view.getImdbRating());
+            assertEquals(heap.getIcon(), view.getIcon());
+            assertEquals(mapper.writeValueAsString(heap), mapper.writeValueAsString(view));
+        }
+
+        assertEquals(movieService.getAllGenres(), columnar.getAllGenres());
+        assertEquals(ids(movieService.searchMovies("the", null, "drama")), ids(columnar.searchMovies("the", null, "drama")));
+        assertEquals(ids(movieService.getMoviesPage(null, null, null, MovieSort.RATING, null, 5).getMovies()),
+            ids(columnar.getMoviesPage(null, null, null, MovieSort.RATING, null, 5).getMovies()));
+        assertEquals("The Prison Escape", columnar.getMovieById(1L).get().getMovieName());
+    }
+
+    @Test
+    public void testColumnarStorageKeepsUnicodeAndRepeatedStrings() {
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setStorage(CatalogueProperties.Storage.COLUMNAR);
+        List<Movie> movies = Arrays.asList(
+            new Movie(1, "Amélie", "Jean-Pierre Jeunet", 2001, "Romance", "Café 🎬 life", 122, 8.3),
+            new Movie(2, "Delicatessen", "Jean-Pierre Jeunet", 1991, "Comedy", "", 99, 7.6),
+            new Movie(3, "Untitled", null, 2020, "Comedy", null, 90, 5.0));
+        MovieService columnar = new MovieService(movies, properties);
+
+        Movie amelie = columnar.getMovieById(1L).get();
+        assertEquals("Amélie", amelie.getMovieName());
+        assertEquals("Café 🎬 life", amelie.getDescription());
+        assertEquals("Jean-Pierre Jeunet", columnar.getMovieById(2L).get().getDirector());
+        assertEquals("", columnar.getMovieById(2L).get().getDescription());
+        assertNull(columnar.getMovieById(3L).get().getDirector());
+        assertNull(columnar.getMovieById(3L).get().getDescription());
+        assertEquals(2, columnar.searchMovies(null, null, "comedy").size());
+        assertEquals(1, columnar.searchMovies("amé", null, null).size());
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        List<Long> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testRepeatedSearchesHitCacheRegardlessOfCaseAndWhitespace() {
+        List<Movie> first = movieService.searchMovies("the", null, "drama");
+        assertEquals(0, movieService.getSearchCacheStats().hitCount());
+
+        assertEquals(ids(first), ids(movieService.searchMovies("  THE ", null, " Drama")));
+        assertEquals(ids(first), ids(movieService.getMoviesPage("The", 0L, "DRAMA", null, null, 100).getMovies()));
+        assertEquals(2, movieService.getSearchCacheStats().hitCount());
+        assertEquals(1, movieService.getSearchCacheStats().missCount());
+    }
+
+    @Test
+    public void testReloadInvalidatesCachedSearches(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("movies.json");
+        Files.write(file, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+        MovieService service = externalCatalogueService(file);
+        assertTrue(service.searchMovies("third", null, null).isEmpty());
+        assertEquals(2, service.searchMovies(null, null, null).size());
+
+        Files.write(file, ONE_MOVIE.getBytes(StandardCharsets.UTF_8));
+        assertTrue(service.reloadCatalogue());
+
+        assertEquals(1, service.searchMovies("third", null, null).size());
+        assertEquals(1, service.searchMovies(null, null, null).size());
+        assertEquals(0, service.getSearchCacheStats().hitCount());
+    }
+
+    @Test
+    public void testSearchCacheCanBeTurnedOff() {
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setSearchCacheSize(DataSize.ofBytes(0));
+        MovieService service = new MovieService(movieService.getAllMovies(), properties);
+
+        assertEquals(ids(service.searchMovies("the", null, null)), ids(movieService.searchMovies("the", null, null)));
+        service.searchMovies("the", null, null);
+        assertEquals(0, service.getSearchCacheStats().requestCount());
+    }
+
+    private static List<Long> entryIds(List<LeaderboardEntry> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (LeaderboardEntry entry : entries) {
+            ids.add(entry.getMovie().getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testTopRatedMatchesFullSort() {
+        List<Movie> sorted = new ArrayList<>(movieService.getAllMovies());
+        sorted.sort(MovieSort.RATING::compare);
+        assertEquals(ids(sorted), entryIds(movieService.getTopRated(null, null, 100)));
+        assertEquals(ids(sorted.subList(0, 3)), entryIds(movieService.getTopRated(null, null, 3)));
+
+        List<Movie> dramas = new ArrayList<>();
+        List<Movie> nineties = new ArrayList<>();
+        for (Movie movie : sorted) {
+            if (Arrays.asList(movie.getGenre().split("/")).contains("Drama")) {
+                dramas.add(movie);
+            }
+            if (movie.getYear() >= 1990 && movie.getYear() < 2000) {
+                nineties.add(movie);
+            }
+        }
+        assertFalse(dramas.isEmpty());
+        assertEquals(ids(dramas), entryIds(movieService.getTopRated(" drama ", null, 100)));
+        assertEquals(ids(nineties), entryIds(movieService.getTopRated(null, 1994, 100)));
+        assertEquals(sorted.get(0).getImdbRating(), movieService.getTopRated(null, null, 1).get(0).getScore());
+        assertTrue(movieService.getTopRated("Western", null, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> movieService.getTopRated("Drama", 1990, 10));
+    }
+
+    @Test
+    public void testTopReviewedFollowsSubmittedReviews() throws Exception {
+        MovieService service = new MovieService(Arrays.asList(
+            new Movie(1L, "One", "D", 1994, "Drama", "d", 100, 7.0),
+            new Movie(2L, "Two", "D", 1995, "Crime/Drama", "d", 100, 8.0),
+            new Movie(3L, "Three", "D", 2001, "Comedy", "d", 100, 9.0)));
+        Map<Long, List<Review>> existing = new HashMap<>();
+        existing.put(1L, Arrays.asList(new Review("a", "🦜", 4.0, "Good")));
+        existing.put(3L, Arrays.asList(new Review("b", "🦜", 5.0, "Great")));
+        ReviewService reviewService = new ReviewService(existing);
+        service.setReviewService(reviewService);
+
+        assertEquals(Arrays.asList(3L, 1L), entryIds(service.getTopReviewed(null, null, 10)));
+        assertEquals(Arrays.asList(1L), entryIds(service.getTopReviewed("drama", null, 10)));
+
+        reviewService.submitReview(2L, new Review("c", "🦜", 4.5, "Gripping")).get();
+        assertEquals(Arrays.asList(2L, 1L), entryIds(service.getTopReviewed("Drama", null, 10)));
+        assertEquals(Arrays.asList(2L), entryIds(service.getTopReviewed("crime", null, 10)));
+
+        reviewService.submitReview(3L, new Review("d", "🦜", 1.0, "Not funny")).get();
+        assertEquals(Arrays.asList(2L, 1L, 3L), entryIds(service.getTopReviewed(null, null, 10)));
+        LeaderboardEntry last = service.getTopReviewed(null, null, 10).get(2);
+        assertEquals(3.0, last.getScore(), 0.0001);
+        assertEquals(2, last.getReviewCount());
+        assertEquals(Arrays.asList(2L, 1L), entryIds(service.getTopReviewed(null, 1990, 10)));
+        assertEquals(Arrays.asList(2L), entryIds(service.getTopReviewed(null, null, 1)));
+    }
+
+    @Test
+    public void testSimilarMoviesShareGenreDirectorAndStory() {
+        MovieService service = new MovieService(Arrays.asList(
+            new Movie(1L, "Harbour Heist", "Ann Smith", 1995, "Crime/Thriller",
+                "A crew of thieves plans a daring heist on the harbour vault.", 120, 4.5),
+            new Movie(2L, "Harbour Heist Returns", "Ann Smith", 1998, "Crime/Thriller",
+                "The thieves return for one last heist on a harbour bank vault.", 125, 4.2),
+            new Movie(3L, "Space Garden", "Bo Lee", 2015, "Sci-Fi",
+                "Botanists grow a garden aboard a space station.", 100, 3.8),
+            new Movie(4L, "Moon Garden", "Bo Lee", 2018, "Sci-Fi",
+                "A garden on the moon hides a secret from the station crew.", 105, 4.0),
+            new Movie(5L, "Quiet Farm", "Cy Doe", 1960, "Drama",
+                "A farmer and his daughter weather a long drought.", 140, 4.9),
+            new Movie(6L, "Vault Job", "Di Roe", 1999, "Crime",
+                "Two thieves crack a vault.", 110, 3.5)));
+
+        List<ScoredMovie> similar = service.getSimilarMovies(1L, 3);
+        assertEquals(3, similar.size());
+        assertEquals(2L, similar.get(0).getMovie().getId());
+        assertEquals(6L, similar.get(1).getMovie().getId());
+        for (int i = 0; i < similar.size(); i++) {
+            assertNotEquals(1L, similar.get(i).getMovie().getId());
+            if (i > 0) {
+                assertTrue(similar.get(i).getScore() <= similar.get(i - 1).getScore());
+            }
+        }
+        assertEquals(4L, service.getSimilarMovies(3L, 1).get(0).getMovie().getId());
+        assertEquals(1, service.getSimilarMovies(1L, 0).size());
+        // The farm drama has nothing in common with the others, so nothing is similar enough to show
+        assertTrue(service.getSimilarMovies(5L, 100).isEmpty());
+        assertEquals(4, service.getSimilarMovies(4L, 100).size());
+        assertTrue(service.getSimilarMovies(999L, 5).isEmpty());
+    }
+
+    @Test
+    public void testLargeCatalogueFindsSimilarMoviesOnceBuiltInBackground() throws Exception {
+        List<Movie> movies = new ArrayList<>();
+        String[] genres = {"Drama", "Comedy", "Horror", "Sci-Fi"};
+        for (int i = 1; i <= MovieCatalog.SIMILAR_INLINE_LIMIT + 1; i++) {
+            movies.add(new Movie(i, "Movie " + i, "Director " + i % 50, 1950 + i % 70, genres[i % genres.length],
+                "A tale of " + genres[i % genres.length].toLowerCase() + " number " + i % 20, 80 + i % 90, 1 + i % 5));
+        }
+        MovieService service = new MovieService(movies);
+
+        assertTrue(service.awaitSimilarMovies(60, TimeUnit.SECONDS));
+        List<ScoredMovie> similar = service.getSimilarMovies(1L, 5);
+        assertEquals(5, similar.size());
+        assertEquals("Comedy", similar.get(0).getMovie().getGenre());
+    }
+}
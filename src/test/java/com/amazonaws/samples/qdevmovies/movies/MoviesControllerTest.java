@@ -1,16 +1,25 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,11 +29,13 @@ public class MoviesControllerTest {
     private Model model;
     private MovieService mockMovieService;
     private ReviewService mockReviewService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     public void setUp() {
         moviesController = new MoviesController();
         model = new ExtendedModelMap();
+        meterRegistry = new SimpleMeterRegistry();
         
         // Create mock services
         mockMovieService = new MovieService() {
@@ -73,6 +84,72 @@ public class MoviesControllerTest {
                 return results;
             }
             
+            @Override
+            public MoviePage getMoviesPage(String name, Long id, String genre, MovieSort sort, String cursor, int pageSize) {
+                List<Movie> results = searchMovies(name, id, genre);
+                return new MoviePage(results, results.size(), pageSize, sort, null);
+            }
+            
+            @Override
+            public int forEachMatch(String name, Long id, String genre, MovieSort sort, Consumer<? super Movie> consumer) {
+                List<Movie> results = searchMovies(name, id, genre);
+                results.forEach(consumer);
+                return results.size();
+            }
+            
+            @Override
+            public MoviePage getMoviesPage(MovieFilter filter, MovieSort sort, String cursor, int pageSize) {
+                List<Movie> results = searchMovies(filter);
+                return new MoviePage(results, results.size(), pageSize, sort, null);
+            }
+            
+            @Override
+            public int forEachMatch(MovieFilter filter, MovieSort sort, Consumer<? super Movie> consumer) {
+                List<Movie> results = searchMovies(filter);
+                results.forEach(consumer);
+                return results.size();
+            }
+            
+            private List<Movie> searchMovies(MovieFilter filter) {
+                List<Movie> results = new ArrayList<>();
+                for (Movie movie : searchMovies(filter.getName(), filter.getId(), filter.getGenre())) {
+                    boolean matches = filter.getMinYear() == null || movie.getYear() >= filter.getMinYear();
+                    matches = matches && (filter.getMaxYear() == null || movie.getYear() <= filter.getMaxYear());
+                    matches = matches && (filter.getMinRating() == null || movie.getImdbRating() >= filter.getMinRating());
+                    if (matches) {
+                        results.add(movie);
+                    }
+                }
+                return results;
+            }
+            
+            @Override
+            public List<Movie> getMoviesByIds(long[] ids) {
+                List<Movie> results = new ArrayList<>();
+                for (long id : ids) {
+                    getAllMovies().stream().filter(movie -> movie.getId() == id).findFirst().ifPresent(results::add);
+                }
+                return results;
+            }
+            
+            @Override
+            public List<ScoredMovie> searchRanked(String query, int limit) {
+                List<ScoredMovie> results = new ArrayList<>();
+                for (Movie movie : searchMovies(query, null, null)) {
+                    results.add(new ScoredMovie(movie, 1.0f));
+                }
+                return results;
+            }
+            
+            @Override
+            public List<MovieSuggestion> suggestTitles(String query, int limit) {
+                List<MovieSuggestion> results = new ArrayList<>();
+                for (Movie movie : searchMovies(query, null, null)) {
+                    results.add(new MovieSuggestion(movie, true));
+                }
+                return results.subList(0, Math.min(limit, results.size()));
+            }
+            
             @Override
             public List<String> getAllGenres() {
                 return Arrays.asList("Action", "Comedy", "Drama");
@@ -84,6 +161,11 @@ public class MoviesControllerTest {
             public List<Review> getReviewsForMovie(long movieId) {
                 return new ArrayList<>();
             }
+            
+            @Override
+            public ReviewSummary getReviewSummary(long movieId) {
+                return movieId == 1L ? ReviewSummary.of(Arrays.asList(new Review("MovieBuff87", "🎬", 5.0, "Great"))) : ReviewSummary.EMPTY;
+            }
         };
         
         // Inject mocks using reflection
@@ -95,14 +177,35 @@ public class MoviesControllerTest {
             java.lang.reflect.Field reviewServiceField = MoviesController.class.getDeclaredField("reviewService");
             reviewServiceField.setAccessible(true);
             reviewServiceField.set(moviesController, mockReviewService);
+            
+            java.lang.reflect.Field objectMapperField = MoviesController.class.getDeclaredField("objectMapper");
+            objectMapperField.setAccessible(true);
+            objectMapperField.set(moviesController, new ObjectMapper());
+            
+            java.lang.reflect.Field metricsField = MoviesController.class.getDeclaredField("movieMetrics");
+            metricsField.setAccessible(true);
+            metricsField.set(moviesController, new MovieMetrics(meterRegistry));
+            
+            injectPageFragments(new PageFragmentCache(null, new RenderProperties()));
+
+            java.lang.reflect.Field shardedSearchField = MoviesController.class.getDeclaredField("shardedSearch");
+            shardedSearchField.setAccessible(true);
+            shardedSearchField.set(moviesController, new ShardedSearch(new ShardProperties(), mockMovieService,
+                new ObjectMapper(), new RestTemplateBuilder()));
         } catch (Exception e) {
             throw new RuntimeException("Failed to inject mock services", e);
         }
     }
 
+    private void injectPageFragments(PageFragmentCache pageFragments) throws ReflectiveOperationException {
+        java.lang.reflect.Field pageFragmentsField = MoviesController.class.getDeclaredField("pageFragments");
+        pageFragmentsField.setAccessible(true);
+        pageFragmentsField.set(moviesController, pageFragments);
+    }
+
     @Test
     public void testGetMoviesWithoutSearch() {
-        String result = moviesController.getMovies(model, null, null, null);
+        String result = moviesController.getMovies(model, null, null, null, null, null, null);
         assertNotNull(result);
         assertEquals("movies", result);
         
@@ -114,7 +217,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testGetMoviesWithNameSearch() {
-        String result = moviesController.getMovies(model, "Test", null, null);
+        String result = moviesController.getMovies(model, "Test", null, null, null, null, null);
         assertNotNull(result);
         assertEquals("movies", result);
         
@@ -128,7 +231,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testGetMoviesWithIdSearch() {
-        String result = moviesController.getMovies(model, null, 2L, null);
+        String result = moviesController.getMovies(model, null, 2L, null, null, null, null);
         assertNotNull(result);
         assertEquals("movies", result);
         
@@ -142,7 +245,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testGetMoviesWithGenreSearch() {
-        String result = moviesController.getMovies(model, null, null, "Comedy");
+        String result = moviesController.getMovies(model, null, null, "Comedy", null, null, null);
         assertNotNull(result);
         assertEquals("movies", result);
         
@@ -156,7 +259,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testGetMoviesWithNoResults() {
-        String result = moviesController.getMovies(model, "NonExistent", null, null);
+        String result = moviesController.getMovies(model, "NonExistent", null, null, null, null, null);
         assertNotNull(result);
         assertEquals("movies", result);
         
@@ -169,7 +272,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testSearchMoviesRestApiSuccess() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies("Test", null, null);
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies("Test", null, null, null, null, null, null, null, null, null, null, null);
         
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
@@ -187,7 +290,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testSearchMoviesRestApiNoResults() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies("NonExistent", null, null);
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies("NonExistent", null, null, null, null, null, null, null, null, null, null, null);
         
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
@@ -201,7 +304,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testSearchMoviesRestApiInvalidId() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies(null, -1L, null);
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies(null, -1L, null, null, null, null, null, null, null, null, null, null);
         
         assertNotNull(response);
         assertEquals(400, response.getStatusCodeValue());
@@ -214,7 +317,7 @@ public class MoviesControllerTest {
 
     @Test
     public void testSearchMoviesRestApiMultipleFilters() {
-        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies("Action", 2L, "Action");
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies("Action", 2L, "Action", null, null, null, null, null, null, null, null, null);
         
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
@@ -235,6 +338,13 @@ public class MoviesControllerTest {
         String result = moviesController.getMovieDetails(1L, model);
         assertNotNull(result);
         assertEquals("movie-details", result);
+
+        @SuppressWarnings("unchecked")
+        List<ScoredMovie> similar = (List<ScoredMovie>) model.getAttribute("similarMovies");
+        assertNotNull(similar);
+        assertFalse(similar.isEmpty());
+        assertTrue(similar.size() <= MovieService.DEFAULT_SIMILAR_MOVIES);
+        assertTrue(similar.stream().noneMatch(scored -> scored.getMovie().getId() == 1L));
     }
 
     @Test
@@ -250,4 +360,313 @@ public class MoviesControllerTest {
         assertEquals(3, movies.size());
         assertEquals("Test Movie", movies.get(0).getMovieName());
     }
+
+    @Test
+    public void testGetMoviesAddsPage() {
+        moviesController.getMovies(model, null, null, null, "rating", null, 2);
+        MoviePage page = (MoviePage) model.getAttribute("page");
+        assertNotNull(page);
+        assertEquals(3, page.getTotalCount());
+        assertEquals("rating", model.getAttribute("sort"));
+        assertEquals(true, model.getAttribute("firstPage"));
+    }
+
+    @Test
+    public void testGetMoviesWithBadSortFallsBackToDefault() {
+        String result = moviesController.getMovies(model, null, null, null, "sideways", null, null);
+        assertEquals("movies", result);
+        assertEquals("id", model.getAttribute("sort"));
+    }
+
+    @Test
+    public void testGetMoviesFallbackKeepsRequestedPageSize() {
+        moviesController.getMovies(model, null, null, null, "sideways", null, 2);
+        MoviePage page = (MoviePage) model.getAttribute("page");
+        assertEquals("id", model.getAttribute("sort"));
+        assertEquals(2, page.getPageSize());
+
+        moviesController.getMovies(model, null, null, null, "sideways", null, 0);
+        assertEquals(MovieService.DEFAULT_PAGE_SIZE, ((MoviePage) model.getAttribute("page")).getPageSize());
+        moviesController.getMovies(model, null, null, null, null, null, MovieService.MAX_PAGE_SIZE + 1);
+        assertEquals(MovieService.DEFAULT_PAGE_SIZE, ((MoviePage) model.getAttribute("page")).getPageSize());
+    }
+
+    @Test
+    public void testSearchMoviesRestApiIncludesPaging() {
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies(null, null, null, null, null, null, null, null, null, "year", null, 10);
+
+        assertEquals(200, response.getStatusCodeValue());
+        Map<String, Object> body = response.getBody();
+        assertEquals(3, body.get("totalCount"));
+        assertEquals("year", body.get("sort"));
+        assertTrue(body.containsKey("nextCursor"));
+    }
+
+    @Test
+    public void testSearchMoviesRestApiWithRanges() {
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies(null, null, null, null, 2022, null,
+            null, null, 3.8, "rating", null, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        List<?> movies = (List<?>) response.getBody().get("movies");
+        assertEquals(2, movies.size());
+        assertEquals("rating", response.getBody().get("sort"));
+    }
+
+    @Test
+    public void testSearchMoviesRestApiRejectsCrossedRanges() {
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies(null, null, null, null, 2023, 2021,
+            null, null, null, null, null, null);
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals(false, response.getBody().get("success"));
+
+        assertEquals(400, moviesController.searchMovies(null, null, null, null, null, null, 90, 60, null, null, null, null)
+            .getStatusCodeValue());
+        assertEquals(400, moviesController.searchMovies(null, null, null, null, null, null, null, null, -1.0, null, null, null)
+            .getStatusCodeValue());
+        assertEquals(400, moviesController.streamSearchMovies(null, null, null, null, 2023, 2021, null, null, null, null)
+            .getStatusCodeValue());
+    }
+
+    @Test
+    public void testSearchMoviesRestApiInvalidSort() {
+        ResponseEntity<Map<String, Object>> response = moviesController.searchMovies(null, null, null, null, null, null, null, null, null, "sideways", null, null);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals(false, response.getBody().get("success"));
+    }
+
+    @Test
+    public void testSearchRankedRestApi() {
+        ResponseEntity<Map<String, Object>> response = moviesController.searchRanked("Comedy", null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        List<?> results = (List<?>) response.getBody().get("results");
+        assertEquals(1, results.size());
+        assertEquals(3L, ((ScoredMovie) results.get(0)).getMovie().getId());
+        assertEquals(1, response.getBody().get("count"));
+    }
+
+    @Test
+    public void testSearchRankedRestApiRequiresQuery() {
+        assertEquals(400, moviesController.searchRanked(" ", null).getStatusCodeValue());
+        assertEquals(400, moviesController.searchRanked(null, 5).getStatusCodeValue());
+    }
+
+    @Test
+    public void testSuggestMovies() {
+        ResponseEntity<Map<String, Object>> response = moviesController.suggestMovies("movie", 1);
+
+        assertEquals(200, response.getStatusCodeValue());
+        List<?> suggestions = (List<?>) response.getBody().get("suggestions");
+        assertEquals(1, suggestions.size());
+        assertEquals("Test Movie", ((MovieSuggestion) suggestions.get(0)).getMovieName());
+        assertEquals("movie", response.getBody().get("query"));
+    }
+
+    @Test
+    public void testSearchShardsWithoutPeersSearchesLocally() {
+        ResponseEntity<Map<String, Object>> response = moviesController.searchShards(null, null, "drama", null,
+            null, null, null, null, null, null, null, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, response.getBody().get("count"));
+        assertEquals(false, response.getBody().get("partial"));
+        assertTrue(((List<?>) response.getBody().get("shards")).isEmpty());
+        assertEquals(400, moviesController.searchShards(null, -1L, null, null, null, null, null, null, null, null,
+            null, null).getStatusCodeValue());
+    }
+
+    @Test
+    public void testGetLeaderboard() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getLeaderboard(null, null, null, 3);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("rating", response.getBody().get("by"));
+        List<?> entries = (List<?>) response.getBody().get("entries");
+        assertEquals(3, entries.size());
+        double first = ((LeaderboardEntry) entries.get(0)).getScore();
+        assertTrue(first >= ((LeaderboardEntry) entries.get(2)).getScore());
+
+        assertEquals(200, moviesController.getLeaderboard("reviews", "Drama", null, null).getStatusCodeValue());
+        assertEquals(400, moviesController.getLeaderboard("popularity", null, null, null).getStatusCodeValue());
+        assertEquals(400, moviesController.getLeaderboard(null, "Drama", 1990, null).getStatusCodeValue());
+    }
+
+    @Test
+    public void testSubmitReview() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("userName", "Captain");
+        body.put("rating", 4);
+        body.put("comment", "A fine voyage");
+        ResponseEntity<Map<String, Object>> response = moviesController.submitReview(1L, body);
+
+        assertEquals(201, response.getStatusCodeValue());
+        assertEquals(true, response.getBody().get("success"));
+        Review review = (Review) response.getBody().get("review");
+        assertEquals(4.0, review.getRating());
+        assertEquals(MoviesController.DEFAULT_AVATAR, review.getAvatarEmoji());
+        assertNotNull(response.getBody().get("reviewSummary"));
+    }
+
+    @Test
+    public void testSubmitReviewRejectsUnknownMovieAndBadRating() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("userName", "Captain");
+        body.put("rating", "five");
+        body.put("comment", "A fine voyage");
+
+        assertEquals(404, moviesController.submitReview(999L, body).getStatusCodeValue());
+        ResponseEntity<Map<String, Object>> response = moviesController.submitReview(1L, body);
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals(false, response.getBody().get("success"));
+
+        body.put("rating", 5);
+        body.put("avatarEmoji", "<img src=x onerror=alert(1)>");
+        response = moviesController.submitReview(1L, body);
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals(false, response.getBody().get("success"));
+    }
+
+    @Test
+    public void testGetMoviesBatchKeepsRequestOrder() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getMoviesBatch(Arrays.asList("3", "999", "1"), null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        Map<String, Object> body = response.getBody();
+        List<?> movies = (List<?>) body.get("movies");
+        assertEquals(2, body.get("count"));
+        assertEquals(3L, ((Movie) movies.get(0)).getId());
+        assertEquals(1L, ((Movie) movies.get(1)).getId());
+        assertEquals(Arrays.asList(999L), new ArrayList<>((Collection<?>) body.get("missingIds")));
+        assertFalse(body.containsKey("reviews"));
+        assertFalse(body.containsKey("reviewSummaries"));
+    }
+
+    @Test
+    public void testGetMoviesBatchWithReviewSummaries() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getMoviesBatch(Arrays.asList("1", "2"), "summary");
+
+        Map<?, ?> summaries = (Map<?, ?>) response.getBody().get("reviewSummaries");
+        assertEquals(2, summaries.size());
+        assertEquals(1, ((ReviewSummary) summaries.get(1L)).getCount());
+        assertSame(ReviewSummary.EMPTY, summaries.get(2L));
+    }
+
+    @Test
+    public void testGetMoviesBatchWithFullReviews() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getMoviesBatch(Arrays.asList("2"), "full");
+
+        Map<?, ?> reviews = (Map<?, ?>) response.getBody().get("reviews");
+        assertTrue(((List<?>) reviews.get(2L)).isEmpty());
+    }
+
+    @Test
+    public void testGetMoviesBatchRejectsTooManyIdsAndUnknownDetail() {
+        List<String> ids = new ArrayList<>();
+        for (long id = 1; id <= MoviesController.MAX_BATCH_IDS + 1; id++) {
+            ids.add(String.valueOf(id));
+        }
+        ResponseEntity<Map<String, Object>> tooMany = moviesController.getMoviesBatch(ids, null);
+        assertEquals(400, tooMany.getStatusCodeValue());
+        assertEquals("At most " + MoviesController.MAX_BATCH_IDS + " ids per batch", tooMany.getBody().get("error"));
+        assertEquals(400, moviesController.getMoviesBatch(Arrays.asList("1"), "everything").getStatusCodeValue());
+    }
+
+    @Test
+    public void testGetMoviesBatchRejectsNonNumericIdAsJson() {
+        ResponseEntity<Map<String, Object>> response = moviesController.getMoviesBatch(Arrays.asList("1", "abc"), null);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals(false, response.getBody().get("success"));
+        assertEquals("Invalid id: abc", response.getBody().get("error"));
+        assertNotEquals(moviesController.getMoviesBatch(Collections.nCopies(MoviesController.MAX_BATCH_IDS + 1, "1"), null)
+            .getBody().get("message"), response.getBody().get("message"));
+    }
+
+    @Test
+    public void testStreamSearchMoviesWritesOneLinePerMovie() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = moviesController.streamSearchMovies(null, null, null, null, null, null, null, null, null, null);
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(MoviesController.NDJSON_VALUE, response.getHeaders().getContentType().toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(3, lines.length);
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals("Test Movie", mapper.readTree(lines[0]).get("movieName").asText());
+        assertEquals(3L, mapper.readTree(lines[2]).get("id").asLong());
+    }
+
+    @Test
+    public void testStreamSearchMoviesFlushesInBatches() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = moviesController.streamSearchMovies(null, null, null, null, null, null, null, null, null, null);
+        int[] flushes = new int[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+        response.getBody().writeTo(out);
+        assertEquals(3, out.toString("UTF-8").split("\n").length);
+        // For the first movie, before the final newline and on close, not after every movie
+        assertTrue(flushes[0] <= 3, "Flushed " + flushes[0] + " times");
+    }
+
+    @Test
+    public void testStreamSearchMoviesNoResults() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = moviesController.streamSearchMovies("NonExistent", null, null, null, null, null, null, null, null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testStreamSearchMoviesInvalidId() {
+        ResponseEntity<StreamingResponseBody> response = moviesController.streamSearchMovies(null, -1L, null, null, null, null, null, null, null, null);
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void testSearchRecordsHitAndMissMetrics() {
+        moviesController.searchMovies("Test", null, null, null, null, null, null, null, null, null, null, null);
+        moviesController.searchMovies("NonExistent", null, null, null, null, null, null, null, null, null, null, null);
+        moviesController.getMovies(model, null, null, "Comedy", null, null, null);
+        moviesController.getMovies(model, null, null, null, null, null, null);
+
+        assertEquals(2.0, meterRegistry.get("movies.search").tag("outcome", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("movies.search").tag("outcome", "miss").counter().count());
+        assertEquals(3L, meterRegistry.get("movies.search.results").summary().count());
+    }
+
+    @Test
+    public void testGetMovieDetailsTimesReviewLookup() {
+        moviesController.getMovieDetails(1L, model);
+        moviesController.getMovieDetails(999L, model);
+
+        assertEquals(1L, meterRegistry.get("movies.reviews.lookup").timer().count());
+        assertNotNull(model.getAttribute("allReviews"));
+    }
+
+    @Test
+    public void testCachedRenderingAddsPreRenderedFragments() throws Exception {
+        RenderProperties properties = new RenderProperties();
+        properties.setCache(true);
+        injectPageFragments(new PageFragmentCache(PageFragmentCacheTest.templateEngine(), properties));
+
+        moviesController.getMovies(model, null, null, "Comedy", null, null, null);
+        @SuppressWarnings("unchecked")
+        List<String> cards = (List<String>) model.getAttribute("movieCards");
+        assertEquals(1, cards.size());
+        assertTrue(cards.get(0).contains("Comedy Film"));
+
+        Model details = new ExtendedModelMap();
+        assertEquals("movie-details", moviesController.getMovieDetails(1L, details));
+        assertTrue(((String) details.getAttribute("detailsHtml")).contains("Test Movie"));
+        moviesController.getMovieDetails(1L, details);
+        // The second visit is served from the cache without looking reviews up again
+        assertEquals(1L, meterRegistry.get("movies.reviews.lookup").timer().count());
+    }
 }
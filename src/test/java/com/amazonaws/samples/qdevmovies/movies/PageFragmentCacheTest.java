@@ -0,0 +1,80 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the rendered fragment cache
+ * Arrr! No sense paintin' the same treasure map twice!
+ */
+public class PageFragmentCacheTest {
+
+    private static final Movie MOVIE = new Movie(7L, "Fish & <Chips>", "Director", 2001, "Comedy", "Salty", 95, 3.5);
+
+    private PageFragmentCache pageFragments;
+
+    static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        RenderProperties properties = new RenderProperties();
+        properties.setCache(true);
+        pageFragments = new PageFragmentCache(templateEngine(), properties);
+    }
+
+    @Test
+    public void testMovieCardIsRenderedOncePerVersion() {
+        List<String> first = pageFragments.movieCards(Collections.singletonList(MOVIE), 1L);
+        String card = first.get(0);
+        assertTrue(card.startsWith("<div class=\"movie-card\">"), card);
+        assertTrue(card.contains("Fish &amp; &lt;Chips&gt;"), card);
+        assertTrue(card.contains("href=\"/movies/7/details\""), card);
+        assertTrue(card.replaceAll("\\s|<[^>]*>", "").contains("★★★⭐☆"), card);
+        assertTrue(card.contains("3.5/5"));
+
+        assertSame(card, pageFragments.movieCards(Arrays.asList(MOVIE), 1L).get(0));
+        assertNotSame(card, pageFragments.movieCards(Arrays.asList(MOVIE), 2L).get(0));
+    }
+
+    @Test
+    public void testMovieDetailsLooksUpReviewsOnlyWhenRendering() {
+        AtomicInteger lookups = new AtomicInteger();
+        String html = pageFragments.movieDetails(MOVIE, 1L, 1, details -> {
+            lookups.incrementAndGet();
+            details.put("movieIcon", MOVIE.getIcon());
+            details.put("allReviews", Collections.singletonList(new Review("alice", "👩", 4.0, "Crispy")));
+            details.put("reviewSummary", null);
+        });
+        assertTrue(html.startsWith("<div class=\"movie-details\">"), html);
+        assertTrue(html.contains("Crispy"));
+
+        assertSame(html, pageFragments.movieDetails(MOVIE, 1L, 1, details -> lookups.incrementAndGet()));
+        assertEquals(1, lookups.get());
+
+        // A submitted review changes the count, so the next request renders afresh
+        pageFragments.movieDetails(MOVIE, 1L, 2, details -> {
+            lookups.incrementAndGet();
+            details.put("movieIcon", MOVIE.getIcon());
+            details.put("allReviews", Collections.emptyList());
+            details.put("reviewSummary", null);
+        });
+        assertEquals(2, lookups.get());
+    }
+}
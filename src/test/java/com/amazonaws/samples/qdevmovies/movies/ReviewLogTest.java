@@ -0,0 +1,142 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the append-only review log
+ * Arrr! What be written in the ship's log stays written, storm or no storm!
+ */
+public class ReviewLogTest {
+
+    private static Review review(int i) {
+        return new Review("sailor" + i, "🦜", 1 + i % 5, "Comment number " + i);
+    }
+
+    private static List<String> replay(Path dir, ReviewProperties properties) throws IOException {
+        List<String> replayed = new ArrayList<>();
+        try (ReviewLog log = new ReviewLog(dir, properties)) {
+            log.replay((movieId, review) -> replayed.add(movieId + ":" + review.getComment()));
+        }
+        return replayed;
+    }
+
+    private static List<Path> files(Path dir, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    @Test
+    public void testConcurrentAppendsShareCommits(@TempDir Path dir) throws Exception {
+        List<String> applied = new ArrayList<>();
+        ReviewLog log = new ReviewLog(dir, new ReviewProperties());
+        assertEquals(0, log.replay((movieId, review) -> fail("Nothing logged yet")));
+        log.start((movieId, review) -> applied.add(movieId + ":" + review.getComment()));
+
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            commits.add(log.append(i % 7, review(i)));
+        }
+        CompletableFuture.allOf(commits.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        log.close();
+
+        assertEquals(500, log.records());
+        assertTrue(log.commits() >= 1 && log.commits() <= 500);
+        assertEquals(500, applied.size());
+        assertEquals(applied, replay(dir, new ReviewProperties()));
+    }
+
+    @Test
+    public void testUnencodableReviewFailsItsFutureOnly(@TempDir Path dir) throws Exception {
+        ReviewLog log = new ReviewLog(dir, new ReviewProperties());
+        log.replay((movieId, review) -> { });
+        log.start((movieId, review) -> { });
+        char[] comment = new char[70000];
+        Arrays.fill(comment, 'a');
+
+        CompletableFuture<Void> tooLong = log.append(1L, new Review("sailor", "🦜", 3, new String(comment)));
+        assertTrue(tooLong.isCompletedExceptionally());
+        log.append(1L, review(1)).get(10, TimeUnit.SECONDS);
+        log.close();
+
+        assertEquals(1, replay(dir, new ReviewProperties()).size());
+    }
+
+    @Test
+    public void testCloseFailsQueuedAndLaterAppends(@TempDir Path dir) throws Exception {
+        ReviewLog log = new ReviewLog(dir, new ReviewProperties());
+        log.replay((movieId, review) -> { });
+        // Never started, so nothing will ever commit what is queued
+        CompletableFuture<Void> queued = log.append(1L, review(1));
+        log.close();
+
+        assertTrue(queued.isCompletedExceptionally());
+        assertTrue(log.append(1L, review(2)).isCompletedExceptionally());
+        assertTrue(replay(dir, new ReviewProperties()).isEmpty());
+    }
+
+    @Test
+    public void testTornTailIsTruncatedOnReplay(@TempDir Path dir) throws Exception {
+        ReviewLog log = new ReviewLog(dir, new ReviewProperties());
+        log.replay((movieId, review) -> { });
+        log.start((movieId, review) -> { });
+        for (int i = 0; i < 3; i++) {
+            log.append(1L, review(i)).get(10, TimeUnit.SECONDS);
+        }
+        log.close();
+
+        Path segment = files(dir, "reviews-*.log").get(0);
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        assertEquals(3, replay(dir, new ReviewProperties()).size());
+        assertEquals(intact, Files.size(segment));
+    }
+
+    @Test
+    public void testClosedSegmentsAreCompactedIntoSnapshot(@TempDir Path dir) throws Exception {
+        ReviewProperties properties = new ReviewProperties();
+        properties.setSegmentSize(DataSize.ofBytes(100));
+        properties.setCompactAfterSegments(2);
+        ReviewLog log = new ReviewLog(dir, properties);
+        log.replay((movieId, review) -> { });
+        log.start((movieId, review) -> { });
+        for (int i = 0; i < 20; i++) {
+            log.append(i % 2, review(i)).get(10, TimeUnit.SECONDS);
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (files(dir, "reviews-*.snapshot").isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        log.close();
+
+        assertFalse(files(dir, "reviews-*.snapshot").isEmpty());
+        List<String> replayed = replay(dir, properties);
+        assertEquals(20, replayed.size());
+        List<String> evens = new ArrayList<>();
+        for (String entry : replayed) {
+            if (entry.startsWith("0:")) {
+                evens.add(entry);
+            }
+        }
+        assertEquals("0:Comment number 0", evens.get(0));
+        assertEquals("0:Comment number 18", evens.get(evens.size() - 1));
+    }
+}
@@ -0,0 +1,169 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReviewServiceTest {
+
+    private ReviewService reviewService;
+
+    @BeforeEach
+    public void setUp() {
+        reviewService = new ReviewService();
+    }
+
+    @Test
+    public void testGetReviewsForMovie() {
+        List<Review> reviews = reviewService.getReviewsForMovie(1L);
+        assertEquals(3, reviews.size());
+        assertEquals("MovieBuff87", reviews.get(0).getUserName());
+        assertEquals(5.0, reviews.get(0).getRating());
+    }
+
+    @Test
+    public void testGetReviewsForUnknownMovie() {
+        List<Review> reviews = reviewService.getReviewsForMovie(999L);
+        assertNotNull(reviews);
+        assertTrue(reviews.isEmpty());
+    }
+
+    @Test
+    public void testReviewsAreImmutable() {
+        List<Review> reviews = reviewService.getReviewsForMovie(1L);
+        assertThrows(UnsupportedOperationException.class, () -> reviews.add(null));
+    }
+
+    @Test
+    public void testReviewsAreIndexedOnce() {
+        assertSame(reviewService.getReviewsForMovie(2L), reviewService.getReviewsForMovie(2L));
+    }
+
+    @Test
+    public void testGetReviewSummary() {
+        ReviewSummary summary = reviewService.getReviewSummary(1L);
+        assertEquals(3, summary.getCount());
+        assertEquals((5.0 + 4.5 + 5.0) / 3, summary.getAverageRating(), 0.0001);
+        assertEquals(1, summary.getStarCount(4));
+        assertEquals(2, summary.getStarCount(5));
+        assertEquals(0, summary.getStarCount(1));
+    }
+
+    @Test
+    public void testGetReviewSummaryForUnknownMovie() {
+        ReviewSummary summary = reviewService.getReviewSummary(999L);
+        assertEquals(0, summary.getCount());
+        assertEquals(0.0, summary.getAverageRating());
+    }
+
+    @Test
+    public void testGetReviewsForMovies() {
+        Map<Long, List<Review>> reviews = reviewService.getReviewsForMovies(new long[] {2L, 1L, 999L, 1L});
+        assertEquals(Arrays.asList(2L, 1L, 999L), new ArrayList<>(reviews.keySet()));
+        assertSame(reviewService.getReviewsForMovie(1L), reviews.get(1L));
+        assertTrue(reviews.get(999L).isEmpty());
+    }
+
+    @Test
+    public void testGetReviewSummaries() {
+        Map<Long, ReviewSummary> summaries = reviewService.getReviewSummaries(new long[] {1L, 999L});
+        assertEquals(2, summaries.size());
+        assertEquals(3, summaries.get(1L).getCount());
+        assertSame(ReviewSummary.EMPTY, summaries.get(999L));
+    }
+
+    @Test
+    public void testSubmitReviewUpdatesReviewsAndSummary() throws Exception {
+        List<Review> before = reviewService.getReviewsForMovie(1L);
+
+        ReviewSummary summary = reviewService.submitReview(1L, new Review("Newcomer", "🦜", 1.0, "Not for me")).get();
+
+        assertEquals(4, summary.getCount());
+        assertEquals((5.0 + 4.5 + 5.0 + 1.0) / 4, summary.getAverageRating(), 0.0001);
+        assertEquals(1, summary.getStarCount(1));
+        assertSame(summary, reviewService.getReviewSummary(1L));
+        List<Review> after = reviewService.getReviewsForMovie(1L);
+        assertEquals("Newcomer", after.get(3).getUserName());
+        assertEquals(3, before.size());
+        assertTrue(reviewService.getReviewsUpdatedAt(1L) > 0);
+    }
+
+    @Test
+    public void testSubmitReviewForMovieWithoutReviews() throws Exception {
+        reviewService.submitReview(999L, new Review("First", "🦜", 4.0, "Early bird")).get();
+        assertEquals(1, reviewService.getReviewsForMovie(999L).size());
+        assertEquals(1, reviewService.getReviewSummary(999L).getStarCount(4));
+    }
+
+    @Test
+    public void testEarlierReviewListsDoNotChangeAsReviewsArrive() throws Exception {
+        List<List<Review>> seen = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            seen.add(reviewService.getReviewsForMovie(1L));
+            reviewService.submitReview(1L, new Review("Sailor" + i, "🦜", 1 + i % 5, "Voyage " + i)).get();
+        }
+        List<Review> all = reviewService.getReviewsForMovie(1L);
+        assertEquals(103, all.size());
+        assertEquals(103, reviewService.getReviewSummary(1L).getCount());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(3 + i, seen.get(i).size());
+            assertEquals(all.subList(0, 3 + i), seen.get(i));
+        }
+        assertEquals("Voyage 99", all.get(102).getComment());
+        assertThrows(IndexOutOfBoundsException.class, () -> seen.get(0).get(3));
+        assertThrows(UnsupportedOperationException.class, () -> all.add(null));
+    }
+
+    @Test
+    public void testSubmitReviewRejectsBadReviews() {
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.submitReview(1L, new Review(" ", "🦜", 4.0, "Nameless")));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.submitReview(1L, new Review("Pirate", "🦜", 6.0, "Too generous")));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.submitReview(1L, new Review("Pirate", "🦜", Double.NaN, "No rating")));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.submitReview(1L, new Review("Pirate", "🦜", 4.0, "")));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.submitReview(1L, new Review("Pirate", "parrot", 4.0, "Wordy avatar")));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.submitReview(1L, new Review("Pirate", String.join("", Collections.nCopies(30000, "🦜")), 4.0,
+                "Avatar too long for the log")));
+        assertEquals(3, reviewService.getReviewsForMovie(1L).size());
+
+        reviewService.submitReview(1L, new Review("Family", "👨‍👩‍👧‍👦", 4.0, "Joined emoji fit")).join();
+        assertEquals(4, reviewService.getReviewsForMovie(1L).size());
+    }
+
+    @Test
+    public void testSubmittedReviewsSurviveRestart(@TempDir Path dir) throws Exception {
+        ReviewProperties properties = new ReviewProperties();
+        properties.setLogDir(dir.toString());
+        ReviewService first = new ReviewService(properties);
+        first.openLog();
+        first.submitReview(1L, new Review("Durable", "🦜", 2.0, "Written down")).get(10, TimeUnit.SECONDS);
+        first.submitReview(999L, new Review("Durable", "🦜", 3.0, "Also written")).get(10, TimeUnit.SECONDS);
+        assertEquals(4, first.getReviewSummary(1L).getCount());
+        first.closeLog();
+
+        ReviewService second = new ReviewService(properties);
+        second.openLog();
+        try {
+            assertEquals(4, second.getReviewsForMovie(1L).size());
+            assertEquals("Written down", second.getReviewsForMovie(1L).get(3).getComment());
+            assertEquals(3.0, second.getReviewSummary(999L).getAverageRating(), 0.0001);
+        } finally {
+            second.closeLog();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for scatter-gather search across shards, each served by its own local HTTP server
+ * Arrr! A fleet searches faster than a lone ship, as long as the stragglers don't hold everyone back!
+ */
+public class ShardedSearchTest {
+
+    private static final int SHARDS = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<HttpServer> servers = new ArrayList<>();
+    private List<Movie> movies;
+    private MovieService unsharded;
+
+    @BeforeEach
+    public void setUp() {
+        movies = new ArrayList<>();
+        String[] genres = {"Drama", "Action", "Comedy"};
+        for (int i = 1; i <= 60; i++) {
+            movies.add(new Movie(i, "Movie " + i, "Director " + (i % 4), 1950 + i % 50, genres[i % 3],
+                "Description " + i, 80 + i % 40, 5.0 + (i * 7 % 50) / 10.0));
+        }
+        unsharded = new MovieService(movies);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+    }
+
+    private String startShard(int index, long delayMillis, boolean fail) throws IOException {
+        CatalogueProperties properties = new CatalogueProperties();
+        properties.setShardCount(SHARDS);
+        properties.setShardIndex(index);
+        MovieService shard = new MovieService(movies, properties);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/movies/search", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            respond(exchange, shard);
+        });
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, MovieService shard) throws IOException {
+        Map<String, String> params = query(exchange.getRequestURI().getRawQuery());
+        MovieFilter filter = MovieFilter.of(params.get("name"),
+            params.containsKey("id") ? Long.valueOf(params.get("id")) : null, params.get("genre"));
+        MoviePage page = shard.getMoviesPage(filter, MovieSort.fromParameter(params.get("sort")), params.get("cursor"),
+            Integer.parseInt(params.get("size")));
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", true);
+        body.put("movies", page.getMovies());
+        body.put("totalCount", page.getTotalCount());
+        body.put("pageSize", page.getPageSize());
+        body.put("nextCursor", page.getNextCursor());
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            String[] parts = pair.split("=", 2);
+            params.put(parts[0], URLDecoder.decode(parts[1], "UTF-8"));
+        }
+        return params;
+    }
+
+    private ShardedSearch coordinator(Duration timeout, String... peers) {
+        ShardProperties properties = new ShardProperties();
+        properties.setPeers(Arrays.asList(peers));
+        properties.setTimeout(timeout);
+        return new ShardedSearch(properties, unsharded, objectMapper, new RestTemplateBuilder());
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        List<Long> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testPartitionsAreDisjointAndComplete() {
+        int[] sizes = new int[SHARDS];
+        for (Movie movie : movies) {
+            sizes[CatalogueProperties.shardOf(movie.getId(), SHARDS)]++;
+        }
+        assertEquals(movies.size(), sizes[0] + sizes[1] + sizes[2]);
+        for (int size : sizes) {
+            assertTrue(size > 10, Arrays.toString(sizes));
+        }
+    }
+
+    @Test
+    public void testMergedPagesMatchUnshardedPaging() throws IOException {
+        ShardedSearch search = coordinator(Duration.ofSeconds(5), startShard(0, 0, false), startShard(1, 0, false),
+            startShard(2, 0, false));
+
+        for (MovieSort sort : MovieSort.values()) {
+            String cursor = null;
+            String expectedCursor = null;
+            int pages = 0;
+            do {
+                ShardedPage sharded = search.search(MovieFilter.of(null, null, "a"), sort, cursor, 7);
+                MoviePage expected = unsharded.getMoviesPage(MovieFilter.of(null, null, "a"), sort, expectedCursor, 7);
+                assertFalse(sharded.isPartial());
+                assertEquals(ids(expected.getMovies()), ids(sharded.getPage().getMovies()), sort + " page " + pages);
+                assertEquals(expected.getTotalCount(), sharded.getPage().getTotalCount());
+                assertEquals(expected.getNextCursor() == null, sharded.getPage().getNextCursor() == null);
+                cursor = sharded.getPage().getNextCursor();
+                expectedCursor = expected.getNextCursor();
+                pages++;
+            } while (cursor != null);
+            assertTrue(pages > 1);
+        }
+        search.shutdown();
+    }
+
+    @Test
+    public void testSlowAndFailingShardsGivePartialResults() throws IOException {
+        ShardedSearch search = coordinator(Duration.ofMillis(300), startShard(0, 0, false), startShard(1, 2000, false),
+            startShard(2, 0, true));
+
+        long started = System.nanoTime();
+        ShardedPage result = search.search(MovieFilter.ALL, MovieSort.RATING, null, 100);
+        assertTrue((System.nanoTime() - started) / 1_000_000 < 1500);
+
+        assertTrue(result.isPartial());
+        assertFalse(result.isUnavailable());
+        assertEquals(ShardedPage.Shard.Status.OK, result.getShards().get(0).getStatus());
+        assertEquals(ShardedPage.Shard.Status.TIMEOUT, result.getShards().get(1).getStatus());
+        assertEquals(ShardedPage.Shard.Status.ERROR, result.getShards().get(2).getStatus());
+        List<Movie> found = result.getPage().getMovies();
+        assertEquals(result.getShards().get(0).getTotalCount(), found.size());
+        for (Movie movie : found) {
+            assertEquals(0, CatalogueProperties.shardOf(movie.getId(), SHARDS));
+        }
+        search.shutdown();
+    }
+
+    @Test
+    public void testNoPeersSearchesLocally() {
+        ShardedSearch search = coordinator(Duration.ofMillis(300));
+        ShardedPage result = search.search(MovieFilter.ALL, MovieSort.ID, null, 10);
+        assertTrue(result.getShards().isEmpty());
+        assertFalse(result.isPartial());
+        assertEquals(movies.size(), result.getPage().getTotalCount());
+        search.shutdown();
+    }
+
+    @Test
+    public void testFindsMovieOnTheShardItsIdBelongsTo() throws IOException {
+        ShardProperties properties = new ShardProperties();
+        properties.setPeers(Arrays.asList(startShard(0, 0, false), startShard(1, 0, false), startShard(2, 0, false)));
+        properties.setTimeout(Duration.ofSeconds(5));
+        CatalogueProperties first = new CatalogueProperties();
+        first.setShardCount(SHARDS);
+        first.setShardIndex(0);
+        ShardedSearch search = new ShardedSearch(properties, new MovieService(movies, first), objectMapper,
+            new RestTemplateBuilder());
+
+        for (Movie movie : movies) {
+            Movie found = search.findMovie(movie.getId()).orElse(null);
+            assertNotNull(found, "Movie " + movie.getId() + " should be found on shard "
+                + CatalogueProperties.shardOf(movie.getId(), SHARDS));
+            assertEquals(movie.getMovieName(), found.getMovieName());
+        }
+        assertFalse(search.findMovie(999L).isPresent());
+    }
+
+    @Test
+    public void testFindMovieGivesUpOnUnreachableShard() {
+        ShardedSearch search = coordinator(Duration.ofMillis(300), "http://127.0.0.1:1");
+        assertFalse(search.findMovie(999L).isPresent());
+    }
+
+    @Test
+    public void testRejectsCursorOfAnotherOrdering() {
+        ShardedSearch search = coordinator(Duration.ofMillis(300), "http://127.0.0.1:1");
+        String cursor = unsharded.getMoviesPage(MovieFilter.ALL, MovieSort.YEAR, null, 5).getNextCursor();
+        assertThrows(IllegalArgumentException.class, () -> search.search(MovieFilter.ALL, MovieSort.RATING, cursor, 5));
+        search.shutdown();
+    }
+}
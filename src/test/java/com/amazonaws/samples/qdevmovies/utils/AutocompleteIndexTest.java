@@ -0,0 +1,94 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the typo-tolerant autocomplete behind the search box
+ */
+public class AutocompleteIndexTest {
+
+    private static final String[] TITLES = {
+        "The Prison Escape", "Dream Heist", "Space Wars: The Beginning", "Dreamcatcher", "The Dream Team", "Underground Club"
+    };
+    // Popularity: Dream Team, Dreamcatcher, Dream Heist, Space Wars, Prison Escape, Underground Club
+    private static final int[] RANK = {4, 2, 3, 1, 0, 5};
+
+    private final AutocompleteIndex index = new AutocompleteIndex(TITLES, RANK);
+
+    @Test
+    public void testPrefixMatchesMostPopularFirst() {
+        List<AutocompleteIndex.Suggestion> suggestions = index.suggest("dream", 10);
+        assertEquals(Arrays.asList(4, 3, 1), positions(suggestions));
+        assertTrue(suggestions.stream().allMatch(AutocompleteIndex.Suggestion::isPrefix));
+    }
+
+    @Test
+    public void testPrefixMatchesAtAnyWordStart() {
+        assertEquals(Arrays.asList(1), positions(index.suggest("hei", 10)));
+        assertEquals(Arrays.asList(2), positions(index.suggest("WARS  the b", 10)));
+        assertEquals(Arrays.asList(4, 3), positions(index.suggest("dream", 2)));
+    }
+
+    @Test
+    public void testLeadingArticleStillCompletes() {
+        assertEquals(Arrays.asList(4, 0), positions(index.suggest("the ", 2)));
+    }
+
+    @Test
+    public void testCorrectsTypos() {
+        List<AutocompleteIndex.Suggestion> suggestions = index.suggest("drem hei", 10);
+        assertEquals(Arrays.asList(1), positions(suggestions));
+        assertFalse(suggestions.get(0).isPrefix());
+
+        assertEquals(Arrays.asList(2), positions(index.suggest("spcae wras", 10)));
+        assertEquals(Arrays.asList(0), positions(index.suggest("prisn escpe", 10)));
+    }
+
+    @Test
+    public void testTypoAllowanceFollowsTheShorterWord() {
+        // Two typos in a long word
+        assertEquals(Arrays.asList(5), positions(index.suggest("unedrgrund", 10)));
+        // but "heist" is five letters and allows one, however long the query
+        assertTrue(index.suggest("haeistt", 10).isEmpty());
+        assertEquals(Arrays.asList(1), positions(index.suggest("haeist", 10)));
+    }
+
+    @Test
+    public void testMatchesWordsInAnyOrder() {
+        assertEquals(Arrays.asList(1), positions(index.suggest("heist dream", 10)));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertTrue(index.suggest("submarine", 10).isEmpty());
+        assertTrue(index.suggest("  ", 10).isEmpty());
+        assertTrue(index.suggest(null, 10).isEmpty());
+    }
+
+    @Test
+    public void testEditDistance() {
+        assertEquals(0, AutocompleteIndex.editDistance("heist", "heist", 2));
+        assertEquals(1, AutocompleteIndex.editDistance("hiest", "heist", 2));
+        assertEquals(1, AutocompleteIndex.editDistance("drem", "dream", 2));
+        assertEquals(1, AutocompleteIndex.editDistance("spcae", "space", 1));
+        assertEquals(2, AutocompleteIndex.editDistance("spc", "space", 2));
+        assertEquals(3, AutocompleteIndex.editDistance("abc", "xyzabc", 2));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("space wars the beginning", AutocompleteIndex.normalize("  Space Wars: The  Beginning! "));
+    }
+
+    private static List<Integer> positions(List<AutocompleteIndex.Suggestion> suggestions) {
+        List<Integer> positions = new ArrayList<>();
+        suggestions.forEach(suggestion -> positions.add(suggestion.getPosition()));
+        return positions;
+    }
+}
@@ -0,0 +1,135 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the BM25 index behind ranked search
+ */
+public class FullTextIndexTest {
+
+    private static final float[] WEIGHTS = {3.0f, 1.0f};
+
+    private final FullTextIndex index = new FullTextIndex(new String[][] {
+        {"The Prison Escape", "Two men plan an escape from a prison."},
+        {"Dream Heist", "A thief steals secrets through dreams."},
+        {"Garden Party", "Nobody escapes the garden party."},
+        {"Night Train", null},
+    }, WEIGHTS);
+
+    @Test
+    public void testRanksTitleMatchesAboveDescriptionMatches() {
+        List<FullTextIndex.Hit> hits = index.search("escape", 10);
+        assertEquals(2, hits.size());
+        assertEquals(0, hits.get(0).getPosition());
+        assertEquals(2, hits.get(1).getPosition());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    public void testStemsQueryAndDocuments() {
+        assertEquals(1, index.search("dreaming", 10).get(0).getPosition());
+        assertEquals(FullTextIndex.stem("escaped"), FullTextIndex.stem("escapes"));
+        assertEquals(FullTextIndex.stem("escaping"), FullTextIndex.stem("escape"));
+        assertEquals("plan", FullTextIndex.stem("planned"));
+    }
+
+    @Test
+    public void testSingularAndPluralStemAlike() {
+        String[][] pairs = {{"movie", "movies"}, {"story", "stories"}, {"series", "series"}, {"city", "cities"},
+            {"carry", "carried"}, {"carry", "carrying"}, {"escape", "escapes"}, {"dream", "dreams"}};
+        for (String[] pair : pairs) {
+            assertEquals(FullTextIndex.stem(pair[0]), FullTextIndex.stem(pair[1]), pair[0] + " / " + pair[1]);
+        }
+        FullTextIndex movies = new FullTextIndex(new String[][] {
+            {"Monster Movie", "A movie about movies."},
+            {"Short Stories", "Three stories from one city."},
+        }, WEIGHTS);
+        assertEquals(0, movies.search("movies", 10).get(0).getPosition());
+        assertEquals(1, movies.search("story", 10).get(0).getPosition());
+    }
+
+    @Test
+    public void testLastWordMatchesAsPrefix() {
+        List<FullTextIndex.Hit> hits = index.search("hei", 10);
+        assertEquals(1, hits.size());
+        assertEquals(1, hits.get(0).getPosition());
+        // Only the last word is a prefix
+        assertTrue(index.search("hei train", 10).stream().noneMatch(hit -> hit.getPosition() == 1));
+    }
+
+    @Test
+    public void testPrefixMatchesWordsAsWrittenNotStems() {
+        FullTextIndex movies = new FullTextIndex(new String[][] {
+            {"Escaping Paris", null}, {"Movies Tonight", null}, {"Monster Party", null}}, WEIGHTS);
+        // "escapi" is on its way to "escaping" but is no prefix of the stem "escap"
+        List<FullTextIndex.Hit> hits = movies.search("escapi", 10);
+        assertEquals(1, hits.size());
+        assertEquals(0, hits.get(0).getPosition());
+        // Nor is "movie" a prefix of "movi"
+        hits = movies.search("movie", 10);
+        assertEquals(1, hits.size());
+        assertEquals(1, hits.get(0).getPosition());
+        assertEquals(1, movies.search("monst", 10).size());
+    }
+
+    @Test
+    public void testPruningKeepsTheExhaustiveRanking() {
+        String[] vocabulary = {"storm", "sea", "pirate", "gold", "island", "ship", "crew", "map", "night", "river"};
+        java.util.Random random = new java.util.Random(7);
+        // More documents than one scoring window, and postings long enough to span many blocks
+        String[][] docs = new String[10000][];
+        for (int i = 0; i < docs.length; i++) {
+            StringBuilder title = new StringBuilder();
+            StringBuilder description = new StringBuilder();
+            for (int w = random.nextInt(3); w >= 0; w--) {
+                title.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            }
+            for (int w = random.nextInt(12); w >= 0; w--) {
+                description.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            }
+            docs[i] = new String[] {title.toString(), description.toString()};
+        }
+        FullTextIndex large = new FullTextIndex(docs, WEIGHTS);
+        for (String query : new String[] {"storm", "pirate gold", "sea ship crew map", "night riv", "s"}) {
+            // A limit as large as the catalogue never fills the heap, so nothing is pruned
+            List<FullTextIndex.Hit> all = large.search(query, docs.length);
+            List<FullTextIndex.Hit> top = large.search(query, 10);
+            assertEquals(10, top.size(), query);
+            for (int i = 0; i < top.size(); i++) {
+                assertEquals(all.get(i).getPosition(), top.get(i).getPosition(), query);
+                assertEquals(all.get(i).getScore(), top.get(i).getScore(), 1e-4f, query);
+            }
+        }
+    }
+
+    @Test
+    public void testLimitKeepsBestHits() {
+        List<FullTextIndex.Hit> hits = index.search("prison garden night", 2);
+        assertEquals(2, hits.size());
+        assertTrue(hits.get(0).getScore() >= hits.get(1).getScore());
+    }
+
+    @Test
+    public void testStopWordsAndUnknownWordsMatchNothing() {
+        assertTrue(index.search("the of and", 10).isEmpty());
+        assertTrue(index.search("submarine", 10).isEmpty());
+        assertTrue(index.search("   ", 10).isEmpty());
+    }
+
+    @Test
+    public void testEqualScoresKeepDocumentOrder() {
+        String[][] docs = new String[200][];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = new String[] {"Storm " + i, ""};
+        }
+        List<FullTextIndex.Hit> hits = new FullTextIndex(docs, WEIGHTS).search("storm", 5);
+        List<Integer> positions = new ArrayList<>();
+        hits.forEach(hit -> positions.add(hit.getPosition()));
+        assertEquals(java.util.Arrays.asList(0, 1, 2, 3, 4), positions);
+    }
+}
@@ -0,0 +1,148 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the nearest-neighbour graph behind similar titles
+ */
+public class HnswIndexTest {
+
+    private static final int DIMENSIONS = 16;
+
+    /**
+     * Random unit vectors around a handful of centres, clustered like movies of a few genres.
+     */
+    private static byte[] clustered(int size, long seed) {
+        Random random = new Random(seed);
+        float[][] centres = new float[8][DIMENSIONS];
+        for (float[] centre : centres) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                centre[i] = (float) random.nextGaussian();
+            }
+        }
+        byte[] vectors = new byte[size * DIMENSIONS];
+        float[] vector = new float[DIMENSIONS];
+        for (int row = 0; row < size; row++) {
+            float[] centre = centres[random.nextInt(centres.length)];
+            float norm = 0f;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = centre[i] + (float) random.nextGaussian() * 0.6f;
+                norm += vector[i] * vector[i];
+            }
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] /= (float) Math.sqrt(norm);
+            }
+            HnswIndex.quantize(vector, vectors, row * DIMENSIONS);
+        }
+        return vectors;
+    }
+
+    private static int dot(byte[] vectors, int a, int b) {
+        int sum = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            sum += vectors[a * DIMENSIONS + i] * vectors[b * DIMENSIONS + i];
+        }
+        return sum;
+    }
+
+    private static List<Integer> positions(List<HnswIndex.Neighbour> neighbours) {
+        List<Integer> positions = new ArrayList<>();
+        for (HnswIndex.Neighbour neighbour : neighbours) {
+            positions.add(neighbour.getPosition());
+        }
+        return positions;
+    }
+
+    @Test
+    public void testFindsNearlyAllTrueNeighbours() {
+        int size = 3000;
+        byte[] vectors = clustered(size, 7);
+        HnswIndex index = new HnswIndex(vectors, DIMENSIONS, 16, 64, 64);
+        Random random = new Random(11);
+        int found = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            int position = random.nextInt(size);
+            int[] similarities = new int[size];
+            for (int other = 0; other < size; other++) {
+                similarities[other] = other == position ? Integer.MIN_VALUE : dot(vectors, position, other);
+            }
+            int[] sorted = similarities.clone();
+            Arrays.sort(sorted);
+            int tenth = sorted[size - 10];
+
+            List<HnswIndex.Neighbour> neighbours = index.nearest(position, 10);
+            assertEquals(10, neighbours.size());
+            for (int i = 0; i < neighbours.size(); i++) {
+                HnswIndex.Neighbour neighbour = neighbours.get(i);
+                assertNotEquals(position, neighbour.getPosition());
+                assertEquals(dot(vectors, position, neighbour.getPosition()) / (float) (HnswIndex.SCALE * HnswIndex.SCALE),
+                    neighbour.getSimilarity(), 1e-6);
+                if (i > 0) {
+                    assertTrue(neighbour.getSimilarity() <= neighbours.get(i - 1).getSimilarity());
+                }
+                if (similarities[neighbour.getPosition()] >= tenth) {
+                    found++;
+                }
+            }
+        }
+        assertTrue(found >= queries * 10 * 9 / 10, "Recall too low: " + found);
+    }
+
+    @Test
+    public void testSmallIndexesAreExact() {
+        byte[] vectors = clustered(40, 3);
+        HnswIndex index = new HnswIndex(vectors, DIMENSIONS, 4, 16, 64);
+        for (int position = 0; position < 40; position++) {
+            List<HnswIndex.Neighbour> neighbours = index.nearest(position, 39);
+            assertEquals(39, neighbours.size());
+            Set<Integer> others = new HashSet<>(positions(neighbours));
+            assertFalse(others.contains(position));
+            assertEquals(39, others.size());
+        }
+    }
+
+    @Test
+    public void testSameVectorsGiveSameNeighbours() {
+        byte[] vectors = clustered(500, 5);
+        HnswIndex first = new HnswIndex(vectors, DIMENSIONS, 8, 32, 32);
+        HnswIndex second = new HnswIndex(vectors.clone(), DIMENSIONS, 8, 32, 32);
+        for (int position = 0; position < 500; position += 37) {
+            assertEquals(positions(first.nearest(position, 5)), positions(second.nearest(position, 5)));
+        }
+    }
+
+    @Test
+    public void testEdgeCases() {
+        HnswIndex empty = new HnswIndex(new byte[0], DIMENSIONS, 8, 32, 32);
+        assertEquals(0, empty.size());
+        assertTrue(empty.nearest(0, 5).isEmpty());
+
+        HnswIndex single = new HnswIndex(clustered(1, 1), DIMENSIONS, 8, 32, 32);
+        assertTrue(single.nearest(0, 5).isEmpty());
+
+        HnswIndex index = new HnswIndex(clustered(10, 1), DIMENSIONS, 8, 32, 32);
+        assertTrue(index.nearest(10, 5).isEmpty());
+        assertTrue(index.nearest(0, 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new HnswIndex(new byte[DIMENSIONS + 1], DIMENSIONS, 8, 32, 32));
+    }
+
+    @Test
+    public void testBuildCanBeAbandoned() {
+        byte[] vectors = clustered(5000, 3);
+        int[] polls = {0};
+        assertThrows(CancellationException.class,
+            () -> new HnswIndex(vectors, DIMENSIONS, 8, 32, 32, () -> ++polls[0] > 2));
+        assertEquals(3, polls[0]);
+    }
+}
@@ -0,0 +1,56 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the data-driven movie icon rules
+ */
+public class IconRulesTest {
+
+    private static IconRules rules(String json) throws IOException {
+        return IconRules.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testTitleThenKeywordThenGenreThenDefault() throws IOException {
+        IconRules rules = rules("{\"default\": \"D\", \"titles\": {\"Dream Heist\": \"T\"},"
+            + " \"keywords\": [{\"match\": \"heist\", \"icon\": \"K\"}],"
+            + " \"genres\": {\"Sci-Fi\": \"S\", \"Drama\": \"G\"}}");
+
+        assertEquals("T", rules.iconFor("  dream HEIST ", "Drama"));
+        assertEquals("K", rules.iconFor("The Last Heist", "Drama"));
+        assertEquals("G", rules.iconFor("Quiet Days", "Crime/Drama"));
+        assertEquals("S", rules.iconFor("Quiet Days", "sci-fi/Drama"));
+        assertEquals("D", rules.iconFor("Quiet Days", "Western"));
+        assertEquals("D", rules.iconFor(null, null));
+        assertEquals(4, rules.size());
+    }
+
+    @Test
+    public void testMissingSectionsFallBackToDefaultIcon() throws IOException {
+        assertEquals(IconRules.DEFAULT_ICON, rules("{}").iconFor("Anything", "Drama"));
+        assertEquals(IconRules.DEFAULT_ICON, IconRules.none().iconFor("Anything", "Drama"));
+    }
+
+    @Test
+    public void testBundledRulesKeepTheClassicIcons() {
+        IconRules bundled = IconRules.bundled();
+        assertEquals("🔒", bundled.iconFor("The Prison Escape", "Drama"));
+        assertEquals("🚀", bundled.iconFor("Space Wars: The Beginning", "Adventure/Sci-Fi"));
+        assertEquals("🚀", bundled.iconFor("Lost in Space", null));
+        assertEquals("🎭", bundled.iconFor("Quiet Days", "Drama"));
+        assertEquals("🎬", bundled.iconFor("Quiet Days", null));
+    }
+
+    @Test
+    public void testRejectsMalformedRules() {
+        assertThrows(RuntimeException.class, () -> rules("[]"));
+        assertThrows(RuntimeException.class, () -> rules("{\"keywords\": [{\"match\": \"x\"}]}"));
+    }
+}
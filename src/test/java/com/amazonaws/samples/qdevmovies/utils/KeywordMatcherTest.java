@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Aho-Corasick keyword matcher behind icon rules
+ */
+public class KeywordMatcherTest {
+
+    private final KeywordMatcher matcher = new KeywordMatcher(new String[] {"star wars", "war", "star", "ring", "he"});
+
+    @Test
+    public void testFindsWholeWordsIgnoringCase() {
+        assertEquals(3, matcher.firstMatch("The Quest for the RING"));
+        assertEquals(1, matcher.firstMatch("War Horse"));
+        assertEquals(-1, matcher.firstMatch("Stringer Bell"));
+        assertEquals(-1, matcher.firstMatch("Warriors of the Starlight"));
+        assertEquals(-1, matcher.firstMatch(""));
+        assertEquals(-1, matcher.firstMatch(null));
+    }
+
+    @Test
+    public void testEarlierKeywordsWin() {
+        assertEquals(0, matcher.firstMatch("Star Wars: A New Hope"));
+        assertEquals(1, matcher.firstMatch("The Ring of War"));
+        assertEquals(2, matcher.firstMatch("A Star Is Born"));
+    }
+
+    @Test
+    public void testFollowsFailureLinksIntoOverlappingKeywords() {
+        // "the" fails over to "he" only when the text says "he" on its own
+        assertEquals(-1, matcher.firstMatch("the other"));
+        assertEquals(4, matcher.firstMatch("she said he left"));
+        assertEquals(1, matcher.firstMatch("star-war"));
+        assertEquals(-1, new KeywordMatcher(new String[] {" ", null}).firstMatch("anything at all"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the primitive position sort behind the catalogue orderings and range indexes
+ */
+public class PositionSortTest {
+
+    @Test
+    public void testSortsLikeBoxedStableSort() {
+        Random random = new Random(7L);
+        for (int n : new int[] {0, 1, 15, 16, 17, 1000}) {
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = random.nextInt(20);
+            }
+            Integer[] boxed = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                boxed[i] = i;
+            }
+            Arrays.sort(boxed, (a, b) -> Integer.compare(values[a], values[b]));
+
+            int[] sorted = PositionSort.sorted(n, (a, b) -> Integer.compare(values[a], values[b]));
+            assertArrayEquals(Arrays.stream(boxed).mapToInt(Integer::intValue).toArray(), sorted);
+        }
+    }
+
+    @Test
+    public void testSortsDescendingWithTieBreak() {
+        double[] ratings = {8.5, 9.0, 8.5, 7.0};
+        long[] ids = {4, 2, 1, 3};
+        int[] order = PositionSort.sorted(4, (a, b) -> {
+            int byRating = Double.compare(ratings[b], ratings[a]);
+            return byRating != 0 ? byRating : Long.compare(ids[a], ids[b]);
+        });
+        assertArrayEquals(new int[] {1, 2, 0, 3}, order);
+    }
+}
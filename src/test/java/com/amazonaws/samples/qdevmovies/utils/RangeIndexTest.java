@@ -0,0 +1,78 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the sorted column index behind range filters
+ */
+public class RangeIndexTest {
+
+    private final RangeIndex index = new RangeIndex(new double[] {1994, 1972, 2008, 1994, 2010, 1999});
+
+    @Test
+    public void testCountsInclusiveRanges() {
+        assertEquals(3, index.count(1994, 1999));
+        assertEquals(6, index.count(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        assertEquals(1, index.count(2010, 2010));
+        assertEquals(0, index.count(2000, 2005));
+        assertEquals(0, index.count(2005, 2000));
+    }
+
+    @Test
+    public void testRetainsOnlyCandidatesInRange() {
+        BitSet candidates = new BitSet();
+        candidates.set(0, 6);
+        index.retain(candidates, 1990, 2000);
+        assertEquals(bits(0, 3, 5), candidates);
+
+        candidates.set(0, 6);
+        index.retain(candidates, 2000, Double.POSITIVE_INFINITY);
+        assertEquals(bits(2, 4), candidates);
+
+        candidates.clear();
+        candidates.set(1);
+        index.retain(candidates, 1990, 2000);
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void testEveryStrategyAgreesWithScan() {
+        Random random = new Random(42);
+        double[] values = new double[2000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100);
+        }
+        RangeIndex column = new RangeIndex(values);
+        for (int round = 0; round < 300; round++) {
+            double min = random.nextInt(110) - 5;
+            double max = min + random.nextInt(80);
+            // Density decides between checking candidates and intersecting the range, so vary it
+            double density = random.nextDouble();
+            BitSet candidates = new BitSet();
+            BitSet expected = new BitSet();
+            for (int pos = 0; pos < values.length; pos++) {
+                if (random.nextDouble() < density * density) {
+                    candidates.set(pos);
+                    if (values[pos] >= min && values[pos] <= max) {
+                        expected.set(pos);
+                    }
+                }
+            }
+            column.retain(candidates, min, max);
+            assertEquals(expected, candidates, "range " + min + ".." + max);
+        }
+    }
+
+    private static BitSet bits(int... positions) {
+        BitSet bits = new BitSet();
+        for (int pos : positions) {
+            bits.set(pos);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,44 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the token bucket that keeps the ship's log from overflowin'
+ */
+public class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testAllowsBurstThenRefillsAtRate() {
+        RateLimiter limiter = new RateLimiter(10, 3);
+        long now = System.nanoTime();
+
+        assertTrue(limiter.tryAcquire(now));
+        assertTrue(limiter.tryAcquire(now));
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now));
+
+        // One permit comes back every 100 ms
+        assertFalse(limiter.tryAcquire(now + SECOND / 20));
+        assertTrue(limiter.tryAcquire(now + SECOND / 10));
+        assertFalse(limiter.tryAcquire(now + SECOND / 10));
+
+        // A quiet spell refills the burst but never beyond it
+        long later = now + 10 * SECOND;
+        assertTrue(limiter.tryAcquire(later));
+        assertTrue(limiter.tryAcquire(later));
+        assertTrue(limiter.tryAcquire(later));
+        assertFalse(limiter.tryAcquire(later));
+    }
+
+    @Test
+    public void testZeroRateMeansUnlimited() {
+        RateLimiter limiter = new RateLimiter(0, 1);
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the packed UTF-8 column that indexes keep their text in
+ */
+public class Utf8ColumnTest {
+
+    private final Utf8Column column = Utf8Column.of(new String[] {"amélie", null, "the dream heist", "", "amelia"});
+
+    @Test
+    public void testDecodesRowsAndNulls() {
+        assertEquals(5, column.size());
+        assertEquals("amélie", column.get(0));
+        assertNull(column.get(1));
+        assertEquals("", column.get(3));
+        assertEquals(7, column.length(0));
+        assertEquals(0, column.length(1));
+    }
+
+    @Test
+    public void testContainsMatchesLikeString() {
+        assertTrue(column.contains(0, bytes("mél")));
+        assertFalse(column.contains(0, bytes("mel")));
+        assertTrue(column.contains(2, bytes("heist")));
+        assertTrue(column.contains(2, bytes("the dream heist")));
+        assertFalse(column.contains(2, bytes("the dream heists")));
+        assertFalse(column.contains(1, bytes("a")));
+        assertTrue(column.contains(3, bytes("")));
+    }
+
+    @Test
+    public void testOrdersByCodePointAndComparesPrefixes() {
+        // "amelia" < "amélie": 'e' sorts before 'é'
+        assertTrue(column.compare(4, 0, 0, 0) < 0);
+        assertTrue(column.compare(0, 0, 4, 0) > 0);
+        assertEquals(0, column.compare(0, 0, 0, 0));
+        assertTrue(column.compare(3, 0, 4, 0) < 0);
+        // "dream heist" from offset 4 against "amélie" from offset 0
+        assertTrue(column.compare(2, 4, 0, 0) > 0);
+
+        assertEquals(0, column.comparePrefix(2, 4, bytes("dream")));
+        assertEquals(0, column.comparePrefix(0, 0, bytes("amé")));
+        assertTrue(column.comparePrefix(4, 0, bytes("amé")) < 0);
+        assertTrue(column.comparePrefix(4, 0, bytes("amelias")) < 0);
+        assertEquals(9, column.indexOf(2, (byte) ' ', 4));
+        assertEquals(-1, column.indexOf(0, (byte) ' ', 0));
+    }
+
+    @Test
+    public void testRowsShareCodesInABuffer() {
+        byte[] arena = "dramacomedy".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(arena.length);
+        direct.put(arena);
+        Utf8Column genres = new Utf8Column(direct, new int[] {0, 5, 11}, new int[] {1, 0, 1, -1});
+        assertEquals("comedy", genres.get(0));
+        assertEquals("drama", genres.get(1));
+        assertEquals("comedy", genres.get(2));
+        assertNull(genres.get(3));
+        assertTrue(genres.contains(2, bytes("med")));
+        assertFalse(genres.contains(1, bytes("dramac")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
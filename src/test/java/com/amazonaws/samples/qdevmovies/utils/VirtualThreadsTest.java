@@ -0,0 +1,30 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the reflective virtual thread lookup, on whatever JDK runs the build
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    public void testAvailableExactlyFromJdk21() throws Exception {
+        String specification = System.getProperty("java.specification.version");
+        int feature = Integer.parseInt(specification.startsWith("1.") ? specification.substring(2) : specification);
+
+        Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor();
+        assertEquals(feature >= 21, executor.isPresent());
+        if (executor.isPresent()) {
+            Object isVirtual = executor.get().submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .get(10, TimeUnit.SECONDS);
+            assertEquals(Boolean.TRUE, isVirtual);
+            executor.get().shutdown();
+        }
+    }
+}